@@ -1,29 +1,40 @@
 package com.example.dok;
 
+import com.example.dok.model.FileMetadata;
 import com.example.dok.model.MarkdownFile;
 import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.tree.TreeIndex;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class DokApplication {
 
+    /**
+     * Startup steps kept for {@code /actuator/startup} and the startup report; a context records a few
+     * per bean.
+     */
+    private static final int STARTUP_STEPS = 8192;
+
     public static void main(String[] args) {
-        SpringApplication.run(DokApplication.class, args);
+        SpringApplication application = new SpringApplication(DokApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
 
     @Bean
-    public static CommandLineRunner initDatabase(MarkdownFileRepository repository) {
+    public static CommandLineRunner initDatabase(MarkdownFileRepository repository, TreeIndex index) {
         return args -> {
-            if (!repository.existsByPath("/")) {
+            if (!index.exists("/")) {
                 MarkdownFile root = MarkdownFile.builder()
                         .path("/")
                         .name("/")
                         .isDirectory(true)
                         .build();
-                repository.save(root);
+                index.add(FileMetadata.of(repository.save(root)));
             }
         };
     }
@@ -0,0 +1,241 @@
+package com.example.dok.cluster;
+
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.service.ContentHash;
+import com.example.dok.service.RenderCache;
+import com.example.dok.storage.ContentStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps node-local state coherent when several instances share one database
+ * ({@code dok.cluster.enabled}). Every {@link FileChangedEvent} is appended to the
+ * {@code cluster_change} table in the transaction that made the change, and every
+ * {@code dok.cluster.poll-millis} each node reads the rows added since its last poll and publishes
+ * those of other nodes as remote events. The tree index, search index, link graph, revision heads
+ * and change feed update from them like from local changes; the render cache is invalidated here.
+ * Remote events carry the document content as stored when they are replayed, not as saved.
+ *
+ * <p>Row ids are assigned on insert but only become visible on commit, so a row can show up after
+ * rows with higher ids. Ids the tail skips over are rechecked for {@link #GAP_TIMEOUT} before they
+ * are taken for rolled back inserts. A change whose replay fails is read again the same way.
+ */
+@Component
+public class ClusterChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterChangeLog.class);
+    private static final Duration GAP_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration PRUNE_INTERVAL = Duration.ofMinutes(1);
+    /**
+     * Skipped ids tracked per poll at most; a larger jump is an identity cache gap, not open transactions.
+     */
+    private static final int MAX_TRACKED_GAP = 1000;
+    private static final int BATCH_SIZE = 500;
+    private static final String COLUMNS = "id, node_id, type, file_id, path, previous_path, directory";
+    private static final RowMapper<Change> CHANGE = (rs, rowNum) -> new Change(rs.getLong(1), rs.getString(2),
+            FileChangedEvent.Type.valueOf(rs.getString(3)), (Long) rs.getObject(4), rs.getString(5),
+            rs.getString(6), rs.getBoolean(7));
+
+    private final boolean enabled;
+    private final String nodeId;
+    private final JdbcTemplate jdbc;
+    private final ContentStore contentStore;
+    private final RenderCache renderCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long pollMillis;
+    private final Duration retention;
+    /**
+     * Highest id read so far; ids at or below it are only read again while they are open gaps.
+     */
+    private long position;
+    /**
+     * Skipped ids still rechecked, with the nano time they are given up at.
+     */
+    private final Map<Long, Long> gaps = new HashMap<>();
+    private long nextPrune;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cluster-change-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    record Change(long id, String nodeId, FileChangedEvent.Type type, Long fileId, String path,
+                  String previousPath, boolean directory) {
+    }
+
+    public ClusterChangeLog(JdbcTemplate jdbc, ContentStore contentStore, RenderCache renderCache,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${dok.cluster.enabled:false}") boolean enabled,
+                            @Value("${dok.cluster.node-id:}") String nodeId,
+                            @Value("${dok.cluster.poll-millis:500}") long pollMillis,
+                            @Value("${dok.cluster.retention-minutes:60}") long retentionMinutes,
+                            @Value("${dok.storage.type:jpa}") String storageType) {
+        if (enabled && !storageType.equals("jpa")) {
+            throw new IllegalStateException("dok.cluster.enabled requires dok.storage.type=jpa, "
+                    + "as filesystem content is not shared between nodes");
+        }
+        this.enabled = enabled;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.jdbc = jdbc;
+        this.contentStore = contentStore;
+        this.renderCache = renderCache;
+        this.eventPublisher = eventPublisher;
+        this.pollMillis = Math.max(1, pollMillis);
+        this.retention = Duration.ofMinutes(Math.max(1, retentionMinutes));
+        this.nextPrune = System.nanoTime();
+        // State loaded after this point cannot miss a change: anything committed later is replayed.
+        this.position = enabled ? jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cluster_change", Long.class) : 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            log.info("Cluster node {} tailing the change log from id {}", nodeId, position);
+            poller.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Appends a local change to the log inside its transaction, so the change and its record commit
+     * or roll back together.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onFileChanged(FileChangedEvent event) {
+        if (!enabled || event.remote()) {
+            return;
+        }
+        jdbc.update("INSERT INTO cluster_change (node_id, type, file_id, path, previous_path, directory, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                nodeId, event.type().name(), event.fileId(), event.path(), event.previousPath(), event.directory(),
+                Timestamp.from(Instant.now()));
+    }
+
+    void poll() {
+        try {
+            List<Change> changes;
+            do {
+                changes = read();
+                for (Change change : changes) {
+                    try {
+                        if (!change.nodeId().equals(nodeId)) {
+                            replay(change);
+                        }
+                        handled(change);
+                    } catch (RuntimeException e) {
+                        log.warn("Failed to replay cluster change {}, retrying it with the next poll", change.id(), e);
+                        retry(change);
+                    }
+                }
+            } while (changes.size() >= BATCH_SIZE);
+            prune();
+        } catch (RuntimeException e) {
+            log.warn("Failed to read the cluster change log", e);
+        }
+    }
+
+    /**
+     * Rows that filled open gaps, then up to {@link #BATCH_SIZE} rows past the position, in that order.
+     * Gaps stay open until their row is {@link #handled}.
+     */
+    synchronized List<Change> read() {
+        long now = System.nanoTime();
+        List<Change> changes = new ArrayList<>();
+        gaps.values().removeIf(deadline -> deadline - now < 0);
+        if (!gaps.isEmpty()) {
+            List<Long> open = List.copyOf(gaps.keySet());
+            changes.addAll(jdbc.query("SELECT " + COLUMNS + " FROM cluster_change WHERE id IN ("
+                    + String.join(",", Collections.nCopies(open.size(), "?")) + ") ORDER BY id", CHANGE, open.toArray()));
+        }
+        List<Change> tail = jdbc.query("SELECT " + COLUMNS + " FROM cluster_change WHERE id > ? ORDER BY id LIMIT ?",
+                CHANGE, position, BATCH_SIZE);
+        long deadline = now + GAP_TIMEOUT.toNanos();
+        for (Change change : tail) {
+            for (long skipped = Math.max(position + 1, change.id() - MAX_TRACKED_GAP); skipped < change.id(); skipped++) {
+                gaps.put(skipped, deadline);
+            }
+            position = change.id();
+        }
+        changes.addAll(tail);
+        return changes;
+    }
+
+    synchronized void handled(Change change) {
+        gaps.remove(change.id());
+    }
+
+    /**
+     * Reads a change that failed to replay again with the next poll, like a gap, until {@link #GAP_TIMEOUT}
+     * after its first failure.
+     */
+    synchronized void retry(Change change) {
+        gaps.putIfAbsent(change.id(), System.nanoTime() + GAP_TIMEOUT.toNanos());
+    }
+
+    private void replay(Change change) {
+        String content = null;
+        String contentHash = null;
+        switch (change.type()) {
+            case CREATED, UPDATED -> {
+                if (!change.directory() && change.fileId() != null) {
+                    content = contentStore.read(change.fileId(), change.path()).orElse(null);
+                    contentHash = content == null ? null : ContentHash.of(content);
+                }
+                renderCache.invalidate(change.path());
+            }
+            case MOVED -> renderCache.invalidateSubtree(change.previousPath());
+            case DELETED -> renderCache.invalidateSubtree(change.path());
+        }
+        eventPublisher.publishEvent(new FileChangedEvent(change.type(), change.fileId(), change.path(),
+                change.previousPath(), change.directory(), content, contentHash, true));
+    }
+
+    private void prune() {
+        long now = System.nanoTime();
+        if (now - nextPrune < 0) {
+            return;
+        }
+        nextPrune = now + PRUNE_INTERVAL.toNanos();
+        int pruned = jdbc.update("DELETE FROM cluster_change WHERE created_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+        if (pruned > 0) {
+            log.debug("Pruned {} cluster change log rows", pruned);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        poller.shutdown();
+        poller.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
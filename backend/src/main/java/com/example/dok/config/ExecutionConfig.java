@@ -0,0 +1,36 @@
+package com.example.dok.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Request threads are virtual when {@code spring.threads.virtual.enabled} is set, which makes blocking
+ * on JDBC cheap but also removes the natural cap the platform-thread pool used to put on database work.
+ * The data source is therefore wrapped in a {@link BoundedDataSource}, sized to the connection pool by default.
+ */
+@Configuration
+public class ExecutionConfig {
+
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BoundedDataSource)) {
+                    int maxConcurrency = environment.getProperty("dok.db.max-concurrency", Integer.class,
+                            environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                    Duration acquireTimeout = DurationStyle.detectAndParse(
+                            environment.getProperty("dok.db.acquire-timeout", "30s"));
+                    return new BoundedDataSource(dataSource, maxConcurrency, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -6,18 +6,24 @@ import com.vladsch.flexmark.ext.gfm.tasklist.TaskListExtension;
 import com.vladsch.flexmark.ext.ins.InsExtension;
 import com.vladsch.flexmark.ext.tables.TablesExtension;
 import com.vladsch.flexmark.ext.wikilink.WikiLinkExtension;
-import com.vladsch.flexmark.html.HtmlRenderer;
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.data.MutableDataSet;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.util.Arrays;
 
+/**
+ * The shared parser. Renderers are built per {@link com.example.dok.markdown.RenderProfile} by
+ * {@link com.example.dok.markdown.DocumentPipeline} on top of its options. The parser is created lazily,
+ * when the pipeline first needs it.
+ */
 @Configuration
 public class MarkdownConfig {
 
     @Bean
+    @Lazy
     public Parser parser() {
         MutableDataSet options = new MutableDataSet();
         options.set(Parser.EXTENSIONS, Arrays.asList(
@@ -31,11 +37,4 @@ public class MarkdownConfig {
         options.set(WikiLinkExtension.LINK_FIRST_SYNTAX, true);
         return Parser.builder(options).build();
     }
-
-    @Bean
-    public HtmlRenderer renderer(Parser parser) {
-        MutableDataSet options = new MutableDataSet(parser.getOptions());
-        options.set(HtmlRenderer.FENCED_CODE_LANGUAGE_CLASS_PREFIX, "");
-        return HtmlRenderer.builder(options).build();
-    }
 }
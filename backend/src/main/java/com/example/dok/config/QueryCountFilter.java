@@ -0,0 +1,53 @@
+package com.example.dok.config;
+
+import com.example.dok.service.DokMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements executed while a request is handled and records them per endpoint,
+ * which makes N+1 query patterns visible. Statements are counted on the request thread; work done
+ * later by a streaming response body or on background threads is not included.
+ */
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final ThreadLocal<int[]> STATEMENTS = new ThreadLocal<>();
+
+    private final DokMetrics metrics;
+
+    public QueryCountFilter(DokMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Called by {@link BoundedDataSource} for every statement executed on one of its connections.
+     */
+    static void countStatement() {
+        int[] count = STATEMENTS.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int[] count = new int[1];
+        STATEMENTS.set(count);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            STATEMENTS.remove();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            metrics.recordQueries(request.getMethod(), pattern != null ? pattern.toString() : "UNKNOWN", count[0]);
+        }
+    }
+}
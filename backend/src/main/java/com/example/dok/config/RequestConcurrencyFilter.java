@@ -0,0 +1,36 @@
+package com.example.dok.config;
+
+import com.example.dok.service.ExecutionMonitor;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Counts the requests being handled for {@link ExecutionMonitor}. A streaming or server-sent events
+ * response counts until its handler returns, not while it keeps writing asynchronously.
+ */
+@Component
+public class RequestConcurrencyFilter extends OncePerRequestFilter {
+
+    private final ExecutionMonitor executionMonitor;
+
+    public RequestConcurrencyFilter(ExecutionMonitor executionMonitor) {
+        this.executionMonitor = executionMonitor;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        executionMonitor.requestStarted();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            executionMonitor.requestFinished();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.dok.config;
+
+import com.example.dok.service.DokMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reports where startup time went once the application is ready: the context refresh, the time
+ * until ready and the tree index load are recorded as {@code dok.startup.phase}, and the beans that
+ * took longest to create, not counting the beans they pulled in, are logged. The per-bean breakdown
+ * needs the {@link BufferingApplicationStartup} {@code DokApplication} installs; the full timeline is
+ * served at {@code /actuator/startup}.
+ */
+@Component
+public class StartupReport {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+    private static final String REFRESH_STEP = "spring.context.refresh";
+    private static final String INSTANTIATE_STEP = "spring.beans.instantiate";
+    private static final int SLOWEST_BEANS = 10;
+
+    private final DokMetrics metrics;
+
+    public StartupReport(DokMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (event.getTimeTaken() != null) {
+            metrics.recordStartupPhase("ready", event.getTimeTaken().toNanos());
+        }
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            return;
+        }
+        List<StartupTimeline.TimelineEvent> events = startup.getBufferedTimeline().getEvents();
+        Map<Long, Duration> childTime = new HashMap<>();
+        for (StartupTimeline.TimelineEvent timelineEvent : events) {
+            Long parentId = timelineEvent.getStartupStep().getParentId();
+            if (parentId != null) {
+                childTime.merge(parentId, timelineEvent.getDuration(), Duration::plus);
+            }
+        }
+        Map<String, Duration> beans = new HashMap<>();
+        for (StartupTimeline.TimelineEvent timelineEvent : events) {
+            StartupStep step = timelineEvent.getStartupStep();
+            if (step.getName().equals(REFRESH_STEP)) {
+                metrics.recordStartupPhase("context-refresh", timelineEvent.getDuration().toNanos());
+            } else if (step.getName().equals(INSTANTIATE_STEP)) {
+                String beanName = tag(step, "beanName");
+                if (beanName != null) {
+                    beans.put(beanName, timelineEvent.getDuration().minus(childTime.getOrDefault(step.getId(), Duration.ZERO)));
+                }
+            }
+        }
+        Duration treeIndex = beans.get("treeIndex");
+        if (treeIndex != null) {
+            metrics.recordStartupPhase("tree-index", treeIndex.toNanos());
+        }
+        log.info("Slowest beans to create: {}", beans.entrySet().stream()
+                .sorted(Map.Entry.<String, Duration>comparingByValue(Comparator.reverseOrder()))
+                .limit(SLOWEST_BEANS)
+                .map(entry -> entry.getKey() + " " + entry.getValue().toMillis() + " ms")
+                .collect(Collectors.joining(", ")));
+    }
+
+    private static String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals(key)) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.dok.controller;
+
+import com.example.dok.exception.ArchiveImportException;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.service.ArchiveService;
+import com.example.dok.writebehind.WriteBehindBuffer;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@RestController
+public class ArchiveController {
+
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+
+    private final ArchiveService archiveService;
+    private final WriteBehindBuffer writeBehind;
+
+    public ArchiveController(ArchiveService archiveService, WriteBehindBuffer writeBehind) {
+        this.archiveService = archiveService;
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Imports the zip archive sent as the request body below the directory {@code path}. A failure part
+     * way through answers {@code 400} with the counts of the chunks already committed.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importArchive(@RequestParam(defaultValue = "/") String path, InputStream archive) {
+        try {
+            return ResponseEntity.ok(archiveService.importArchive(path, archive));
+        } catch (ArchiveImportException e) {
+            return ResponseEntity.badRequest().body(e.getResult());
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<?> exportArchive(@RequestParam(defaultValue = "/") String path) {
+        try {
+            FileMetadata directory = archiveService.findDirectory(path);
+            writeBehind.flush();
+            String name = directory.path().equals("/") ? "workspace" : directory.path().substring(directory.path().lastIndexOf('/') + 1);
+            StreamingResponseBody body = out -> archiveService.exportArchive(directory.path(), out);
+            return ResponseEntity.ok()
+                    .contentType(APPLICATION_ZIP)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(name + ".zip").build().toString())
+                    .body(body);
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.dok.controller;
+
+import com.example.dok.dto.ExecutionStatsDto;
+import com.example.dok.service.ExecutionMonitor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ExecutionController {
+
+    private final ExecutionMonitor executionMonitor;
+
+    public ExecutionController(ExecutionMonitor executionMonitor) {
+        this.executionMonitor = executionMonitor;
+    }
+
+    @GetMapping("/execution/stats")
+    public ResponseEntity<ExecutionStatsDto> executionStats() {
+        return ResponseEntity.ok(executionMonitor.stats());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.dok.controller;
+
+import com.example.dok.dto.LinkDto;
+import com.example.dok.links.LinkService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class LinkController {
+
+    private final LinkService linkService;
+
+    public LinkController(LinkService linkService) {
+        this.linkService = linkService;
+    }
+
+    @GetMapping("/backlinks")
+    public ResponseEntity<List<LinkDto>> backlinks(@RequestParam String path) {
+        try {
+            return ResponseEntity.ok(linkService.backlinks(path));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/broken-links")
+    public ResponseEntity<List<LinkDto>> brokenLinks() {
+        return ResponseEntity.ok(linkService.brokenLinks());
+    }
+}
@@ -1,21 +1,53 @@
 package com.example.dok.controller;
 
-import com.example.dok.dto.FileEntryDto;
-import com.example.dok.dto.MoveFileRequestDto;
-import com.example.dok.dto.UpdateFileContentRequestDto;
+import com.example.dok.dto.*;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.exception.VersionConflictException;
+import com.example.dok.markdown.RenderProfile;
+import com.example.dok.model.DocumentSnapshot;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.model.RawDocument;
+import com.example.dok.service.DokMetrics;
 import com.example.dok.service.MarkdownService;
+import com.example.dok.storage.StoredBody;
+import com.example.dok.writebehind.WriteBehindBuffer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 public class MarkdownController {
 
+    private static final String RAW_ETAG_PREFIX = "raw-";
+    private static final String VIEW_ETAG_PREFIX = "html-";
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+    private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    static final String VERSION_HEADER = "X-Document-Version";
+
     private final MarkdownService markdownService;
+    private final DokMetrics metrics;
+    private final WriteBehindBuffer writeBehind;
 
-    public MarkdownController(MarkdownService markdownService) {
+    public MarkdownController(MarkdownService markdownService, DokMetrics metrics, WriteBehindBuffer writeBehind) {
         this.markdownService = markdownService;
+        this.metrics = metrics;
+        this.writeBehind = writeBehind;
     }
 
     @GetMapping("/list")
@@ -23,71 +55,298 @@ public class MarkdownController {
         try {
             return ResponseEntity.ok(markdownService.listFiles(path));
         } catch (Exception e) {
+            failed("list", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Paginated listing: pass the returned {@code nextCursor} back as {@code cursor} for the next page.
+     * {@code depth} prefetches the first page of subdirectories down to that many levels.
+     */
+    @GetMapping("/children")
+    public ResponseEntity<DirectoryPageDto> listChildren(@RequestParam(defaultValue = "/") String path,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "200") int limit,
+                                                         @RequestParam(defaultValue = "0") int depth) {
+        try {
+            return ResponseEntity.ok(markdownService.listPage(path, cursor, limit, depth));
+        } catch (FileNotFoundException e) {
+            failed("children", e);
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            failed("children", e);
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * @param profile {@code preview} (default), {@code safe} to escape raw HTML, or {@code print}
+     */
     @GetMapping("/view")
-    public ResponseEntity<String> viewMarkdown(@RequestParam String path) {
+    public ResponseEntity<?> viewMarkdown(@RequestParam String path,
+                                          @RequestParam(defaultValue = "preview") String profile,
+                                          WebRequest webRequest) {
         try {
-            return ResponseEntity.ok(markdownService.viewMarkdown(path));
+            RenderProfile renderProfile = RenderProfile.valueOf(profile.toUpperCase(Locale.ROOT));
+            FileMetadata metadata = markdownService.findMetadata(path).orElse(null);
+            if (metadata == null || metadata.isDirectory()) {
+                return ResponseEntity.ok(markdownService.viewMarkdown(path));
+            }
+            boolean gzip = acceptsGzip(webRequest);
+            String prefix = renderProfile == RenderProfile.PREVIEW
+                    ? VIEW_ETAG_PREFIX
+                    : VIEW_ETAG_PREFIX + profile.toLowerCase(Locale.ROOT) + "-";
+            if (isNotModified(webRequest, metadata, eTag(metadata, prefix, gzip))) {
+                return null;
+            }
+            DocumentSnapshot snapshot = markdownService.viewSnapshot(metadata, renderProfile);
+            return withValidators(ResponseEntity.ok(), snapshot.metadata(), eTag(snapshot.metadata(), prefix, gzip))
+                    .contentType(TEXT_HTML_UTF8)
+                    .headers(headers -> withContentEncoding(headers, gzip))
+                    .body(streamText("view", gzip, writer -> markdownService.writeView(snapshot, renderProfile, writer)));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.badRequest().body(failed("view", e));
+        }
+    }
+
+    @GetMapping("/outline")
+    public ResponseEntity<OutlineDto> outline(@RequestParam String path) {
+        try {
+            return ResponseEntity.ok(markdownService.outline(path));
+        } catch (FileNotFoundException e) {
+            failed("outline", e);
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            failed("outline", e);
+            return ResponseEntity.badRequest().build();
         }
     }
 
+    @GetMapping("/render-cache/stats")
+    public ResponseEntity<RenderCacheStatsDto> renderCacheStats() {
+        return ResponseEntity.ok(markdownService.renderCacheStats());
+    }
+
     @GetMapping("/raw")
-    public ResponseEntity<String> rawMarkdown(@RequestParam String path) {
+    public ResponseEntity<?> rawMarkdown(@RequestParam String path, WebRequest webRequest) {
         try {
-            return ResponseEntity.ok(markdownService.rawMarkdown(path));
+            FileMetadata metadata = markdownService.findMetadata(path).orElse(null);
+            if (metadata == null || metadata.isDirectory()) {
+                return ResponseEntity.ok(markdownService.rawMarkdown(path));
+            }
+            boolean gzip = acceptsGzip(webRequest);
+            if (isNotModified(webRequest, metadata, eTag(metadata, RAW_ETAG_PREFIX, gzip))) {
+                return null;
+            }
+            RawDocument raw = markdownService.openRaw(metadata);
+            return withValidators(ResponseEntity.ok(), raw.metadata(), eTag(raw.metadata(), RAW_ETAG_PREFIX, gzip))
+                    .contentType(TEXT_PLAIN_UTF8)
+                    .headers(headers -> withContentEncoding(headers, gzip))
+                    .body(stream("raw", gzip, out -> {
+                        try (StoredBody body = raw.body()) {
+                            body.transferTo(out);
+                        }
+                    }));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.badRequest().body(failed("raw", e));
         }
     }
 
     @PostMapping("/save")
     public ResponseEntity<String> saveMarkdown(@RequestBody UpdateFileContentRequestDto request) {
         try {
-            return ResponseEntity.ok(markdownService.saveMarkdown(request));
+            String result = writeBehind.isEnabled() ? writeBehind.save(request) : markdownService.saveMarkdown(request);
+            return ResponseEntity.ok(checked("save", result));
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(failed("save", e));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(failed("save", e));
+        }
+    }
+
+    @PostMapping("/save-patch")
+    public ResponseEntity<?> patchMarkdown(@RequestBody PatchFileContentRequestDto request) {
+        try {
+            return ResponseEntity.ok(writeBehind.isEnabled()
+                    ? writeBehind.patch(request)
+                    : markdownService.patchMarkdown(request));
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(failed("save-patch", e));
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(failed("save-patch", e));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.badRequest().body(failed("save-patch", e));
         }
     }
 
     @PostMapping("/create-file")
     public ResponseEntity<String> createFile(@RequestParam String path) {
         try {
-            return ResponseEntity.ok(markdownService.createFile(path));
+            return ResponseEntity.ok(checked("create-file", markdownService.createFile(path)));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.badRequest().body(failed("create-file", e));
         }
     }
 
     @PostMapping("/create-directory")
     public ResponseEntity<String> createDirectory(@RequestParam String path) {
         try {
-            return ResponseEntity.ok(markdownService.createDirectory(path));
+            return ResponseEntity.ok(checked("create-directory", markdownService.createDirectory(path)));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.badRequest().body(failed("create-directory", e));
         }
     }
 
     @PostMapping("/move")
     public ResponseEntity<String> move(@RequestBody MoveFileRequestDto request) {
         try {
-            return ResponseEntity.ok(markdownService.move(request));
+            writeBehind.flush();
+            return ResponseEntity.ok(checked("move", markdownService.move(request)));
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(failed("move", e));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.badRequest().body(failed("move", e));
         }
     }
 
     @DeleteMapping("/delete")
-    public ResponseEntity<String> delete(@RequestParam String path) {
+    public ResponseEntity<String> delete(@RequestParam String path,
+                                         @RequestParam(required = false) Long expectedVersion) {
         try {
-            markdownService.delete(path);
+            writeBehind.flush();
+            markdownService.delete(path, expectedVersion);
             return ResponseEntity.ok().build();
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(failed("delete", e));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.badRequest().body(failed("delete", e));
+        }
+    }
+
+    /**
+     * Counts results the service reports as an {@code Error:} message rather than an exception.
+     */
+    private String checked(String operation, String result) {
+        if (result.startsWith("Error:")) {
+            metrics.recordError(operation, "Rejected");
+        }
+        return result;
+    }
+
+    /**
+     * Counts a failed request by operation and cause, since the handlers turn every exception into a response.
+     *
+     * @return the message to send back
+     */
+    private String failed(String operation, Exception e) {
+        metrics.recordError(operation, e);
+        return e.getMessage();
+    }
+
+    /**
+     * Strong validator for one representation of a document; gzip-encoded bodies get their own tag.
+     */
+    private static String eTag(FileMetadata metadata, String prefix, boolean gzip) {
+        if (metadata == null || metadata.isDirectory() || metadata.contentHash() == null) {
+            return null;
+        }
+        return "\"" + prefix + metadata.contentHash() + (gzip ? GZIP_ETAG_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * Whether the client lists gzip in {@code Accept-Encoding} without a zero quality value. Brotli is
+     * not offered because the JDK has no encoder for it.
+     */
+    private static boolean acceptsGzip(WebRequest webRequest) {
+        String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equalsIgnoreCase("x-gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("[qQ]=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void withContentEncoding(HttpHeaders headers, boolean gzip) {
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+    }
+
+    /**
+     * A body written straight into the response stream, so the response is not built up in memory
+     * again. The status has been sent by the time it runs, so a failure can only be counted under
+     * {@code operation} and abort the response.
+     */
+    private StreamingResponseBody stream(String operation, boolean gzip, ByteWriter body) {
+        return outputStream -> {
+            try {
+                OutputStream target = gzip ? new GZIPOutputStream(outputStream, 8192) : outputStream;
+                body.writeTo(target);
+                target.flush();
+                if (target instanceof GZIPOutputStream gzipStream) {
+                    gzipStream.finish();
+                }
+            } catch (IOException | RuntimeException e) {
+                failed(operation, e);
+                throw e;
+            }
+        };
+    }
+
+    private StreamingResponseBody streamText(String operation, boolean gzip, TextWriter body) {
+        return stream(operation, gzip, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            body.writeTo(writer);
+            writer.flush();
+        });
+    }
+
+    @FunctionalInterface
+    private interface ByteWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface TextWriter {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * Answers a conditional GET from the metadata row alone. When this returns {@code true} the
+     * response has already been turned into a 304 and the handler must not produce a body.
+     */
+    private static boolean isNotModified(WebRequest webRequest, FileMetadata metadata, String eTag) {
+        if (eTag == null) {
+            return false;
+        }
+        long lastModified = metadata.lastModified() != null ? metadata.lastModified().toEpochMilli() : -1;
+        return webRequest.checkNotModified(eTag, lastModified);
+    }
+
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, FileMetadata metadata, String eTag) {
+        builder.cacheControl(CacheControl.noCache());
+        if (eTag != null) {
+            builder.eTag(eTag);
+            builder.header(VERSION_HEADER, Long.toString(metadata.version()));
+            if (metadata.lastModified() != null) {
+                builder.lastModified(metadata.lastModified());
+            }
         }
+        return builder;
     }
 }
@@ -0,0 +1,65 @@
+package com.example.dok.controller;
+
+import com.example.dok.dto.RevisionDto;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.revisions.RevisionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+public class RevisionController {
+
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final RevisionService revisionService;
+
+    public RevisionController(RevisionService revisionService) {
+        this.revisionService = revisionService;
+    }
+
+    /**
+     * Revisions of a document, newest first.
+     */
+    @GetMapping("/revisions")
+    public ResponseEntity<List<RevisionDto>> revisions(@RequestParam String path) {
+        try {
+            return ResponseEntity.ok(revisionService.list(path));
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/revision")
+    public ResponseEntity<String> revision(@RequestParam String path, @RequestParam int number) {
+        try {
+            return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(revisionService.content(path, number));
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Unified diff between two revisions of a document.
+     */
+    @GetMapping("/revisions/diff")
+    public ResponseEntity<String> diff(@RequestParam String path, @RequestParam int from, @RequestParam int to) {
+        try {
+            return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(revisionService.diff(path, from, to));
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
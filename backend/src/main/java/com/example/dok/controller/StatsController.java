@@ -0,0 +1,33 @@
+package com.example.dok.controller;
+
+import com.example.dok.dto.TreeStatsDto;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.stats.StatsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class StatsController {
+
+    private final StatsService statsService;
+
+    public StatsController(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    /**
+     * Document count, bytes, words and latest change of a document or of everything below a directory.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<TreeStatsDto> stats(@RequestParam(defaultValue = "/") String path) {
+        try {
+            return ResponseEntity.ok(statsService.stats(path));
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.dok.dto;
+
+import com.example.dok.event.FileChangedEvent;
+
+/**
+ * One coalesced change in the feed served by {@code /changes}.
+ *
+ * @param sequence     position in the feed; increases by one per change
+ * @param type         kind of change; a directory move or delete covers its subtree
+ * @param path         current path, or the removed path for deletes
+ * @param previousPath path before a move, otherwise {@code null}
+ * @param directory    whether the entry is a directory
+ * @param contentHash  content hash after a create or update of a document
+ */
+public record ChangeEventDto(long sequence, FileChangedEvent.Type type, String path, String previousPath,
+                             boolean directory, String contentHash) {
+}
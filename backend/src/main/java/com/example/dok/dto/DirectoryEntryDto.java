@@ -0,0 +1,17 @@
+package com.example.dok.dto;
+
+/**
+ * @param childCount number of direct children, zero for documents
+ * @param children   first page of the directory's children if it was prefetched, otherwise null
+ */
+public record DirectoryEntryDto(String name, String path, boolean isDirectory, long childCount,
+                                DirectoryPageDto children) {
+
+    public DirectoryEntryDto(String name, String path, boolean isDirectory, long childCount) {
+        this(name, path, isDirectory, childCount, null);
+    }
+
+    public DirectoryEntryDto withChildren(DirectoryPageDto children) {
+        return new DirectoryEntryDto(name, path, isDirectory, childCount, children);
+    }
+}
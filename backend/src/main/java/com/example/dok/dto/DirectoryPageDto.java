@@ -0,0 +1,11 @@
+package com.example.dok.dto;
+
+import java.util.List;
+
+/**
+ * One page of a directory listing, directories first and then by name.
+ *
+ * @param nextCursor opaque cursor for the following page, or null if this is the last one
+ */
+public record DirectoryPageDto(List<DirectoryEntryDto> entries, String nextCursor) {
+}
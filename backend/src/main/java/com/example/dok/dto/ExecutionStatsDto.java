@@ -0,0 +1,19 @@
+package com.example.dok.dto;
+
+/**
+ * @param virtualThreads      whether requests run on virtual threads
+ * @param dbMaxConcurrency    permits of the database concurrency limit
+ * @param dbInUse             permits currently held
+ * @param dbWaiting           threads queued for a permit
+ * @param dbAcquired          permits handed out since startup
+ * @param dbTimeouts          callers that gave up waiting for a permit
+ * @param poolActive          connections in use, as reported by the pool
+ * @param poolIdle            idle connections in the pool
+ * @param poolWaiting         threads waiting inside the pool for a connection
+ * @param requestsInFlight     requests being handled right now, on whatever kind of thread
+ * @param peakRequestsInFlight most requests handled at once since startup
+ */
+public record ExecutionStatsDto(boolean virtualThreads, int dbMaxConcurrency, int dbInUse, int dbWaiting,
+                                long dbAcquired, long dbTimeouts, int poolActive, int poolIdle, int poolWaiting,
+                                int requestsInFlight, int peakRequestsInFlight) {
+}
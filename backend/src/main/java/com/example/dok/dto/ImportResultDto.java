@@ -0,0 +1,15 @@
+package com.example.dok.dto;
+
+/**
+ * @param directoriesCreated directories created, including ones implied by file paths
+ * @param filesCreated       documents created
+ * @param skipped            entries whose path already existed
+ * @param rejected           entries with an invalid path, content that is not UTF-8 text or content
+ *                           over {@code dok.import.max-document-bytes}
+ * @param entriesCommitted   number of entries, in archive order, whose chunks were committed; the
+ *                           counts above cover only these
+ * @param error              why the import stopped before the end of the archive, or {@code null}
+ */
+public record ImportResultDto(int directoriesCreated, int filesCreated, int skipped, int rejected,
+                              int entriesCommitted, String error) {
+}
@@ -0,0 +1,9 @@
+package com.example.dok.dto;
+
+/**
+ * @param source     path of the document containing the link
+ * @param target     link target as written
+ * @param targetPath path the target resolves to
+ */
+public record LinkDto(String source, String target, String targetPath) {
+}
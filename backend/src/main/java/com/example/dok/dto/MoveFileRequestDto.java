@@ -1,4 +1,7 @@
 package com.example.dok.dto;
 
-public record MoveFileRequestDto(String source, String destination) {
+/**
+ * @param expectedVersion version of the source the client last saw; {@code null} skips the check
+ */
+public record MoveFileRequestDto(String source, String destination, Long expectedVersion) {
 }
@@ -0,0 +1,15 @@
+package com.example.dok.dto;
+
+import java.util.List;
+
+/**
+ * @param links wiki-link targets as written, in order of first appearance
+ */
+public record OutlineDto(List<Heading> headings, int wordCount, List<String> links) {
+
+    /**
+     * @param anchor id of the heading element in the rendered HTML
+     */
+    public record Heading(int level, String text, String anchor) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.dok.dto;
+
+import java.util.List;
+
+public record PatchFileContentRequestDto(String path, long baseVersion, List<TextOperationDto> operations) {
+}
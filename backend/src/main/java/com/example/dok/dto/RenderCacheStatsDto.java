@@ -0,0 +1,4 @@
+package com.example.dok.dto;
+
+public record RenderCacheStatsDto(long hits, long misses, long evictions, long entries, long weightedBytes, long maxBytes) {
+}
@@ -0,0 +1,6 @@
+package com.example.dok.dto;
+
+import java.time.Instant;
+
+public record RevisionDto(int number, String contentHash, int length, Instant createdAt) {
+}
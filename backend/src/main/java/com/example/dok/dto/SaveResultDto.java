@@ -0,0 +1,4 @@
+package com.example.dok.dto;
+
+public record SaveResultDto(long version, String contentHash) {
+}
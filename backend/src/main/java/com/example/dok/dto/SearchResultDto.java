@@ -0,0 +1,4 @@
+package com.example.dok.dto;
+
+public record SearchResultDto(String name, String path, double score, String snippet) {
+}
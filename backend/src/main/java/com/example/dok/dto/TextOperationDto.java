@@ -0,0 +1,8 @@
+package com.example.dok.dto;
+
+/**
+ * Replaces {@code deleteCount} characters at {@code position} with {@code text}. Positions are UTF-16
+ * offsets into the document as left by the previous operation of the same patch.
+ */
+public record TextOperationDto(int position, int deleteCount, String text) {
+}
@@ -0,0 +1,12 @@
+package com.example.dok.dto;
+
+import java.time.Instant;
+
+/**
+ * Totals over a document or a directory's whole subtree.
+ *
+ * @param totalBytes   UTF-8 size of the document bodies
+ * @param lastModified latest change of anything in the subtree, including moves and deletes below it
+ */
+public record TreeStatsDto(String path, long documentCount, long totalBytes, long wordCount, Instant lastModified) {
+}
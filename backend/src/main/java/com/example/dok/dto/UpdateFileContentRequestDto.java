@@ -1,4 +1,7 @@
 package com.example.dok.dto;
 
-public record UpdateFileContentRequestDto(String path, String content) {
+/**
+ * @param expectedVersion version the client last saw; {@code null} skips the check
+ */
+public record UpdateFileContentRequestDto(String path, String content, Long expectedVersion) {
 }
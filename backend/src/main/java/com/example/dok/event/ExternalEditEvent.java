@@ -0,0 +1,13 @@
+package com.example.dok.event;
+
+/**
+ * Published by a content store that noticed a document body changed outside the application, for
+ * example a {@code .md} file edited in place. {@code MarkdownService} reconciles the tree row and
+ * turns it into a regular {@link FileChangedEvent}.
+ *
+ * @param path        path of the edited document
+ * @param content     content found in the store
+ * @param contentHash hash of {@code content}
+ */
+public record ExternalEditEvent(String path, String content, String contentHash) {
+}
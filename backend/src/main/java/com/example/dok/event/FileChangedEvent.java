@@ -0,0 +1,40 @@
+package com.example.dok.event;
+
+/**
+ * Published by {@code MarkdownService} for every committed mutation of the document tree.
+ * Listeners use it to keep derived, in-memory structures coherent with the database. In a cluster,
+ * mutations made by other nodes are replayed from the change log as remote events; listeners update
+ * their in-memory state from those but leave the database alone, as the other node already wrote it.
+ *
+ * @param type         kind of mutation
+ * @param fileId       id of the created, updated, moved or deleted row
+ * @param path         current path, or the removed path for {@link Type#DELETED}
+ * @param previousPath path before a {@link Type#MOVED}, otherwise {@code null}
+ * @param directory    whether the row is a directory; moves and deletes of directories cover the subtree
+ * @param content      new document content for {@link Type#CREATED} and {@link Type#UPDATED} files
+ * @param contentHash  hash of {@code content}, if present
+ * @param remote       whether the mutation was made by another node of the cluster
+ */
+public record FileChangedEvent(Type type, Long fileId, String path, String previousPath, boolean directory,
+                               String content, String contentHash, boolean remote) {
+
+    public enum Type {
+        CREATED, UPDATED, MOVED, DELETED
+    }
+
+    public static FileChangedEvent created(Long fileId, String path, boolean directory, String content, String contentHash) {
+        return new FileChangedEvent(Type.CREATED, fileId, path, null, directory, content, contentHash, false);
+    }
+
+    public static FileChangedEvent updated(Long fileId, String path, String content, String contentHash) {
+        return new FileChangedEvent(Type.UPDATED, fileId, path, null, false, content, contentHash, false);
+    }
+
+    public static FileChangedEvent moved(Long fileId, String previousPath, String path, boolean directory) {
+        return new FileChangedEvent(Type.MOVED, fileId, path, previousPath, directory, null, null, false);
+    }
+
+    public static FileChangedEvent deleted(Long fileId, String path, boolean directory) {
+        return new FileChangedEvent(Type.DELETED, fileId, path, null, directory, null, null, false);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.dok.exception;
+
+import com.example.dok.dto.ImportResultDto;
+
+/**
+ * An import that failed part way through. The chunks written before the failure stay committed, and
+ * {@link #getResult()} counts what they created.
+ */
+public class ArchiveImportException extends RuntimeException {
+
+    private final ImportResultDto result;
+
+    public ArchiveImportException(ImportResultDto result, Throwable cause) {
+        super(result.error(), cause);
+        this.result = result;
+    }
+
+    public ImportResultDto getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.dok.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String path, long expectedVersion, long actualVersion) {
+        super("Version conflict at path: " + path + " (expected version " + expectedVersion
+                + ", current version " + actualVersion + ")");
+    }
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.dok.feed;
+
+import com.example.dok.dto.ChangeEventDto;
+import com.example.dok.event.FileChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Server-sent stream of committed tree and content changes. Changes are coalesced per path and
+ * flushed once per tick as a single batch whose event id is {@code <epoch>-<last sequence>}. A client
+ * reconnecting with {@code Last-Event-ID} receives what it missed from a bounded history; if that is
+ * no longer possible, or the server restarted, it gets a {@code reset} event and reloads the tree.
+ * Batches are broadcast outside the lock, so each client remembers the sequence its replay covered
+ * and is not sent a batch it already received that way.
+ */
+@Component
+public class ChangeFeed {
+
+    static final String CHANGES_EVENT = "changes";
+    static final String RESET_EVENT = "reset";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final int historySize;
+    private final long emitterTimeoutMillis;
+    private final long heartbeatTicks;
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, PendingChange> pending = new LinkedHashMap<>();
+    private final ArrayDeque<ChangeEventDto> history = new ArrayDeque<>();
+    /**
+     * Connected clients, each with the last sequence sent to it on subscribing.
+     */
+    private final Map<SseEmitter, Long> emitters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long sequence;
+    private long moves;
+    private long idleTicks;
+
+    public ChangeFeed(@Value("${dok.feed.tick-millis:250}") long tickMillis,
+                      @Value("${dok.feed.history-size:10000}") int historySize,
+                      @Value("${dok.feed.emitter-timeout-millis:1800000}") long emitterTimeoutMillis,
+                      @Value("${dok.feed.heartbeat-millis:20000}") long heartbeatMillis) {
+        this.historySize = historySize;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.heartbeatTicks = Math.max(1, heartbeatMillis / tickMillis);
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChanged(FileChangedEvent event) {
+        synchronized (lock) {
+            if (event.type() == FileChangedEvent.Type.MOVED) {
+                // Moves span two paths, so they are never merged; they only keep their place in the order.
+                pending.put("\0move-" + moves++, PendingChange.of(event.type(), event));
+                return;
+            }
+            if (event.type() == FileChangedEvent.Type.DELETED && event.directory()) {
+                String prefix = event.path().endsWith("/") ? event.path() : event.path() + "/";
+                pending.values().removeIf(change -> change.type() != FileChangedEvent.Type.MOVED
+                        && change.path().startsWith(prefix));
+            }
+            // Re-inserting moves the path behind any move or delete that happened in between.
+            PendingChange previous = pending.remove(event.path());
+            boolean createdThisTick = previous != null && previous.type() == FileChangedEvent.Type.CREATED
+                    && event.type() == FileChangedEvent.Type.UPDATED;
+            pending.put(event.path(), PendingChange.of(createdThisTick ? FileChangedEvent.Type.CREATED : event.type(), event));
+        }
+    }
+
+    /**
+     * Registers a client. {@code lastEventId} is the id of the last batch it applied, if any.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        return subscribe(lastEventId, new SseEmitter(emitterTimeoutMillis));
+    }
+
+    /**
+     * Sends what the client missed and registers it in one step under the lock. The emitter only
+     * buffers events until the handler returns, so sending does not block on the network here.
+     */
+    SseEmitter subscribe(String lastEventId, SseEmitter emitter) {
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(error -> emitters.remove(emitter));
+
+        synchronized (lock) {
+            List<ChangeEventDto> missed = changesSince(parseSequence(lastEventId));
+            String currentId = eventId(sequence);
+            try {
+                if (missed == null) {
+                    emitter.send(SseEmitter.event().name(RESET_EVENT).id(currentId).data(currentId));
+                } else if (!missed.isEmpty()) {
+                    emitter.send(SseEmitter.event().name(CHANGES_EVENT).id(currentId).data(missed));
+                }
+                emitters.put(emitter, sequence);
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Changes after {@code since}, or {@code null} if some of them have already left the history.
+     */
+    List<ChangeEventDto> changesSince(long since) {
+        synchronized (lock) {
+            if (since < 0 || since > sequence) {
+                return null;
+            }
+            if (since < sequence && (history.isEmpty() || history.peekFirst().sequence() > since + 1)) {
+                return null;
+            }
+            return history.stream().filter(change -> change.sequence() > since).toList();
+        }
+    }
+
+    /**
+     * Assigns sequence numbers to the pending changes and moves them into the history.
+     *
+     * @return the new batch, empty if nothing changed since the last flush
+     */
+    List<ChangeEventDto> flush() {
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return List.of();
+            }
+            List<ChangeEventDto> batch = new ArrayList<>(pending.size());
+            for (PendingChange change : pending.values()) {
+                ChangeEventDto dto = new ChangeEventDto(++sequence, change.type(), change.path(), change.previousPath(),
+                        change.directory(), change.contentHash());
+                batch.add(dto);
+                history.addLast(dto);
+            }
+            pending.clear();
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+            return batch;
+        }
+    }
+
+    private void tick() {
+        List<ChangeEventDto> batch = flush();
+        if (!batch.isEmpty()) {
+            idleTicks = 0;
+            publish(batch);
+        } else if (++idleTicks >= heartbeatTicks) {
+            idleTicks = 0;
+            broadcast(Long.MAX_VALUE, () -> SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    /**
+     * Sends a flushed batch to every client whose replay on subscribing did not already include it.
+     */
+    void publish(List<ChangeEventDto> batch) {
+        long last = batch.get(batch.size() - 1).sequence();
+        String id = eventId(last);
+        broadcast(last, () -> SseEmitter.event().name(CHANGES_EVENT).id(id).data(batch));
+    }
+
+    /**
+     * Sends an event to every client whose replay did not reach {@code sequence}. Event builders are
+     * single use, hence the supplier.
+     */
+    private void broadcast(long sequence, Supplier<SseEmitter.SseEventBuilder> event) {
+        emitters.forEach((emitter, replayed) -> {
+            if (replayed >= sequence) {
+                return;
+            }
+            try {
+                emitter.send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        });
+    }
+
+    String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Sequence number in an event id issued by this server instance, or {@code -1}.
+     */
+    private long parseSequence(String eventId) {
+        if (eventId == null || !eventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        emitters.keySet().forEach(SseEmitter::complete);
+    }
+
+    private record PendingChange(FileChangedEvent.Type type, String path, String previousPath, boolean directory,
+                                 String contentHash) {
+
+        static PendingChange of(FileChangedEvent.Type type, FileChangedEvent event) {
+            return new PendingChange(type, event.path(), event.previousPath(), event.directory(), event.contentHash());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.dok.links;
+
+import com.example.dok.dto.LinkDto;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory adjacency lists of the wiki-link graph. Outgoing links are keyed by source file id,
+ * incoming links by resolved target path, so backlinks cost O(degree). Documents are tracked by
+ * path to tell which targets exist. All access is guarded by a read/write lock.
+ */
+@Component
+public class LinkGraph {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<Link>> outgoing = new HashMap<>();
+    private final Map<String, Set<Long>> incoming = new HashMap<>();
+    private final NavigableMap<String, Long> idsByPath = new TreeMap<>();
+    private final Map<Long, String> pathsById = new HashMap<>();
+
+    /**
+     * @param target     link target as written
+     * @param targetPath resolved absolute path
+     */
+    public record Link(String target, String targetPath) {
+    }
+
+    /**
+     * Registers the document {@code fileId} at {@code path} and replaces its outgoing links.
+     */
+    public void put(long fileId, String path, List<Link> links) {
+        lock.writeLock().lock();
+        try {
+            String previous = pathsById.put(fileId, path);
+            if (previous != null && !previous.equals(path)) {
+                idsByPath.remove(previous, fileId);
+            }
+            idsByPath.put(path, fileId);
+            removeLinks(fileId);
+            if (!links.isEmpty()) {
+                outgoing.put(fileId, List.copyOf(links));
+                links.forEach(link -> incoming.computeIfAbsent(link.targetPath(), key -> new HashSet<>()).add(fileId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebases every document at or below {@code oldPath} onto {@code newPath}.
+     *
+     * @return ids and new paths of the moved documents
+     */
+    public Map<Long, String> move(String oldPath, String newPath) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Long> moved = new LinkedHashMap<>(subtree(oldPath));
+            moved.keySet().forEach(idsByPath::remove);
+            Map<Long, String> result = new LinkedHashMap<>();
+            moved.forEach((path, id) -> {
+                String rebased = newPath + path.substring(oldPath.length());
+                idsByPath.put(rebased, id);
+                pathsById.put(id, rebased);
+                result.put(id, rebased);
+            });
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets every document at or below {@code path} together with its outgoing links. Links
+     * pointing into the subtree stay and become broken.
+     *
+     * @return ids of the removed documents
+     */
+    public List<Long> removeSubtree(String path) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Long> removed = new LinkedHashMap<>(subtree(path));
+            removed.forEach((removedPath, id) -> {
+                idsByPath.remove(removedPath);
+                pathsById.remove(id);
+                removeLinks(id);
+            });
+            return new ArrayList<>(removed.values());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Link> outgoing(long fileId) {
+        lock.readLock().lock();
+        try {
+            return outgoing.getOrDefault(fileId, List.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<LinkDto> backlinks(String path) {
+        lock.readLock().lock();
+        try {
+            List<LinkDto> result = new ArrayList<>();
+            addLinksTo(result, path);
+            result.sort(Comparator.comparing(LinkDto::source));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<LinkDto> brokenLinks() {
+        lock.readLock().lock();
+        try {
+            List<LinkDto> result = new ArrayList<>();
+            incoming.keySet().stream()
+                    .filter(targetPath -> !idsByPath.containsKey(targetPath))
+                    .forEach(targetPath -> addLinksTo(result, targetPath));
+            result.sort(Comparator.comparing(LinkDto::source).thenComparing(LinkDto::target));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLinksTo(List<LinkDto> result, String targetPath) {
+        for (Long sourceId : incoming.getOrDefault(targetPath, Set.of())) {
+            String source = pathsById.get(sourceId);
+            for (Link link : outgoing.getOrDefault(sourceId, List.of())) {
+                if (link.targetPath().equals(targetPath)) {
+                    result.add(new LinkDto(source, link.target(), targetPath));
+                }
+            }
+        }
+    }
+
+    private void removeLinks(long fileId) {
+        List<Link> links = outgoing.remove(fileId);
+        if (links == null) {
+            return;
+        }
+        for (Link link : links) {
+            Set<Long> sources = incoming.get(link.targetPath());
+            if (sources != null) {
+                sources.remove(fileId);
+                if (sources.isEmpty()) {
+                    incoming.remove(link.targetPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Entries at {@code path} or below it; {@code '0'} is the character after {@code '/'}.
+     */
+    private Map<String, Long> subtree(String path) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        Long self = idsByPath.get(path);
+        if (self != null) {
+            result.put(path, self);
+        }
+        String prefix = path.endsWith("/") ? path : path + "/";
+        result.putAll(idsByPath.subMap(prefix, true, prefix.substring(0, prefix.length() - 1) + "0", false));
+        return result;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.dok.links;
+
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.markdown.DocumentPipeline;
+import com.example.dok.model.DocumentLink;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.model.LinkedDocument;
+import com.example.dok.repository.DocumentLinkRepository;
+import com.example.dok.repository.LinkedDocumentRepository;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.service.ContentHash;
+import com.example.dok.service.DokMetrics;
+import com.example.dok.storage.ContentStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link LinkGraph} and its {@link DocumentLink} table in sync with the documents. On
+ * startup the graph is loaded from the table and only documents whose content hash changed are
+ * reparsed. Afterwards every committed {@link FileChangedEvent} is applied on a single thread,
+ * like the search indexer, so saves never wait for link extraction. Remote events from other nodes
+ * of a cluster only update the graph; the node that made the change stores its edges.
+ */
+@Component
+public class LinkIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkIndexer.class);
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    private final LinkGraph linkGraph;
+    private final MarkdownFileRepository fileRepository;
+    private final DocumentLinkRepository linkRepository;
+    private final LinkedDocumentRepository linkedDocumentRepository;
+    private final ContentStore contentStore;
+    private final DocumentPipeline documentPipeline;
+    private final DokMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService indexingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "link-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LinkIndexer(LinkGraph linkGraph, MarkdownFileRepository fileRepository,
+                       DocumentLinkRepository linkRepository, LinkedDocumentRepository linkedDocumentRepository,
+                       ContentStore contentStore, DocumentPipeline documentPipeline, DokMetrics metrics,
+                       PlatformTransactionManager transactionManager) {
+        this.linkGraph = linkGraph;
+        this.fileRepository = fileRepository;
+        this.linkRepository = linkRepository;
+        this.linkedDocumentRepository = linkedDocumentRepository;
+        this.contentStore = contentStore;
+        this.documentPipeline = documentPipeline;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        indexingExecutor.execute(this::rebuild);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChanged(FileChangedEvent event) {
+        indexingExecutor.execute(() -> apply(event));
+    }
+
+    private void apply(FileChangedEvent event) {
+        try {
+            switch (event.type()) {
+                case CREATED, UPDATED -> {
+                    if (!event.directory() && event.content() != null) {
+                        String hash = event.contentHash() != null ? event.contentHash() : ContentHash.of(event.content());
+                        List<LinkGraph.Link> links = resolve(event.path(), documentPipeline.parse(hash, event.content()).outline().links());
+                        if (!event.remote()) {
+                            store(Map.of(event.fileId(), links), Map.of(event.fileId(), hash));
+                        }
+                        linkGraph.put(event.fileId(), event.path(), links);
+                    }
+                }
+                case MOVED -> {
+                    Map<Long, List<LinkGraph.Link>> reresolved = new LinkedHashMap<>();
+                    linkGraph.move(event.previousPath(), event.path()).forEach((id, path) -> {
+                        List<LinkGraph.Link> links = linkGraph.outgoing(id);
+                        if (links.stream().anyMatch(link -> LinkTargets.isRelative(link.target()))) {
+                            List<LinkGraph.Link> rebased = resolve(path, links.stream().map(LinkGraph.Link::target).toList());
+                            reresolved.put(id, rebased);
+                            linkGraph.put(id, path, rebased);
+                        }
+                    });
+                    if (!reresolved.isEmpty() && !event.remote()) {
+                        store(reresolved, Map.of());
+                    }
+                }
+                case DELETED -> {
+                    List<Long> removed = linkGraph.removeSubtree(event.path());
+                    if (!event.remote()) {
+                        forget(removed);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to update link graph for {}", event.path(), e);
+        }
+    }
+
+    void rebuild() {
+        long started = System.nanoTime();
+        Map<Long, String> indexedHashes = linkedDocumentRepository.findAll().stream()
+                .collect(Collectors.toMap(LinkedDocument::getFileId, document -> Objects.toString(document.getContentHash(), "")));
+        Map<Long, List<String>> storedTargets = linkRepository.findAll().stream()
+                .collect(Collectors.groupingBy(DocumentLink::getSourceId,
+                        Collectors.mapping(DocumentLink::getTarget, Collectors.toList())));
+
+        List<FileMetadata> stale = new ArrayList<>();
+        Set<Long> documentIds = new HashSet<>();
+        for (FileMetadata metadata : fileRepository.findAllDocumentMetadata()) {
+            documentIds.add(metadata.id());
+            if (metadata.contentHash() != null && metadata.contentHash().equals(indexedHashes.get(metadata.id()))) {
+                linkGraph.put(metadata.id(), metadata.path(),
+                        resolve(metadata.path(), storedTargets.getOrDefault(metadata.id(), List.of())));
+            } else {
+                // Register the path right away so links to it do not show up as broken while it is reparsed.
+                linkGraph.put(metadata.id(), metadata.path(), List.of());
+                stale.add(metadata);
+            }
+        }
+
+        Map<Long, List<LinkGraph.Link>> reparsed = new HashMap<>();
+        Map<Long, String> hashes = new HashMap<>();
+        stale.parallelStream().forEach(metadata -> contentStore.read(metadata.id(), metadata.path()).ifPresent(content -> {
+            String hash = metadata.contentHash() != null ? metadata.contentHash() : ContentHash.of(content);
+            List<LinkGraph.Link> links = resolve(metadata.path(), documentPipeline.parse(hash, content).outline().links());
+            linkGraph.put(metadata.id(), metadata.path(), links);
+            synchronized (reparsed) {
+                reparsed.put(metadata.id(), links);
+                hashes.put(metadata.id(), hash);
+            }
+        }));
+        store(reparsed, hashes);
+
+        List<Long> orphans = indexedHashes.keySet().stream().filter(id -> !documentIds.contains(id)).toList();
+        forget(orphans);
+        long elapsed = System.nanoTime() - started;
+        metrics.recordStartupPhase("link-graph", elapsed);
+        log.info("Link graph ready: {} documents ({} reparsed, {} orphans removed) in {} ms",
+                documentIds.size(), stale.size(), orphans.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private static List<LinkGraph.Link> resolve(String sourcePath, List<String> targets) {
+        List<LinkGraph.Link> links = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            String targetPath = LinkTargets.resolve(sourcePath, target);
+            if (targetPath != null) {
+                links.add(new LinkGraph.Link(target, targetPath));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Replaces the stored edges of every source in {@code links} and records the content hashes
+     * in {@code hashes} as indexed.
+     */
+    private void store(Map<Long, List<LinkGraph.Link>> links, Map<Long, String> hashes) {
+        if (links.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (List<Long> chunk : chunks(links.keySet())) {
+                linkRepository.deleteBySourceIds(chunk);
+            }
+            List<DocumentLink> rows = new ArrayList<>();
+            links.forEach((sourceId, sourceLinks) -> sourceLinks.forEach(link -> rows.add(DocumentLink.builder()
+                    .sourceId(sourceId)
+                    .target(link.target())
+                    .targetPath(link.targetPath())
+                    .build())));
+            linkRepository.saveAll(rows);
+            linkedDocumentRepository.saveAll(hashes.entrySet().stream()
+                    .map(entry -> new LinkedDocument(entry.getKey(), entry.getValue()))
+                    .toList());
+        });
+    }
+
+    private void forget(Collection<Long> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (List<Long> chunk : chunks(fileIds)) {
+                linkRepository.deleteBySourceIds(chunk);
+                linkedDocumentRepository.deleteByFileIds(chunk);
+            }
+        });
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int start = 0; start < all.size(); start += DELETE_CHUNK_SIZE) {
+            chunks.add(all.subList(start, Math.min(all.size(), start + DELETE_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        indexingExecutor.shutdown();
+        indexingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.dok.links;
+
+import com.example.dok.dto.LinkDto;
+import com.example.dok.service.MarkdownService;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class LinkService {
+
+    private final LinkGraph linkGraph;
+
+    public LinkService(LinkGraph linkGraph) {
+        this.linkGraph = linkGraph;
+    }
+
+    public List<LinkDto> backlinks(String path) {
+        return linkGraph.backlinks(MarkdownService.normalizePath(path));
+    }
+
+    public List<LinkDto> brokenLinks() {
+        return linkGraph.brokenLinks();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.dok.links;
+
+import com.vladsch.flexmark.ext.wikilink.WikiLink;
+import com.vladsch.flexmark.util.ast.Node;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Extracts wiki-link targets from a parsed document and resolves them to paths. A target starting
+ * with {@code /} is absolute, anything else is relative to the linking document's directory;
+ * {@code .md} is appended when the last segment has no extension and {@code #anchors} are ignored.
+ */
+public final class LinkTargets {
+
+    private LinkTargets() {
+    }
+
+    public static List<String> extract(Node document) {
+        Set<String> targets = new LinkedHashSet<>();
+        for (Node node : document.getDescendants()) {
+            if (node instanceof WikiLink wikiLink) {
+                String target = wikiLink.getLink().toString().trim();
+                if (!target.isEmpty()) {
+                    targets.add(target);
+                }
+            }
+        }
+        return List.copyOf(targets);
+    }
+
+    public static boolean isRelative(String target) {
+        return !target.startsWith("/");
+    }
+
+    /**
+     * @return the absolute path {@code target} points to from {@code sourcePath}, or {@code null} for
+     * external URLs, bare anchors and targets that climb above the root
+     */
+    public static String resolve(String sourcePath, String target) {
+        int anchor = target.indexOf('#');
+        String withoutAnchor = (anchor >= 0 ? target.substring(0, anchor) : target).trim();
+        if (withoutAnchor.isEmpty() || withoutAnchor.contains("://")) {
+            return null;
+        }
+
+        Deque<String> segments = new ArrayDeque<>();
+        if (isRelative(withoutAnchor)) {
+            String directory = sourcePath.substring(0, sourcePath.lastIndexOf('/'));
+            for (String segment : directory.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.addLast(segment);
+                }
+            }
+        }
+        for (String segment : withoutAnchor.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (segments.pollLast() == null) {
+                    return null;
+                }
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            return null;
+        }
+        String last = segments.peekLast();
+        if (last.indexOf('.') < 0) {
+            segments.addLast(segments.pollLast() + ".md");
+        }
+        return "/" + String.join("/", segments);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.dok.markdown;
+
+import com.example.dok.dto.OutlineDto;
+import com.example.dok.links.LinkTargets;
+import com.example.dok.service.ContentHash;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vladsch.flexmark.ast.AnchorRefTarget;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.IndentedCodeBlock;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.html.HtmlRenderer;
+import com.vladsch.flexmark.html.renderer.HeaderIdGenerator;
+import com.vladsch.flexmark.html.renderer.HeaderIdGeneratorFactory;
+import com.vladsch.flexmark.html.renderer.HtmlIdGenerator;
+import com.vladsch.flexmark.html.renderer.LinkResolverContext;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.ast.TextCollectingVisitor;
+import com.vladsch.flexmark.util.data.DataHolder;
+import com.vladsch.flexmark.util.data.MutableDataSet;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Parses each content version once and shares the tree. Parsed documents are cached by content
+ * hash, so the renderer, the pre-renderer and the search and link indexers reacting to the same save
+ * all get the same {@link ParsedDocument}, as do documents with identical content. The outline
+ * (headings with their anchors, word count, link targets) is collected in one pass at parse time,
+ * and every {@link RenderProfile} renders from the same tree with its own immutable renderer.
+ */
+@Component
+public class DocumentPipeline {
+
+    /**
+     * Documents larger than this fraction of the cache are parsed without being cached, so a single
+     * huge document cannot flush everything else.
+     */
+    private static final int MAX_ENTRY_FRACTION = 16;
+
+    private final Supplier<Parser> parserFactory;
+    /**
+     * The parser and renderers, built on first use so loading flexmark does not hold up startup.
+     */
+    private volatile Flexmark flexmark;
+    private final Cache<String, ParsedDocument> documents;
+    private final long maxEntryChars;
+
+    /**
+     * @param headerIdOptions the options the heading ids are generated with, the same the renderers use
+     */
+    private record Flexmark(Parser parser, DataHolder headerIdOptions, Map<RenderProfile, HtmlRenderer> renderers) {
+    }
+
+    public DocumentPipeline(Parser parser, long cacheMaxChars) {
+        this((Supplier<Parser>) () -> parser, cacheMaxChars);
+    }
+
+    @Autowired
+    public DocumentPipeline(ObjectProvider<Parser> parser,
+                            @Value("${dok.markdown.ast-cache.max-chars:8388608}") long cacheMaxChars) {
+        this((Supplier<Parser>) parser::getObject, cacheMaxChars);
+    }
+
+    private DocumentPipeline(Supplier<Parser> parserFactory, long cacheMaxChars) {
+        this.parserFactory = parserFactory;
+        this.documents = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxChars)
+                .weigher((String contentHash, ParsedDocument document) -> document.length() + 1)
+                .build();
+        this.maxEntryChars = cacheMaxChars / MAX_ENTRY_FRACTION;
+    }
+
+    /**
+     * Builds the parser and renderers in the background once the application serves requests, so the
+     * first render does not pay for it either.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ForkJoinPool.commonPool().execute(this::flexmark);
+    }
+
+    private Flexmark flexmark() {
+        Flexmark current = flexmark;
+        if (current == null) {
+            synchronized (this) {
+                current = flexmark;
+                if (current == null) {
+                    Parser parser = parserFactory.get();
+                    Map<RenderProfile, DataHolder> options = new EnumMap<>(RenderProfile.class);
+                    Map<RenderProfile, HtmlRenderer> renderers = new EnumMap<>(RenderProfile.class);
+                    for (RenderProfile profile : RenderProfile.values()) {
+                        options.put(profile, options(parser, profile));
+                        renderers.put(profile, HtmlRenderer.builder(options.get(profile))
+                                .htmlIdGeneratorFactory(AssignedHeaderIds.INSTANCE)
+                                .build());
+                    }
+                    current = new Flexmark(parser, options.get(RenderProfile.PREVIEW), renderers);
+                    flexmark = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Renderers never generate heading ids: {@link #analyze} assigns them once per parse, and the
+     * renderers that show them emit the ids already on the tree through {@link AssignedHeaderIds}.
+     */
+    private static DataHolder options(Parser parser, RenderProfile profile) {
+        MutableDataSet options = new MutableDataSet(parser.getOptions());
+        options.set(HtmlRenderer.FENCED_CODE_LANGUAGE_CLASS_PREFIX, "");
+        options.set(HtmlRenderer.GENERATE_HEADER_ID, false);
+        switch (profile) {
+            case PREVIEW -> options.set(HtmlRenderer.RENDER_HEADER_ID, true);
+            case SAFE -> options.set(HtmlRenderer.RENDER_HEADER_ID, true)
+                    .set(HtmlRenderer.ESCAPE_HTML, true);
+            case PRINT -> options.set(HtmlRenderer.SOFT_BREAK, " ");
+        }
+        return options;
+    }
+
+    /**
+     * @param contentHash hash of {@code content}, or null to compute it
+     */
+    public ParsedDocument parse(String contentHash, String content) {
+        String text = content == null ? "" : content;
+        String hash = contentHash != null ? contentHash : ContentHash.of(text);
+        if (text.length() > maxEntryChars) {
+            return analyze(hash, text);
+        }
+        return documents.get(hash, key -> analyze(key, text));
+    }
+
+    public String render(ParsedDocument document, RenderProfile profile) {
+        return flexmark().renderers().get(profile).render(document.root());
+    }
+
+    public void render(ParsedDocument document, RenderProfile profile, Appendable out) {
+        flexmark().renderers().get(profile).render(document.root(), out);
+    }
+
+    private ParsedDocument analyze(String contentHash, String content) {
+        Flexmark flexmark = flexmark();
+        Document root = flexmark.parser().parse(content);
+        // Assign the heading ids the renderers emit, so outline anchors match them.
+        new HeaderIdGenerator(flexmark.headerIdOptions()).generateIds(root);
+
+        List<OutlineDto.Heading> headings = new ArrayList<>();
+        TextCollectingVisitor headingText = new TextCollectingVisitor();
+        int words = 0;
+        for (Node node : root.getDescendants()) {
+            if (node instanceof Heading heading) {
+                headings.add(new OutlineDto.Heading(heading.getLevel(),
+                        headingText.collectAndGetText(heading), heading.getAnchorRefId()));
+            } else if (node instanceof Text
+                    && node.getAncestorOfType(FencedCodeBlock.class, IndentedCodeBlock.class) == null) {
+                words += countWords(node.getChars());
+            }
+        }
+        OutlineDto outline = new OutlineDto(List.copyOf(headings), words, LinkTargets.extract(root));
+        return new ParsedDocument(contentHash, content.length(), root, outline);
+    }
+
+    /**
+     * Hands the renderers the heading ids assigned at parse time. Generating them again would write to
+     * the shared tree from concurrent renders.
+     */
+    private static final class AssignedHeaderIds implements HeaderIdGeneratorFactory, HtmlIdGenerator {
+
+        static final AssignedHeaderIds INSTANCE = new AssignedHeaderIds();
+
+        @Override
+        public HtmlIdGenerator create(LinkResolverContext context) {
+            return this;
+        }
+
+        @Override
+        public HtmlIdGenerator create() {
+            return this;
+        }
+
+        @Override
+        public void generateIds(Document document) {
+        }
+
+        @Override
+        public String getId(Node node) {
+            return node instanceof AnchorRefTarget target ? target.getAnchorRefId() : null;
+        }
+
+        @Override
+        public String getId(CharSequence text) {
+            return null;
+        }
+    }
+
+    static int countWords(CharSequence text) {
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean wordChar = !Character.isWhitespace(text.charAt(i));
+            if (wordChar && !inWord) {
+                words++;
+            }
+            inWord = wordChar;
+        }
+        return words;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.dok.markdown;
+
+import com.example.dok.dto.OutlineDto;
+import com.vladsch.flexmark.util.ast.Document;
+
+/**
+ * A document parsed once per content hash and shared by everything that reads it: the renderer
+ * for each {@link RenderProfile}, the search and link indexers and the outline. The tree must be
+ * treated as read-only.
+ */
+public record ParsedDocument(String contentHash, int length, Document root, OutlineDto outline) {
+}
@@ -0,0 +1,19 @@
+package com.example.dok.markdown;
+
+/**
+ * HTML renderings of the same parsed document.
+ */
+public enum RenderProfile {
+    /**
+     * The editor preview and {@code /view}: raw HTML passes through and headings get anchor ids.
+     */
+    PREVIEW,
+    /**
+     * For content from untrusted sources: raw HTML blocks and inline HTML are escaped.
+     */
+    SAFE,
+    /**
+     * For printing and export: no heading anchors, and soft line breaks become spaces.
+     */
+    PRINT
+}
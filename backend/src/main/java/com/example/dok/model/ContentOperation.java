@@ -0,0 +1,43 @@
+package com.example.dok.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One text edit in a document's append-only operation log. Operations newer than
+ * {@link MarkdownContent#getVersion()} are replayed on top of the stored content when it is read.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_content_operation_file_version", columnList = "fileId, version"))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentOperation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "content_operation_seq")
+    @SequenceGenerator(name = "content_operation_seq", sequenceName = "content_operation_seq", allocationSize = 50)
+    private Long id;
+
+    private Long fileId;
+
+    /**
+     * File version produced by the patch this operation belongs to.
+     */
+    private long version;
+
+    /**
+     * Order of the operation within its patch.
+     */
+    private int opIndex;
+
+    private int startIndex;
+
+    private int deleteLength;
+
+    @Lob
+    @Column(length = 1000000)
+    private String insertText;
+}
@@ -0,0 +1,38 @@
+package com.example.dok.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One wiki-link edge: document {@code sourceId} contains {@code [[target]]}, which resolves to
+ * {@code targetPath}. The target may not exist, which makes the link broken.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_document_link_source", columnList = "sourceId"),
+        @Index(name = "idx_document_link_target_path", columnList = "targetPath")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentLink {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_link_seq")
+    @SequenceGenerator(name = "document_link_seq", sequenceName = "document_link_seq", allocationSize = 50)
+    private Long id;
+
+    private Long sourceId;
+
+    /**
+     * Link target as written in the document.
+     */
+    private String target;
+
+    /**
+     * Absolute path the target resolves to from the source's current location.
+     */
+    private String targetPath;
+}
@@ -0,0 +1,8 @@
+package com.example.dok.model;
+
+/**
+ * A document as read once for a response. The metadata carries the hash of exactly this content, so
+ * validators built from it describe the body. Holds the content, its rendered HTML, or both.
+ */
+public record DocumentSnapshot(FileMetadata metadata, String content, String html) {
+}
@@ -0,0 +1,8 @@
+package com.example.dok.model;
+
+/**
+ * One row of a subtree export: a {@link MarkdownFile} joined with its stored content, if any.
+ * Content of a file with {@code pendingOperations} still has its operation log to be replayed.
+ */
+public record FileExportRow(Long id, String path, boolean isDirectory, int pendingOperations, String content) {
+}
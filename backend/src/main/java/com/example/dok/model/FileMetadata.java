@@ -0,0 +1,15 @@
+package com.example.dok.model;
+
+import java.time.Instant;
+
+/**
+ * Read-only view of a {@link MarkdownFile} row that never touches the content column.
+ */
+public record FileMetadata(Long id, String path, boolean isDirectory, String contentHash, Instant lastModified,
+                           long version) {
+
+    public static FileMetadata of(MarkdownFile file) {
+        return new FileMetadata(file.getId(), file.getPath(), file.isDirectory(), file.getContentHash(),
+                file.getLastModified(), file.getVersion());
+    }
+}
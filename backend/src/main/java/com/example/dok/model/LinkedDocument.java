@@ -0,0 +1,25 @@
+package com.example.dok.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+/**
+ * Records the content hash a document's {@link DocumentLink} rows were extracted from, so startup
+ * only reparses documents that changed since.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinkedDocument {
+
+    @Id
+    private Long fileId;
+
+    @Column(length = 64)
+    private String contentHash;
+}
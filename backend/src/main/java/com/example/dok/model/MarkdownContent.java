@@ -0,0 +1,30 @@
+package com.example.dok.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Document body, stored apart from {@link MarkdownFile} so tree operations never read the LOB column.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkdownContent {
+
+    @Id
+    private Long fileId;
+
+    /**
+     * File version the stored content reflects; later versions live in the operation log.
+     */
+    @ColumnDefault("0")
+    private long version;
+
+    @Lob
+    @Column(length = 1000000)
+    private String content;
+}
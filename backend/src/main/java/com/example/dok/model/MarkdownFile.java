@@ -2,8 +2,18 @@ package com.example.dok.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
 
 @Entity
+@Table(
+        indexes = {
+                @Index(name = "idx_markdown_file_path", columnList = "path", unique = true),
+                @Index(name = "idx_markdown_file_parent_listing", columnList = "parentPath, isDirectory, name")
+        },
+        uniqueConstraints = @UniqueConstraint(name = "uk_markdown_file_parent_name", columnNames = {"parentId", "name"})
+)
 @Getter
 @Setter
 @Builder
@@ -11,17 +21,40 @@ import lombok.*;
 @AllArgsConstructor
 public class MarkdownFile {
 
+    /**
+     * Pooled sequence ids let Hibernate batch inserts; the sequence is the one {@code AUTO} used before.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "markdown_file_seq")
+    @SequenceGenerator(name = "markdown_file_seq", sequenceName = "markdown_file_seq", allocationSize = 50)
     private Long id;
 
     private String path;
 
+    private Long parentId;
+
+    private String parentPath;
+
     private String name;
 
     private boolean isDirectory;
 
-    @Lob
-    @Column(length = 1000000)
-    private String content;
+    @Column(length = 64)
+    private String contentHash;
+
+    private Instant lastModified;
+
+    /**
+     * Optimistic-lock version, incremented by every write to the row. Clients echo it back as the
+     * expected or base version of a write, and it is exposed as {@code X-Document-Version}.
+     */
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
+    /**
+     * Number of logged operations not yet compacted into the content row.
+     */
+    @ColumnDefault("0")
+    private int pendingOperations;
 }
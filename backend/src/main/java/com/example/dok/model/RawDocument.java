@@ -0,0 +1,10 @@
+package com.example.dok.model;
+
+import com.example.dok.storage.StoredBody;
+
+/**
+ * A document opened once for {@code /raw}: the metadata carries the version and hash of exactly the
+ * body that will be streamed, so the validators and {@code X-Document-Version} describe it.
+ */
+public record RawDocument(FileMetadata metadata, StoredBody body) {
+}
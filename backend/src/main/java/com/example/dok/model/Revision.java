@@ -0,0 +1,60 @@
+package com.example.dok.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * One revision of a document's content. Revisions are numbered per file from 1. Only keyframes hold
+ * the whole (deflated) text; a delta holds the compressed change from the previous revision and a
+ * reference repeats an earlier revision with the same content hash, so it stores nothing at all.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_revision_file_number", columnList = "fileId, number", unique = true),
+        @Index(name = "idx_revision_file_hash", columnList = "fileId, contentHash")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Revision {
+
+    public enum Kind {
+        KEYFRAME, DELTA, REFERENCE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "revision_seq")
+    @SequenceGenerator(name = "revision_seq", sequenceName = "revision_seq", allocationSize = 50)
+    private Long id;
+
+    private Long fileId;
+
+    private int number;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Kind kind;
+
+    /**
+     * Revision a {@link Kind#DELTA} applies to or a {@link Kind#REFERENCE} repeats.
+     */
+    private Integer baseNumber;
+
+    @Column(length = 64)
+    private String contentHash;
+
+    /**
+     * Length of the revision's text in characters.
+     */
+    private int length;
+
+    private Instant createdAt;
+
+    @Lob
+    @Column(length = 10000000)
+    private byte[] data;
+}
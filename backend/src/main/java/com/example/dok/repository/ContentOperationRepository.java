@@ -0,0 +1,22 @@
+package com.example.dok.repository;
+
+import com.example.dok.model.ContentOperation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ContentOperationRepository extends JpaRepository<ContentOperation, Long> {
+
+    List<ContentOperation> findByFileIdAndVersionGreaterThanOrderByVersionAscOpIndexAsc(Long fileId, long version);
+
+    @Modifying
+    @Query("DELETE FROM ContentOperation o WHERE o.fileId = ?1")
+    int deleteByFileId(Long fileId);
+
+    @Modifying
+    @Query("DELETE FROM ContentOperation o WHERE o.fileId IN " +
+            "(SELECT f.id FROM MarkdownFile f WHERE f.path = ?1 OR f.path LIKE ?2 ESCAPE '\\')")
+    int deleteSubtree(String path, String descendantsPattern);
+}
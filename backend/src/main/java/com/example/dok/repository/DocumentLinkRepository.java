@@ -0,0 +1,15 @@
+package com.example.dok.repository;
+
+import com.example.dok.model.DocumentLink;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+
+public interface DocumentLinkRepository extends JpaRepository<DocumentLink, Long> {
+
+    @Modifying
+    @Query("DELETE FROM DocumentLink l WHERE l.sourceId IN ?1")
+    int deleteBySourceIds(Collection<Long> sourceIds);
+}
@@ -0,0 +1,15 @@
+package com.example.dok.repository;
+
+import com.example.dok.model.LinkedDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+
+public interface LinkedDocumentRepository extends JpaRepository<LinkedDocument, Long> {
+
+    @Modifying
+    @Query("DELETE FROM LinkedDocument d WHERE d.fileId IN ?1")
+    int deleteByFileIds(Collection<Long> fileIds);
+}
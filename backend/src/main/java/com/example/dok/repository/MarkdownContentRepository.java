@@ -0,0 +1,18 @@
+package com.example.dok.repository;
+
+import com.example.dok.model.MarkdownContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface MarkdownContentRepository extends JpaRepository<MarkdownContent, Long> {
+
+    @Modifying
+    @Query("UPDATE MarkdownContent c SET c.content = ?2, c.version = ?3 WHERE c.fileId = ?1")
+    int updateContent(Long fileId, String content, long version);
+
+    @Modifying
+    @Query("DELETE FROM MarkdownContent c WHERE c.fileId IN " +
+            "(SELECT f.id FROM MarkdownFile f WHERE f.path = ?1 OR f.path LIKE ?2 ESCAPE '\\')")
+    int deleteSubtree(String path, String descendantsPattern);
+}
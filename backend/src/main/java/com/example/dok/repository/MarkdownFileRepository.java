@@ -1,26 +1,75 @@
 package com.example.dok.repository;
 
+import com.example.dok.model.FileExportRow;
+import com.example.dok.model.FileMetadata;
 import com.example.dok.model.MarkdownFile;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MarkdownFileRepository extends JpaRepository<MarkdownFile, Long> {
 
     Optional<MarkdownFile> findByPath(String path);
 
-    List<MarkdownFile> findByPathStartingWith(String path);
+    @Query("SELECT new com.example.dok.model.FileMetadata(f.id, f.path, f.isDirectory, f.contentHash, f.lastModified, f.version) " +
+            "FROM MarkdownFile f WHERE f.path = ?1")
+    Optional<FileMetadata> findMetadataByPath(String path);
 
-    boolean existsByPath(String path);
+    @Query("SELECT new com.example.dok.model.FileMetadata(f.id, f.path, f.isDirectory, f.contentHash, f.lastModified, f.version) " +
+            "FROM MarkdownFile f WHERE f.isDirectory = false")
+    List<FileMetadata> findAllDocumentMetadata();
+
+    @Query("SELECT new com.example.dok.model.FileMetadata(f.id, f.path, f.isDirectory, f.contentHash, f.lastModified, f.version) " +
+            "FROM MarkdownFile f")
+    List<FileMetadata> findAllMetadata();
+
+    /**
+     * Metadata of the file at {@code path} and, for a directory, of everything below it.
+     */
+    @Query("SELECT new com.example.dok.model.FileMetadata(f.id, f.path, f.isDirectory, f.contentHash, f.lastModified, f.version) " +
+            "FROM MarkdownFile f WHERE f.path = ?1 OR f.path LIKE ?2 ESCAPE '\\'")
+    List<FileMetadata> findSubtreeMetadata(String path, String descendantsPattern);
+
+    /**
+     * Cursor over a subtree with its content, ordered so parents precede their children. Must be
+     * consumed and closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.dok.model.FileExportRow(f.id, f.path, f.isDirectory, f.pendingOperations, c.content) " +
+            "FROM MarkdownFile f LEFT JOIN MarkdownContent c ON c.fileId = f.id " +
+            "WHERE f.path LIKE ?1 ESCAPE '\\' ORDER BY f.path")
+    Stream<FileExportRow> streamDescendants(String descendantsPattern);
 
     @Transactional
     void deleteByPath(String path);
 
-    @Transactional
-    void deleteByPathStartingWith(String path);
+    /**
+     * Rewrites the path prefix of every descendant of a moved directory in a single statement.
+     *
+     * @param descendantsPattern LIKE pattern matching the old descendants, see {@code MarkdownService}
+     * @param newPrefix          new path of the moved directory
+     * @param suffixStart        1-based position just past the old directory path
+     */
+    @Modifying
+    @Query("UPDATE MarkdownFile f SET f.path = CONCAT(?2, SUBSTRING(f.path, ?3)), " +
+            "f.parentPath = CONCAT(?2, SUBSTRING(f.parentPath, ?3)), f.version = f.version + 1 " +
+            "WHERE f.path LIKE ?1 ESCAPE '\\'")
+    int rebaseDescendants(String descendantsPattern, String newPrefix, int suffixStart);
+
+    @Modifying
+    @Query("DELETE FROM MarkdownFile f WHERE f.path LIKE ?1 ESCAPE '\\'")
+    int deleteDescendants(String descendantsPattern);
 
     @Query(value = "SELECT * FROM MARKDOWN_FILE WHERE REGEXP_LIKE(path, ?1)", nativeQuery = true)
     List<MarkdownFile> findByPathRegex(String regex);
@@ -0,0 +1,47 @@
+package com.example.dok.repository;
+
+import com.example.dok.dto.RevisionDto;
+import com.example.dok.model.Revision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RevisionRepository extends JpaRepository<Revision, Long> {
+
+    @Query("SELECT new com.example.dok.dto.RevisionDto(r.number, r.contentHash, r.length, r.createdAt) " +
+            "FROM Revision r WHERE r.fileId = ?1 ORDER BY r.number DESC")
+    List<RevisionDto> findSummaries(Long fileId);
+
+    Optional<Revision> findFirstByFileIdOrderByNumberDesc(Long fileId);
+
+    /**
+     * Number of the nearest keyframe a reconstruction of {@code number} can start from.
+     */
+    @Query("SELECT MAX(r.number) FROM Revision r " +
+            "WHERE r.fileId = ?1 AND r.number <= ?2 AND r.kind = ?3")
+    Integer findNumberOfKindAtOrBefore(Long fileId, int number, Revision.Kind kind);
+
+    default Integer findKeyframeAtOrBefore(Long fileId, int number) {
+        return findNumberOfKindAtOrBefore(fileId, number, Revision.Kind.KEYFRAME);
+    }
+
+    /**
+     * First stored (non-reference) revision with the given content, to deduplicate repeated snapshots.
+     */
+    @Query("SELECT MIN(r.number) FROM Revision r " +
+            "WHERE r.fileId = ?1 AND r.contentHash = ?2 AND r.kind <> ?3")
+    Integer findFirstNotOfKind(Long fileId, String contentHash, Revision.Kind kind);
+
+    default Integer findFirstWithContent(Long fileId, String contentHash) {
+        return findFirstNotOfKind(fileId, contentHash, Revision.Kind.REFERENCE);
+    }
+
+    List<Revision> findByFileIdAndNumberBetweenOrderByNumberAsc(Long fileId, int from, int to);
+
+    @Modifying
+    @Query("DELETE FROM Revision r WHERE NOT EXISTS (SELECT f.id FROM MarkdownFile f WHERE f.id = r.fileId)")
+    int deleteOrphans();
+}
@@ -0,0 +1,141 @@
+package com.example.dok.revisions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Line-based unified diff. Common leading and trailing lines are skipped first, so the quadratic
+ * longest-common-subsequence table only spans the changed region; regions too large for the table
+ * are reported as a plain replacement.
+ */
+final class LineDiff {
+
+    private static final long MAX_TABLE_CELLS = 4_000_000;
+
+    private LineDiff() {
+    }
+
+    private record Line(char op, String text) {
+    }
+
+    static String unified(String fromLabel, String toLabel, String from, String to, int context) {
+        List<Line> lines = diff(split(from), split(to));
+        StringBuilder out = new StringBuilder();
+        out.append("--- ").append(fromLabel).append('\n');
+        out.append("+++ ").append(toLabel).append('\n');
+
+        int n = lines.size();
+        int[] fromLine = new int[n + 1];
+        int[] toLine = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            char op = lines.get(i).op();
+            fromLine[i + 1] = fromLine[i] + (op != '+' ? 1 : 0);
+            toLine[i + 1] = toLine[i] + (op != '-' ? 1 : 0);
+        }
+
+        int i = 0;
+        while (i < n) {
+            if (lines.get(i).op() == ' ') {
+                i++;
+                continue;
+            }
+            int start = Math.max(0, i - context);
+            int last = i;
+            for (int j = i + 1; j < n; j++) {
+                if (lines.get(j).op() != ' ') {
+                    if (j - last - 1 > 2 * context) {
+                        break;
+                    }
+                    last = j;
+                }
+            }
+            int end = Math.min(n, last + 1 + context);
+            out.append("@@ -").append(range(fromLine[start], fromLine[end] - fromLine[start]))
+                    .append(" +").append(range(toLine[start], toLine[end] - toLine[start])).append(" @@\n");
+            for (int k = start; k < end; k++) {
+                out.append(lines.get(k).op()).append(lines.get(k).text()).append('\n');
+            }
+            i = end;
+        }
+        return out.toString();
+    }
+
+    private static String range(int startIndex, int count) {
+        if (count == 0) {
+            return startIndex + ",0";
+        }
+        return count == 1 ? Integer.toString(startIndex + 1) : (startIndex + 1) + "," + count;
+    }
+
+    private static List<String> split(String text) {
+        if (text.isEmpty()) {
+            return List.of();
+        }
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split("\n", -1)));
+        if (text.endsWith("\n")) {
+            lines.remove(lines.size() - 1);
+        }
+        return lines;
+    }
+
+    private static List<Line> diff(List<String> a, List<String> b) {
+        int prefix = 0;
+        while (prefix < a.size() && prefix < b.size() && a.get(prefix).equals(b.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.size() - prefix && suffix < b.size() - prefix
+                && a.get(a.size() - 1 - suffix).equals(b.get(b.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        List<Line> lines = new ArrayList<>(a.size() + b.size() - prefix - suffix);
+        for (int i = 0; i < prefix; i++) {
+            lines.add(new Line(' ', a.get(i)));
+        }
+        List<String> middleA = a.subList(prefix, a.size() - suffix);
+        List<String> middleB = b.subList(prefix, b.size() - suffix);
+        if ((long) middleA.size() * middleB.size() > MAX_TABLE_CELLS) {
+            middleA.forEach(line -> lines.add(new Line('-', line)));
+            middleB.forEach(line -> lines.add(new Line('+', line)));
+        } else {
+            lcs(middleA, middleB, lines);
+        }
+        for (int i = a.size() - suffix; i < a.size(); i++) {
+            lines.add(new Line(' ', a.get(i)));
+        }
+        return lines;
+    }
+
+    private static void lcs(List<String> a, List<String> b, List<Line> out) {
+        int n = a.size();
+        int m = b.size();
+        int[][] common = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                common[i][j] = a.get(i).equals(b.get(j))
+                        ? common[i + 1][j + 1] + 1
+                        : Math.max(common[i + 1][j], common[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            if (a.get(i).equals(b.get(j))) {
+                out.add(new Line(' ', a.get(i++)));
+                j++;
+            } else if (common[i + 1][j] >= common[i][j + 1]) {
+                out.add(new Line('-', a.get(i++)));
+            } else {
+                out.add(new Line('+', b.get(j++)));
+            }
+        }
+        while (i < n) {
+            out.add(new Line('-', a.get(i++)));
+        }
+        while (j < m) {
+            out.add(new Line('+', b.get(j++)));
+        }
+    }
+}
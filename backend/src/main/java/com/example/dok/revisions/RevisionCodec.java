@@ -0,0 +1,92 @@
+package com.example.dok.revisions;
+
+import com.example.dok.dto.TextOperationDto;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary encoding of revision payloads. Keyframes are the deflated UTF-8 text; deltas are a single
+ * replace operation (the span between the common prefix and suffix of two consecutive revisions),
+ * also deflated. Autosaves usually change one region, so one operation covers them exactly.
+ */
+final class RevisionCodec {
+
+    private RevisionCodec() {
+    }
+
+    static byte[] encodeKeyframe(String content) {
+        return deflate(out -> out.write(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String decodeKeyframe(byte[] data) {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The single operation that turns {@code from} into {@code to}.
+     */
+    static TextOperationDto delta(String from, String to) {
+        int maxPrefix = Math.min(from.length(), to.length());
+        int prefix = 0;
+        while (prefix < maxPrefix && from.charAt(prefix) == to.charAt(prefix)) {
+            prefix++;
+        }
+        // Keep surrogate pairs whole, since the changed text is stored as UTF-8.
+        if (prefix > 0 && Character.isHighSurrogate(from.charAt(prefix - 1))) {
+            prefix--;
+        }
+        int maxSuffix = maxPrefix - prefix;
+        int suffix = 0;
+        while (suffix < maxSuffix
+                && from.charAt(from.length() - 1 - suffix) == to.charAt(to.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(to.charAt(to.length() - suffix))) {
+            suffix--;
+        }
+        return new TextOperationDto(prefix, from.length() - prefix - suffix, to.substring(prefix, to.length() - suffix));
+    }
+
+    static byte[] encodeDelta(TextOperationDto delta) {
+        return deflate(out -> {
+            byte[] text = delta.text().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(delta.position());
+            out.writeInt(delta.deleteCount());
+            out.writeInt(text.length);
+            out.write(text);
+        });
+    }
+
+    static TextOperationDto decodeDelta(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            int position = in.readInt();
+            int deleteCount = in.readInt();
+            byte[] text = in.readNBytes(in.readInt());
+            return new TextOperationDto(position, deleteCount, new String(text, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] deflate(PayloadWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
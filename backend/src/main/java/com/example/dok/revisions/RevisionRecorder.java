@@ -0,0 +1,83 @@
+package com.example.dok.revisions;
+
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.service.ContentHash;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a revision for every committed create or save. Like the search indexer it works on a
+ * single thread, which keeps revisions of a file in commit order and off the save path.
+ */
+@Component
+public class RevisionRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(RevisionRecorder.class);
+
+    private final RevisionService revisionService;
+    private final ExecutorService recordingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "revision-recorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RevisionRecorder(RevisionService revisionService) {
+        this.revisionService = revisionService;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChanged(FileChangedEvent event) {
+        recordingExecutor.execute(() -> apply(event));
+    }
+
+    /**
+     * Records {@code content}, which was never stored, as the newest revision of {@code fileId}, so that
+     * buffered saves which lost a conflict can still be recovered from the history.
+     */
+    public void keep(Long fileId, String content, String contentHash) {
+        recordingExecutor.execute(() -> {
+            try {
+                revisionService.record(fileId, content, contentHash);
+            } catch (RuntimeException e) {
+                log.warn("Failed to keep conflicting content of file {}", fileId, e);
+            }
+        });
+    }
+
+    private void apply(FileChangedEvent event) {
+        if (event.remote()) {
+            // The node that made the change records the revision; only its cached head is now stale here.
+            revisionService.forgetHead(event.fileId());
+            return;
+        }
+        try {
+            switch (event.type()) {
+                case CREATED, UPDATED -> {
+                    if (!event.directory() && event.content() != null) {
+                        String hash = event.contentHash() != null ? event.contentHash() : ContentHash.of(event.content());
+                        revisionService.record(event.fileId(), event.content(), hash);
+                    }
+                }
+                case DELETED -> revisionService.deleteOrphans();
+                case MOVED -> {
+                    // Revisions belong to the file id, which a move keeps.
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to record revision of {}", event.path(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        recordingExecutor.shutdown();
+        recordingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
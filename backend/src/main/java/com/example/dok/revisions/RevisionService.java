@@ -0,0 +1,212 @@
+package com.example.dok.revisions;
+
+import com.example.dok.dto.RevisionDto;
+import com.example.dok.dto.TextOperationDto;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.model.Revision;
+import com.example.dok.repository.RevisionRepository;
+import com.example.dok.service.MarkdownService;
+import com.example.dok.service.TextOperations;
+import com.example.dok.tree.TreeIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Content-addressed revision history. A save whose content hash equals the latest revision is a
+ * no-op; one that repeats any earlier revision is stored as a reference to it. Otherwise the change
+ * is stored as a compressed delta from the previous revision, with a full keyframe every
+ * {@code dok.revisions.keyframe-interval} revisions or when the delta is not much smaller than the
+ * text. Reading a revision therefore replays at most one keyframe interval, starting from the
+ * nearest revision already in the reconstruction cache.
+ */
+@Service
+public class RevisionService {
+
+    private static final int DIFF_CONTEXT_LINES = 3;
+
+    private final RevisionRepository repository;
+    private final TreeIndex index;
+    private final TransactionTemplate transactionTemplate;
+    private final int keyframeInterval;
+    /**
+     * Latest revision per file, so recording a save does not have to reconstruct it first.
+     */
+    private final Cache<Long, Head> heads;
+    private final Cache<RevisionKey, String> contents;
+
+    public RevisionService(RevisionRepository repository, TreeIndex index,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${dok.revisions.keyframe-interval:32}") int keyframeInterval,
+                           @Value("${dok.revisions.cache-max-chars:16777216}") long cacheMaxChars) {
+        this.repository = repository;
+        this.index = index;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.heads = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxChars)
+                .weigher((Long fileId, Head head) -> head.content().length() + 1)
+                .build();
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxChars)
+                .weigher((RevisionKey key, String content) -> content.length() + 1)
+                .build();
+    }
+
+    private record Head(int number, String contentHash, String content, int keyframeNumber) {
+    }
+
+    private record RevisionKey(long fileId, int number) {
+    }
+
+    /**
+     * Records {@code content} as the newest revision of {@code fileId} unless it is already the newest.
+     * Callers must not record revisions of the same file concurrently.
+     */
+    public void record(Long fileId, String content, String contentHash) {
+        Head head = head(fileId);
+        if (head != null && head.contentHash().equals(contentHash)) {
+            return;
+        }
+        int number = head == null ? 1 : head.number() + 1;
+        Revision.RevisionBuilder revision = Revision.builder()
+                .fileId(fileId)
+                .number(number)
+                .contentHash(contentHash)
+                .length(content.length())
+                .createdAt(Instant.now());
+        int keyframeNumber = head == null ? number : head.keyframeNumber();
+
+        Integer duplicate = head == null ? null : repository.findFirstWithContent(fileId, contentHash);
+        TextOperationDto delta = head == null ? null : RevisionCodec.delta(head.content(), content);
+        if (duplicate != null) {
+            revision.kind(Revision.Kind.REFERENCE).baseNumber(duplicate);
+        } else if (delta == null || number - keyframeNumber >= keyframeInterval
+                || delta.text().length() > content.length() / 2) {
+            revision.kind(Revision.Kind.KEYFRAME).data(RevisionCodec.encodeKeyframe(content));
+            keyframeNumber = number;
+        } else {
+            revision.kind(Revision.Kind.DELTA).baseNumber(head.number()).data(RevisionCodec.encodeDelta(delta));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.save(revision.build()));
+        } catch (RuntimeException e) {
+            heads.invalidate(fileId);
+            throw e;
+        }
+        heads.put(fileId, new Head(number, contentHash, content, keyframeNumber));
+        contents.put(new RevisionKey(fileId, number), content);
+    }
+
+    /**
+     * Drops the cached newest revision of a file after another node recorded a newer one.
+     */
+    public void forgetHead(Long fileId) {
+        heads.invalidate(fileId);
+    }
+
+    /**
+     * Drops the history of documents that no longer exist.
+     */
+    public void deleteOrphans() {
+        transactionTemplate.executeWithoutResult(status -> repository.deleteOrphans());
+    }
+
+    public List<RevisionDto> list(String path) {
+        return repository.findSummaries(findDocument(path).id());
+    }
+
+    /**
+     * @throws FileNotFoundException if there is no such document or revision
+     */
+    public String content(String path, int number) {
+        FileMetadata document = findDocument(path);
+        return reconstruct(document.id(), number)
+                .orElseThrow(() -> new FileNotFoundException(document.path() + "@" + number));
+    }
+
+    /**
+     * Unified diff from revision {@code from} to revision {@code to} of a document.
+     *
+     * @throws FileNotFoundException if there is no such document or either revision is missing
+     */
+    public String diff(String path, int from, int to) {
+        FileMetadata document = findDocument(path);
+        String fromContent = reconstruct(document.id(), from)
+                .orElseThrow(() -> new FileNotFoundException(document.path() + "@" + from));
+        String toContent = reconstruct(document.id(), to)
+                .orElseThrow(() -> new FileNotFoundException(document.path() + "@" + to));
+        return LineDiff.unified(document.path() + "@" + from, document.path() + "@" + to,
+                fromContent, toContent, DIFF_CONTEXT_LINES);
+    }
+
+    private FileMetadata findDocument(String path) {
+        String normalizedPath = MarkdownService.normalizePath(path);
+        return index.find(normalizedPath)
+                .filter(metadata -> !metadata.isDirectory())
+                .orElseThrow(() -> new FileNotFoundException(normalizedPath));
+    }
+
+    private Head head(Long fileId) {
+        Head head = heads.getIfPresent(fileId);
+        if (head != null) {
+            return head;
+        }
+        Optional<Revision> latest = repository.findFirstByFileIdOrderByNumberDesc(fileId);
+        if (latest.isEmpty()) {
+            return null;
+        }
+        int number = latest.get().getNumber();
+        String content = reconstruct(fileId, number).orElseThrow();
+        Integer keyframeNumber = repository.findKeyframeAtOrBefore(fileId, number);
+        head = new Head(number, latest.get().getContentHash(), content, keyframeNumber != null ? keyframeNumber : number);
+        heads.put(fileId, head);
+        return head;
+    }
+
+    Optional<String> reconstruct(long fileId, int number) {
+        String cached = contents.getIfPresent(new RevisionKey(fileId, number));
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Integer keyframe = repository.findKeyframeAtOrBefore(fileId, number);
+        if (keyframe == null) {
+            return Optional.empty();
+        }
+
+        // Start from the closest revision already reconstructed, if it is past the keyframe.
+        int start = keyframe;
+        String content = null;
+        for (int candidate = number - 1; candidate > keyframe; candidate--) {
+            String known = contents.getIfPresent(new RevisionKey(fileId, candidate));
+            if (known != null) {
+                start = candidate + 1;
+                content = known;
+                break;
+            }
+        }
+
+        List<Revision> chain = repository.findByFileIdAndNumberBetweenOrderByNumberAsc(fileId, start, number);
+        if (chain.isEmpty() || chain.get(chain.size() - 1).getNumber() != number) {
+            return Optional.empty();
+        }
+        for (Revision revision : chain) {
+            content = switch (revision.getKind()) {
+                case KEYFRAME -> RevisionCodec.decodeKeyframe(revision.getData());
+                case DELTA -> TextOperations.apply(content, List.of(RevisionCodec.decodeDelta(revision.getData())));
+                case REFERENCE -> reconstruct(fileId, revision.getBaseNumber()).orElseThrow();
+            };
+        }
+        contents.put(new RevisionKey(fileId, number), content);
+        return Optional.of(content);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.dok.search;
+
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.IndentedCodeBlock;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.ext.wikilink.WikiLink;
+import com.vladsch.flexmark.util.ast.ContentNode;
+import com.vladsch.flexmark.util.ast.Node;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a parsed flexmark document into {@link IndexedDocument} postings. Headings and wiki-link
+ * targets are weighted above body text so matches in them rank higher.
+ */
+public final class DocumentTextExtractor {
+
+    static final float BODY_WEIGHT = 1.0f;
+    static final float LINK_WEIGHT = 2.0f;
+    static final float HEADING_WEIGHT = 3.0f;
+
+    private DocumentTextExtractor() {
+    }
+
+    public static IndexedDocument extract(long fileId, String path, String contentHash, Node document) {
+        Accumulator accumulator = new Accumulator();
+        for (Node node : document.getDescendants()) {
+            if ((node instanceof FencedCodeBlock || node instanceof IndentedCodeBlock)
+                    && node instanceof ContentNode code) {
+                accumulator.add(code.getContentChars(), BODY_WEIGHT);
+            } else if (node instanceof WikiLink wikiLink) {
+                accumulator.add(wikiLink.getLink(), LINK_WEIGHT);
+            } else if (node instanceof Text
+                    && node.getAncestorOfType(FencedCodeBlock.class, IndentedCodeBlock.class) == null) {
+                float weight = node.getAncestorOfType(Heading.class) != null ? HEADING_WEIGHT : BODY_WEIGHT;
+                accumulator.add(node.getChars(), weight);
+            }
+        }
+        return accumulator.build(fileId, path, contentHash);
+    }
+
+    private static final class Accumulator {
+        private final Map<String, MutableOccurrences> terms = new HashMap<>();
+        private int position;
+        private float length;
+
+        void add(CharSequence text, float weight) {
+            List<Tokenizer.Token> tokens = Tokenizer.tokenize(text);
+            for (Tokenizer.Token token : tokens) {
+                terms.computeIfAbsent(token.term(), term -> new MutableOccurrences()).add(weight, position++);
+                length += weight;
+            }
+            // Keep phrases from matching across separate text runs.
+            position++;
+        }
+
+        IndexedDocument build(long fileId, String path, String contentHash) {
+            Map<String, IndexedDocument.TermOccurrences> frozen = new HashMap<>(terms.size() * 2);
+            terms.forEach((term, occurrences) -> frozen.put(term, occurrences.freeze()));
+            return new IndexedDocument(fileId, path, contentHash, Math.max(1, Math.round(length)), frozen);
+        }
+    }
+
+    private static final class MutableOccurrences {
+        private float weight;
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(float tokenWeight, int position) {
+            weight += tokenWeight;
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        IndexedDocument.TermOccurrences freeze() {
+            return new IndexedDocument.TermOccurrences(weight, Arrays.copyOf(positions, size));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.dok.search;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Per-document postings as extracted from the AST. Instances are immutable and are also the unit
+ * written to the on-disk snapshot, so restoring a document never requires reparsing it.
+ *
+ * @param length total weighted token count, used for BM25 length normalization
+ * @param terms  term to its weighted frequency and sorted token positions
+ */
+public record IndexedDocument(long fileId, String path, String contentHash, int length,
+                              Map<String, TermOccurrences> terms) implements Serializable {
+
+    public record TermOccurrences(float weight, int[] positions) implements Serializable {
+    }
+
+    public IndexedDocument withPath(String newPath) {
+        return new IndexedDocument(fileId, newPath, contentHash, length, terms);
+    }
+}
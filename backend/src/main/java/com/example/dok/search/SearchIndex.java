@@ -0,0 +1,223 @@
+package com.example.dok.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over document text, ranked with BM25. Documents are keyed by file id,
+ * so moves only rewrite the stored path. All access is guarded by a read/write lock.
+ */
+@Component
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Long, IndexedDocument.TermOccurrences>> postings = new TreeMap<>();
+    private final Map<Long, IndexedDocument> documents = new HashMap<>();
+    private final NavigableMap<String, Long> idsByPath = new TreeMap<>();
+    private long totalLength;
+
+    public record SearchHit(long fileId, String path, double score) {
+    }
+
+    public void put(IndexedDocument document) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.fileId());
+            documents.put(document.fileId(), document);
+            idsByPath.put(document.path(), document.fileId());
+            totalLength += document.length();
+            document.terms().forEach((term, occurrences) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(document.fileId(), occurrences));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSubtree(String path) {
+        lock.writeLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(subtree(path).values());
+            ids.forEach(this::removeInternal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void move(String oldPath, String newPath) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Long> moved = new LinkedHashMap<>(subtree(oldPath));
+            moved.keySet().forEach(idsByPath::remove);
+            moved.forEach((path, id) -> {
+                String rebased = newPath + path.substring(oldPath.length());
+                documents.computeIfPresent(id, (key, document) -> document.withPath(rebased));
+                idsByPath.put(rebased, id);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<IndexedDocument> get(long fileId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(documents.get(fileId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<IndexedDocument> documents() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(documents.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<SearchHit> search(SearchQuery query, int limit) {
+        lock.readLock().lock();
+        try {
+            if (query.isEmpty() || documents.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documents.size();
+            Map<Long, Double> scores = null;
+            for (SearchQuery.Clause clause : query.clauses()) {
+                Map<Long, Double> clauseScores = score(clause, averageLength);
+                if (scores == null) {
+                    scores = clauseScores;
+                } else {
+                    scores.keySet().retainAll(clauseScores.keySet());
+                    scores.replaceAll((id, score) -> score + clauseScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(entry -> new SearchHit(entry.getKey(), documents.get(entry.getKey()).path(), entry.getValue()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> score(SearchQuery.Clause clause, double averageLength) {
+        Map<Long, Double> scores = new HashMap<>();
+        if (clause instanceof SearchQuery.TermClause term) {
+            addTermScores(scores, postings.get(term.term()), averageLength);
+        } else if (clause instanceof SearchQuery.PrefixClause prefix) {
+            postings.subMap(prefix.prefix(), true, prefix.prefix() + Character.MAX_VALUE, true).values().stream()
+                    .limit(MAX_PREFIX_EXPANSIONS)
+                    .forEach(termPostings -> addTermScores(scores, termPostings, averageLength));
+        } else if (clause instanceof SearchQuery.PhraseClause phrase) {
+            scorePhrase(scores, phrase.terms(), averageLength);
+        }
+        return scores;
+    }
+
+    private void addTermScores(Map<Long, Double> scores, Map<Long, IndexedDocument.TermOccurrences> termPostings,
+                               double averageLength) {
+        if (termPostings == null) {
+            return;
+        }
+        int documentFrequency = termPostings.size();
+        termPostings.forEach((id, occurrences) ->
+                scores.merge(id, bm25(occurrences.weight(), documentFrequency, documents.get(id).length(), averageLength), Double::sum));
+    }
+
+    private void scorePhrase(Map<Long, Double> scores, List<String> terms, double averageLength) {
+        List<Map<Long, IndexedDocument.TermOccurrences>> termPostings = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Map<Long, IndexedDocument.TermOccurrences> posting = postings.get(term);
+            if (posting == null) {
+                return;
+            }
+            termPostings.add(posting);
+        }
+        for (Map.Entry<Long, IndexedDocument.TermOccurrences> first : termPostings.get(0).entrySet()) {
+            long id = first.getKey();
+            int matches = 0;
+            for (int start : first.getValue().positions()) {
+                if (phraseContinuesAt(termPostings, id, start)) {
+                    matches++;
+                }
+            }
+            if (matches > 0) {
+                int length = documents.get(id).length();
+                double score = 0;
+                for (Map<Long, IndexedDocument.TermOccurrences> posting : termPostings) {
+                    score += bm25(matches, posting.size(), length, averageLength);
+                }
+                scores.put(id, score);
+            }
+        }
+    }
+
+    private static boolean phraseContinuesAt(List<Map<Long, IndexedDocument.TermOccurrences>> termPostings, long id, int start) {
+        for (int offset = 1; offset < termPostings.size(); offset++) {
+            IndexedDocument.TermOccurrences occurrences = termPostings.get(offset).get(id);
+            if (occurrences == null || Arrays.binarySearch(occurrences.positions(), start + offset) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double bm25(double termFrequency, int documentFrequency, int length, double averageLength) {
+        double idf = Math.log(1 + (documents.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        double norm = K1 * (1 - B + B * length / averageLength);
+        return idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+    }
+
+    private void removeInternal(long fileId) {
+        IndexedDocument existing = documents.remove(fileId);
+        if (existing == null) {
+            return;
+        }
+        idsByPath.remove(existing.path(), fileId);
+        totalLength -= existing.length();
+        existing.terms().keySet().forEach(term -> {
+            Map<Long, IndexedDocument.TermOccurrences> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(fileId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        });
+    }
+
+    /**
+     * Entries at {@code path} or below it; {@code '0'} is the character after {@code '/'}.
+     */
+    private Map<String, Long> subtree(String path) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        Long self = idsByPath.get(path);
+        if (self != null) {
+            result.put(path, self);
+        }
+        String prefix = path.endsWith("/") ? path : path + "/";
+        result.putAll(idsByPath.subMap(prefix, true, prefix.substring(0, prefix.length() - 1) + "0", false));
+        return result;
+    }
+}
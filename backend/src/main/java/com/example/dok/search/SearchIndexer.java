@@ -0,0 +1,161 @@
+package com.example.dok.search;
+
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.markdown.DocumentPipeline;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.service.ContentHash;
+import com.example.dok.service.DokMetrics;
+import com.example.dok.storage.ContentStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link SearchIndex} in sync with the database. On startup the last snapshot is
+ * restored and only documents whose content hash changed are reparsed, in parallel. Afterwards
+ * every committed {@link FileChangedEvent} is applied incrementally on a single indexing thread,
+ * which keeps updates ordered and off the request thread.
+ */
+@Component
+public class SearchIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexer.class);
+    private static final int SNAPSHOT_FORMAT = 1;
+    private static final String SNAPSHOT_FILTER = "com.example.dok.search.*;java.util.*;java.lang.*;[I;!*";
+
+    private final SearchIndex searchIndex;
+    private final MarkdownFileRepository repository;
+    private final ContentStore contentStore;
+    private final DocumentPipeline documentPipeline;
+    private final DokMetrics metrics;
+    private final Path snapshotPath;
+    private final ExecutorService indexingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SearchIndexer(SearchIndex searchIndex, MarkdownFileRepository repository,
+                         ContentStore contentStore, DocumentPipeline documentPipeline, DokMetrics metrics,
+                         @Value("${dok.search.snapshot-path:./dok-search.snapshot}") String snapshotPath) {
+        this.searchIndex = searchIndex;
+        this.repository = repository;
+        this.contentStore = contentStore;
+        this.documentPipeline = documentPipeline;
+        this.metrics = metrics;
+        this.snapshotPath = Path.of(snapshotPath);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        indexingExecutor.execute(this::rebuild);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChanged(FileChangedEvent event) {
+        indexingExecutor.execute(() -> apply(event));
+    }
+
+    private void apply(FileChangedEvent event) {
+        try {
+            switch (event.type()) {
+                case CREATED, UPDATED -> {
+                    if (!event.directory() && event.content() != null) {
+                        String hash = event.contentHash() != null ? event.contentHash() : ContentHash.of(event.content());
+                        searchIndex.put(index(event.fileId(), event.path(), hash, event.content()));
+                    }
+                }
+                case MOVED -> searchIndex.move(event.previousPath(), event.path());
+                case DELETED -> searchIndex.removeSubtree(event.path());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to update search index for {}", event.path(), e);
+        }
+    }
+
+    void rebuild() {
+        long started = System.nanoTime();
+        Map<Long, IndexedDocument> snapshot = readSnapshot();
+        List<FileMetadata> stale = new ArrayList<>();
+        for (FileMetadata metadata : repository.findAllDocumentMetadata()) {
+            IndexedDocument cached = snapshot.get(metadata.id());
+            if (cached != null && metadata.contentHash() != null && metadata.contentHash().equals(cached.contentHash())) {
+                searchIndex.put(cached.withPath(metadata.path()));
+            } else {
+                stale.add(metadata);
+            }
+        }
+        stale.parallelStream().forEach(metadata -> contentStore.read(metadata.id(), metadata.path()).ifPresent(content -> {
+            String hash = metadata.contentHash() != null ? metadata.contentHash() : ContentHash.of(content);
+            searchIndex.put(index(metadata.id(), metadata.path(), hash, content));
+        }));
+        long elapsed = System.nanoTime() - started;
+        metrics.recordStartupPhase("search-index", elapsed);
+        log.info("Search index ready: {} documents ({} restored, {} reindexed) in {} ms",
+                searchIndex.size(), searchIndex.size() - stale.size(), stale.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+        writeSnapshot();
+    }
+
+    private IndexedDocument index(long fileId, String path, String contentHash, String content) {
+        return DocumentTextExtractor.extract(fileId, path, contentHash,
+                documentPipeline.parse(contentHash, content).root());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        indexingExecutor.shutdown();
+        if (indexingExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            writeSnapshot();
+        }
+    }
+
+    private Map<Long, IndexedDocument> readSnapshot() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return Map.of();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            in.setObjectInputFilter(ObjectInputFilter.Config.createFilter(SNAPSHOT_FILTER));
+            if (in.readInt() != SNAPSHOT_FORMAT) {
+                return Map.of();
+            }
+            @SuppressWarnings("unchecked")
+            List<IndexedDocument> documents = (List<IndexedDocument>) in.readObject();
+            return documents.stream().collect(Collectors.toMap(IndexedDocument::fileId, Function.identity(), (a, b) -> b));
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            log.warn("Ignoring unreadable search index snapshot {}", snapshotPath, e);
+            return Map.of();
+        }
+    }
+
+    private void writeSnapshot() {
+        try {
+            Path absolute = snapshotPath.toAbsolutePath();
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_FORMAT);
+                out.writeObject(new ArrayList<>(searchIndex.documents()));
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write search index snapshot {}", snapshotPath, e);
+        }
+    }
+}
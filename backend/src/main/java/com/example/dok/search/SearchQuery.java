@@ -0,0 +1,79 @@
+package com.example.dok.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsed search input. Whitespace separates clauses and every clause must match:
+ * {@code word} is a term, {@code wor*} a prefix and {@code "two words"} a phrase.
+ */
+public record SearchQuery(List<Clause> clauses) {
+
+    public sealed interface Clause permits TermClause, PrefixClause, PhraseClause {
+    }
+
+    public record TermClause(String term) implements Clause {
+    }
+
+    public record PrefixClause(String prefix) implements Clause {
+    }
+
+    public record PhraseClause(List<String> terms) implements Clause {
+    }
+
+    public static SearchQuery parse(String input) {
+        List<Clause> clauses = new ArrayList<>();
+        if (input == null) {
+            return new SearchQuery(clauses);
+        }
+        int i = 0;
+        int length = input.length();
+        while (i < length) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = input.indexOf('"', i + 1);
+                if (end < 0) end = length;
+                addTerms(clauses, Tokenizer.terms(input.substring(i + 1, end)), false);
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(input.charAt(end))) end++;
+                String word = input.substring(i, end);
+                addTerms(clauses, Tokenizer.terms(word), word.endsWith("*"));
+                i = end;
+            }
+        }
+        return new SearchQuery(List.copyOf(clauses));
+    }
+
+    private static void addTerms(List<Clause> clauses, List<String> terms, boolean prefix) {
+        if (terms.isEmpty()) {
+            return;
+        }
+        if (terms.size() > 1) {
+            clauses.add(new PhraseClause(List.copyOf(terms)));
+        } else if (prefix) {
+            clauses.add(new PrefixClause(terms.get(0)));
+        } else {
+            clauses.add(new TermClause(terms.get(0)));
+        }
+    }
+
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * Whether a document token should be highlighted for this query.
+     */
+    public boolean matches(String token) {
+        for (Clause clause : clauses) {
+            if (clause instanceof TermClause term && term.term().equals(token)) return true;
+            if (clause instanceof PrefixClause prefix && token.startsWith(prefix.prefix())) return true;
+            if (clause instanceof PhraseClause phrase && phrase.terms().contains(token)) return true;
+        }
+        return false;
+    }
+}
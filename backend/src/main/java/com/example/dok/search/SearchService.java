@@ -0,0 +1,40 @@
+package com.example.dok.search;
+
+import com.example.dok.dto.SearchResultDto;
+import com.example.dok.storage.ContentStore;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class SearchService {
+
+    private static final int MAX_LIMIT = 100;
+    private static final int SNIPPET_RADIUS = 80;
+
+    private final SearchIndex searchIndex;
+    private final ContentStore contentStore;
+
+    public SearchService(SearchIndex searchIndex, ContentStore contentStore) {
+        this.searchIndex = searchIndex;
+        this.contentStore = contentStore;
+    }
+
+    public List<SearchResultDto> search(String query, int limit) {
+        SearchQuery parsed = SearchQuery.parse(query);
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return searchIndex.search(parsed, boundedLimit).stream()
+                .map(hit -> new SearchResultDto(
+                        hit.path().substring(hit.path().lastIndexOf('/') + 1),
+                        hit.path(),
+                        hit.score(),
+                        snippet(hit.fileId(), hit.path(), parsed)))
+                .toList();
+    }
+
+    private String snippet(long fileId, String path, SearchQuery query) {
+        return contentStore.read(fileId, path)
+                .map(content -> Snippets.highlight(content, query, SNIPPET_RADIUS))
+                .orElse("");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.dok.search;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.List;
+
+/**
+ * Builds short HTML-escaped excerpts around the first query match, with matches wrapped in {@code <mark>}.
+ */
+final class Snippets {
+
+    private Snippets() {
+    }
+
+    static String highlight(String content, SearchQuery query, int radius) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+        List<Tokenizer.Token> tokens = Tokenizer.tokenize(content);
+        Tokenizer.Token anchor = tokens.stream().filter(token -> query.matches(token.term())).findFirst().orElse(null);
+        int start = anchor == null ? 0 : Math.max(0, anchor.start() - radius);
+        int end = anchor == null ? Math.min(content.length(), radius * 2) : Math.min(content.length(), anchor.end() + radius);
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) snippet.append("&hellip;");
+        int cursor = start;
+        for (Tokenizer.Token token : tokens) {
+            if (token.start() < start || token.end() > end || !query.matches(token.term())) {
+                continue;
+            }
+            snippet.append(escape(content.substring(cursor, token.start())))
+                    .append("<mark>")
+                    .append(escape(content.substring(token.start(), token.end())))
+                    .append("</mark>");
+            cursor = token.end();
+        }
+        snippet.append(escape(content.substring(cursor, end)));
+        if (end < content.length()) snippet.append("&hellip;");
+        return snippet.toString();
+    }
+
+    private static String escape(String text) {
+        return HtmlUtils.htmlEscape(text.replace('\n', ' ').replace('\r', ' '));
+    }
+}
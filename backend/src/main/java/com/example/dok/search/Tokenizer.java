@@ -0,0 +1,42 @@
+package com.example.dok.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-cased letter/digit runs. Index and query side must tokenize identically.
+ */
+final class Tokenizer {
+
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    record Token(String term, int start, int end) {
+    }
+
+    static List<Token> tokenize(CharSequence text) {
+        List<Token> tokens = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start && i - start <= MAX_TOKEN_LENGTH) {
+                tokens.add(new Token(text.subSequence(start, i).toString().toLowerCase(Locale.ROOT), start, i));
+            }
+        }
+        return tokens;
+    }
+
+    static List<String> terms(CharSequence text) {
+        return tokenize(text).stream().map(Token::term).toList();
+    }
+}
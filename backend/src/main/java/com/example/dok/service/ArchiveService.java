@@ -0,0 +1,348 @@
+package com.example.dok.service;
+
+import com.example.dok.dto.ImportResultDto;
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.exception.ArchiveImportException;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.model.FileExportRow;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.model.MarkdownFile;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.storage.ContentStore;
+import com.example.dok.tree.TreeIndex;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Imports and exports whole directory subtrees as zip archives. Imports are read as a stream and
+ * written in chunks: entries are decoded and validated in parallel, then each chunk is persisted in
+ * its own transaction so Hibernate can batch the inserts. Entries are read into memory no further than
+ * {@code dok.import.max-document-bytes}. Exports stream rows from a database cursor.
+ */
+@Service
+public class ArchiveService {
+
+    private final MarkdownFileRepository repository;
+    private final TreeIndex index;
+    private final ContentStore contentStore;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int maxDocumentBytes;
+
+    public ArchiveService(MarkdownFileRepository repository, TreeIndex index, ContentStore contentStore,
+                          EntityManager entityManager, PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${dok.import.chunk-size:500}") int chunkSize,
+                          @Value("${dok.import.max-document-bytes:1000000}") int maxDocumentBytes) {
+        this.repository = repository;
+        this.index = index;
+        this.contentStore = contentStore;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxDocumentBytes = maxDocumentBytes;
+    }
+
+    /**
+     * @throws FileNotFoundException if {@code path} is not an existing directory
+     */
+    public FileMetadata findDirectory(String path) {
+        String normalizedPath = MarkdownService.normalizePath(path);
+        return index.find(normalizedPath)
+                .filter(FileMetadata::isDirectory)
+                .orElseThrow(() -> new FileNotFoundException(normalizedPath));
+    }
+
+    /**
+     * Creates every directory and document in {@code archive} below {@code path}. Existing paths are
+     * skipped, never overwritten. Chunks are committed as they are written, so a failing archive
+     * leaves the entries before the failing chunk in place.
+     *
+     * @throws FileNotFoundException  if {@code path} is not an existing directory
+     * @throws ArchiveImportException if the archive could not be read or a chunk failed to commit,
+     *                                with the counts of the chunks committed before
+     */
+    public ImportResultDto importArchive(String path, InputStream archive) {
+        FileMetadata target = findDirectory(path);
+        ImportRun run = new ImportRun(target);
+        try (ZipInputStream zip = new ZipInputStream(archive, StandardCharsets.UTF_8)) {
+            List<ArchiveEntry> chunk = new ArrayList<>(chunkSize);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                chunk.add(entry.isDirectory() ? new ArchiveEntry(entry.getName(), true, null) : read(entry.getName(), zip));
+                if (chunk.size() == chunkSize) {
+                    writeChunk(run, chunk);
+                    chunk.clear();
+                }
+            }
+            writeChunk(run, chunk);
+        } catch (IOException | RuntimeException e) {
+            throw new ArchiveImportException(run.result(e.getMessage() != null ? e.getMessage() : e.toString()), e);
+        }
+        return run.result(null);
+    }
+
+    /**
+     * Reads the current entry, stopping one byte past the document size limit; an entry over the limit
+     * is kept without its bytes.
+     */
+    private ArchiveEntry read(String name, ZipInputStream zip) throws IOException {
+        byte[] bytes = zip.readNBytes(maxDocumentBytes + 1);
+        return new ArchiveEntry(name, false, bytes.length > maxDocumentBytes ? null : bytes);
+    }
+
+    private void writeChunk(ImportRun run, List<ArchiveEntry> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<PreparedEntry> prepared = chunk.parallelStream()
+                .map(entry -> prepare(run.rootPath, entry))
+                .toList();
+        ImportRun.Counts counts = transactionTemplate.execute(status -> {
+            ImportRun.Counts chunkCounts = new ImportRun.Counts();
+            run.load(prepared);
+            Instant now = Instant.now();
+            for (PreparedEntry entry : prepared) {
+                if (entry == null) {
+                    chunkCounts.rejected++;
+                } else if (entry.directory()) {
+                    if (run.directoryId(entry.path(), now, chunkCounts) == null) {
+                        chunkCounts.rejected++;
+                    }
+                } else if (!run.occupied.add(entry.path())) {
+                    chunkCounts.skipped++;
+                } else {
+                    createFile(run, entry, now, chunkCounts);
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return chunkCounts;
+        });
+        run.commit(counts, chunk.size());
+    }
+
+    private void createFile(ImportRun run, PreparedEntry entry, Instant now, ImportRun.Counts counts) {
+        String parentPath = MarkdownService.parentPathOf(entry.path());
+        Long parentId = run.directoryId(parentPath, now, counts);
+        if (parentId == null) {
+            counts.rejected++;
+            return;
+        }
+        MarkdownFile file = MarkdownFile.builder()
+                .path(entry.path())
+                .parentId(parentId)
+                .parentPath(parentPath)
+                .name(entry.path().substring(entry.path().lastIndexOf('/') + 1))
+                .isDirectory(false)
+                .contentHash(entry.contentHash())
+                .lastModified(now)
+                .build();
+        entityManager.persist(file);
+        index.add(FileMetadata.of(file));
+        contentStore.create(file.getId(), entry.path(), entry.content());
+        counts.filesCreated++;
+        eventPublisher.publishEvent(FileChangedEvent.created(file.getId(), entry.path(), false, entry.content(), entry.contentHash()));
+    }
+
+    /**
+     * Resolves an archive entry to an absolute path and decodes its content, or returns {@code null}
+     * if the name escapes the target directory, the content was over the size limit or is not valid UTF-8.
+     */
+    private static PreparedEntry prepare(String rootPath, ArchiveEntry entry) {
+        StringJoiner relative = new StringJoiner("/");
+        for (String segment : entry.name().replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                return null;
+            }
+            relative.add(segment);
+        }
+        if (relative.length() == 0) {
+            return null;
+        }
+        String path = rootPath.equals("/") ? "/" + relative : rootPath + "/" + relative;
+        if (entry.directory()) {
+            return new PreparedEntry(path, true, null, null);
+        }
+        if (entry.bytes() == null) {
+            return null;
+        }
+        try {
+            String content = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(entry.bytes()))
+                    .toString();
+            return new PreparedEntry(path, false, content, ContentHash.of(content));
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes {@code path} and everything below it to {@code out} as a zip archive, with entry names
+     * relative to {@code path}.
+     *
+     * @throws FileNotFoundException if {@code path} is not an existing directory
+     */
+    public void exportArchive(String path, OutputStream out) throws IOException {
+        String rootPath = findDirectory(path).path();
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<FileExportRow> rows = repository.streamDescendants(MarkdownService.descendantsPattern(rootPath))) {
+                    for (Iterator<FileExportRow> it = rows.iterator(); it.hasNext(); ) {
+                        writeEntry(zip, rootPath, it.next());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        zip.finish();
+    }
+
+    private void writeEntry(ZipOutputStream zip, String rootPath, FileExportRow row) throws IOException {
+        String name = row.path().substring(rootPath.equals("/") ? 1 : rootPath.length() + 1);
+        if (row.isDirectory()) {
+            zip.putNextEntry(new ZipEntry(name + "/"));
+        } else {
+            String content = row.pendingOperations() > 0 || row.content() == null
+                    ? contentStore.read(row.id(), row.path()).orElse("")
+                    : row.content();
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        zip.closeEntry();
+    }
+
+    private record ArchiveEntry(String name, boolean directory, byte[] bytes) {
+    }
+
+    private record PreparedEntry(String path, boolean directory, String content, String contentHash) {
+    }
+
+    /**
+     * State of one import: counters of the committed chunks, the ids of directories known to exist and
+     * the paths taken by documents.
+     */
+    private class ImportRun {
+
+        private final String rootPath;
+        private final Map<String, Long> directoryIds = new HashMap<>();
+        private final Set<String> occupied = new HashSet<>();
+        private final Counts committed = new Counts();
+        private int entriesCommitted;
+
+        private static final class Counts {
+            int directoriesCreated;
+            int filesCreated;
+            int skipped;
+            int rejected;
+        }
+
+        ImportRun(FileMetadata root) {
+            this.rootPath = root.path();
+            directoryIds.put(root.path(), root.id());
+        }
+
+        void commit(Counts chunk, int entries) {
+            committed.directoriesCreated += chunk.directoriesCreated;
+            committed.filesCreated += chunk.filesCreated;
+            committed.skipped += chunk.skipped;
+            committed.rejected += chunk.rejected;
+            entriesCommitted += entries;
+        }
+
+        ImportResultDto result(String error) {
+            return new ImportResultDto(committed.directoriesCreated, committed.filesCreated, committed.skipped,
+                    committed.rejected, entriesCommitted, error);
+        }
+
+        /**
+         * Looks up every path of the chunk and its ancestors that is not known yet in the tree index,
+         * so creating entries afterwards never has to query (and flush).
+         */
+        void load(List<PreparedEntry> entries) {
+            Set<String> unknown = new HashSet<>();
+            for (PreparedEntry entry : entries) {
+                String path = entry == null ? null : entry.path();
+                while (path != null && !directoryIds.containsKey(path) && unknown.add(path)) {
+                    path = MarkdownService.parentPathOf(path);
+                }
+            }
+            for (String path : unknown) {
+                index.find(path).ifPresent(existing -> {
+                    if (existing.isDirectory()) {
+                        directoryIds.put(existing.path(), existing.id());
+                    }
+                    occupied.add(existing.path());
+                });
+            }
+        }
+
+        /**
+         * Id of the directory at {@code path}, creating it and any missing ancestors, or {@code null}
+         * if a document occupies the path or one of its ancestors.
+         */
+        Long directoryId(String path, Instant now, Counts counts) {
+            Long known = directoryIds.get(path);
+            if (known != null) {
+                return known;
+            }
+            if (occupied.contains(path)) {
+                return null;
+            }
+            String parentPath = MarkdownService.parentPathOf(path);
+            Long parentId = parentPath == null ? null : directoryId(parentPath, now, counts);
+            if (parentId == null) {
+                return null;
+            }
+            MarkdownFile directory = MarkdownFile.builder()
+                    .path(path)
+                    .parentId(parentId)
+                    .parentPath(parentPath)
+                    .name(path.substring(path.lastIndexOf('/') + 1))
+                    .isDirectory(true)
+                    .lastModified(now)
+                    .build();
+            entityManager.persist(directory);
+            index.add(FileMetadata.of(directory));
+            directoryIds.put(path, directory.getId());
+            occupied.add(path);
+            counts.directoriesCreated++;
+            eventPublisher.publishEvent(FileChangedEvent.created(directory.getId(), path, true, null, null));
+            return directory.getId();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.dok.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application meters on top of the HTTP request timers Spring Boot records by itself: markdown
+ * parse and render time, document sizes, database statements per request, failures by cause and the
+ * duration of startup phases. Everything is published at {@code /actuator/prometheus}.
+ */
+@Component
+public class DokMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer parseTimer;
+    private final Timer renderTimer;
+    private final DistributionSummary renderedSize;
+    private final DistributionSummary savedSize;
+
+    public DokMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.parseTimer = Timer.builder("dok.markdown.parse")
+                .description("Time to parse markdown into a document tree")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.renderTimer = Timer.builder("dok.markdown.render")
+                .description("Time to render a parsed document to HTML")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.renderedSize = documentSize("render", registry);
+        this.savedSize = documentSize("save", registry);
+    }
+
+    private static DistributionSummary documentSize(String operation, MeterRegistry registry) {
+        return DistributionSummary.builder("dok.document.size")
+                .description("Length of documents rendered or saved")
+                .baseUnit("characters")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void recordRender(int documentChars, long parseNanos, long renderNanos) {
+        renderedSize.record(documentChars);
+        parseTimer.record(parseNanos, TimeUnit.NANOSECONDS);
+        renderTimer.record(renderNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSave(int documentChars) {
+        savedSize.record(documentChars);
+    }
+
+    /**
+     * @param uri        request mapping pattern, so path parameters do not multiply the series
+     * @param statements JDBC executes counted by {@code BoundedDataSource}, whether issued by JPA or
+     *                   {@code JdbcTemplate}; a batch counts once
+     */
+    public void recordQueries(String method, String uri, int statements) {
+        DistributionSummary.builder("dok.db.statements")
+                .description("JDBC statements executed per HTTP request, from JPA and JdbcTemplate alike; a batch counts once")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(statements);
+    }
+
+    /**
+     * @param phase a startup phase such as {@code context-refresh}, or a background rebuild that
+     *              completes after the application is ready
+     */
+    public void recordStartupPhase(String phase, long nanos) {
+        Timer.builder("dok.startup.phase")
+                .description("Time spent in a phase of application startup")
+                .tag("phase", phase)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordError(String operation, Throwable cause) {
+        recordError(operation, cause.getClass().getSimpleName());
+    }
+
+    public void recordError(String operation, String cause) {
+        registry.counter("dok.errors", "operation", operation, "cause", cause).increment();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.dok.service;
+
+import com.example.dok.config.BoundedDataSource;
+import com.example.dok.dto.ExecutionStatsDto;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Snapshot of requests in flight, the database concurrency limit and the connection pool. With
+ * virtual threads the JVM's thread counts say nothing about load, so concurrency is measured by
+ * counting requests ({@code RequestConcurrencyFilter}) and by the permits of the
+ * {@link BoundedDataSource}. Both are also published as the gauges {@code dok.requests.in-flight}
+ * and {@code dok.db.permits}.
+ */
+@Component
+public class ExecutionMonitor {
+
+    private final DataSource dataSource;
+    private final boolean virtualThreads;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    public ExecutionMonitor(DataSource dataSource, MeterRegistry registry,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.dataSource = dataSource;
+        this.virtualThreads = virtualThreads;
+        Gauge.builder("dok.requests.in-flight", inFlight, AtomicInteger::get)
+                .description("Requests being handled")
+                .register(registry);
+        if (dataSource instanceof BoundedDataSource bounded) {
+            Gauge.builder("dok.db.permits", bounded, BoundedDataSource::inUse)
+                    .description("Database permits held or waited for")
+                    .tag("state", "in-use")
+                    .register(registry);
+            Gauge.builder("dok.db.permits", bounded, BoundedDataSource::waiting)
+                    .description("Database permits held or waited for")
+                    .tag("state", "waiting")
+                    .register(registry);
+        }
+    }
+
+    public void requestStarted() {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    }
+
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public ExecutionStatsDto stats() {
+        BoundedDataSource bounded = dataSource instanceof BoundedDataSource b ? b : null;
+        HikariPoolMXBean pool = pool();
+        return new ExecutionStatsDto(
+                virtualThreads,
+                bounded != null ? bounded.maxConcurrency() : 0,
+                bounded != null ? bounded.inUse() : 0,
+                bounded != null ? bounded.waiting() : 0,
+                bounded != null ? bounded.acquired() : 0,
+                bounded != null ? bounded.timeouts() : 0,
+                pool != null ? pool.getActiveConnections() : 0,
+                pool != null ? pool.getIdleConnections() : 0,
+                pool != null ? pool.getThreadsAwaitingConnection() : 0,
+                inFlight.get(),
+                peakInFlight.get());
+    }
+
+    /**
+     * The pool MXBean, or {@code null} if the data source is not Hikari or the pool has not started yet.
+     */
+    private HikariPoolMXBean pool() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean()
+                    : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
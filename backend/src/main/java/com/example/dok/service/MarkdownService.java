@@ -1,76 +1,332 @@
 package com.example.dok.service;
 
-import com.example.dok.dto.FileEntryDto;
-import com.example.dok.dto.MoveFileRequestDto;
-import com.example.dok.dto.UpdateFileContentRequestDto;
+import com.example.dok.dto.*;
+import com.example.dok.event.ExternalEditEvent;
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.exception.VersionConflictException;
+import com.example.dok.markdown.DocumentPipeline;
+import com.example.dok.markdown.ParsedDocument;
+import com.example.dok.markdown.RenderProfile;
+import com.example.dok.model.DocumentSnapshot;
+import com.example.dok.model.FileMetadata;
 import com.example.dok.model.MarkdownFile;
+import com.example.dok.model.RawDocument;
 import com.example.dok.repository.MarkdownFileRepository;
-import com.vladsch.flexmark.html.HtmlRenderer;
-import com.vladsch.flexmark.parser.Parser;
-import com.vladsch.flexmark.util.ast.Node;
+import com.example.dok.storage.ContentStore;
+import com.example.dok.storage.StoredBody;
+import com.example.dok.tree.TreeIndex;
+import com.example.dok.writebehind.WriteBehindBuffer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 @Service
 public class MarkdownService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_PREFETCH_DEPTH = 3;
+    private static final int READ_ATTEMPTS = 3;
+    private static final Pattern REPEATED_SLASHES = Pattern.compile("//+");
+
     private final MarkdownFileRepository repository;
-    private final Parser parser;
-    private final HtmlRenderer renderer;
+    private final TreeIndex index;
+    private final ContentStore contentStore;
+    private final DocumentPipeline pipeline;
+    private final RenderCache renderCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DokMetrics metrics;
+    private final WriteBehindBuffer writeBehind;
 
-    public MarkdownService(MarkdownFileRepository repository, Parser parser, HtmlRenderer renderer) {
+    public MarkdownService(MarkdownFileRepository repository, TreeIndex index, ContentStore contentStore,
+                           DocumentPipeline pipeline, RenderCache renderCache,
+                           ApplicationEventPublisher eventPublisher, DokMetrics metrics,
+                           WriteBehindBuffer writeBehind) {
         this.repository = repository;
-        this.parser = parser;
-        this.renderer = renderer;
+        this.index = index;
+        this.contentStore = contentStore;
+        this.pipeline = pipeline;
+        this.renderCache = renderCache;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.writeBehind = writeBehind;
     }
 
-    private String normalizePath(String path) {
+    public static String normalizePath(String path) {
         if (path == null) return "/";
-        String cleanedPath = path.replaceAll("//+", "/");
+        // Every request passes through here, so only paths that need it go through the matcher.
+        String cleanedPath = path.contains("//") ? REPEATED_SLASHES.matcher(path).replaceAll("/") : path;
         if (cleanedPath.length() > 1 && cleanedPath.endsWith("/")) {
             cleanedPath = cleanedPath.substring(0, cleanedPath.length() - 1);
         }
         return cleanedPath;
     }
 
-    private boolean isDirectChild(MarkdownFile file, String parentPath) {
-        if (file.getPath().equals(parentPath)) {
-            return false;
-        }
-        String relativePath = file.getPath().substring(parentPath.length());
-        return !relativePath.contains("/");
+    public static String parentPathOf(String path) {
+        if (path.equals("/")) return null;
+        int lastSlash = path.lastIndexOf('/');
+        return lastSlash == 0 ? "/" : path.substring(0, lastSlash);
+    }
+
+    /**
+     * LIKE pattern matching every strict descendant of {@code path}, with wildcards in the path escaped.
+     */
+    public static String descendantsPattern(String path) {
+        String escaped = path.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return (path.equals("/") ? escaped : escaped + "/") + "%";
     }
 
     public List<FileEntryDto> listFiles(String path) {
-        String parentPath = path.endsWith("/") ? path : path + "/";
-        if (parentPath.equals("//")) parentPath = "/";
+        return index.children(normalizePath(path));
+    }
+
+    /**
+     * One page of a directory's children, directories first and then by name, continuing after
+     * {@code cursor} when given. With {@code depth > 0} the first page of each listed subdirectory is
+     * included too, recursively. Pages are read from the {@link TreeIndex}.
+     *
+     * @throws FileNotFoundException    if there is no such directory
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public DirectoryPageDto listPage(String path, String cursor, int limit, int depth) {
+        String normalizedPath = normalizePath(path);
+        if (!normalizedPath.equals("/") && index.find(normalizedPath).filter(FileMetadata::isDirectory).isEmpty()) {
+            throw new FileNotFoundException(normalizedPath);
+        }
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        String afterPosition = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+        return page(normalizedPath, afterPosition, pageSize, Math.min(depth, MAX_PREFETCH_DEPTH));
+    }
+
+    private DirectoryPageDto page(String path, String afterPosition, int pageSize, int depth) {
+        DirectoryPageDto page = toPage(index.children(path, afterPosition, pageSize + 1), pageSize);
+        if (depth <= 0) {
+            return page;
+        }
+        return new DirectoryPageDto(page.entries().stream()
+                .map(entry -> entry.isDirectory() && entry.childCount() > 0
+                        ? entry.withChildren(page(entry.path(), null, pageSize, depth - 1))
+                        : entry)
+                .toList(), page.nextCursor());
+    }
+
+    /**
+     * Trims a result fetched with one extra row to {@code pageSize}, using the extra row only to tell
+     * whether another page follows.
+     */
+    private static DirectoryPageDto toPage(List<DirectoryEntryDto> entries, int pageSize) {
+        if (entries.size() <= pageSize) {
+            return new DirectoryPageDto(entries, null);
+        }
+        List<DirectoryEntryDto> page = entries.subList(0, pageSize);
+        return new DirectoryPageDto(List.copyOf(page), encodeCursor(page.get(pageSize - 1)));
+    }
+
+    /**
+     * The cursor is the listing position of the last entry on a page: its kind and name.
+     */
+    static String encodeCursor(DirectoryEntryDto last) {
+        String position = TreeIndex.position(last.isDirectory(), last.name());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        String position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+        if (position.length() < 2 || (position.charAt(0) != 'd' && position.charAt(0) != 'f')) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        return position;
+    }
+
+    /**
+     * Metadata of a document or directory, reflecting saves still in the write-behind buffer.
+     */
+    public Optional<FileMetadata> findMetadata(String path) {
+        String normalizedPath = normalizePath(path);
+        return writeBehind.metadata(normalizedPath).or(() -> index.find(normalizedPath));
+    }
 
-        String finalParentPath = parentPath;
-        return repository.findByPathStartingWith(parentPath).stream()
-                .filter(file -> isDirectChild(file, finalParentPath))
-                .map(file -> new FileEntryDto(file.getName(), file.getPath(), file.isDirectory()))
-                .collect(Collectors.toList());
+    /**
+     * Content of a document, from the write-behind buffer if it holds a newer save than the store.
+     */
+    private String readContent(Long fileId, String path) {
+        return writeBehind.content(path).or(() -> contentStore.read(fileId, path)).orElse("");
     }
 
     public String viewMarkdown(String path) {
         String normalizedPath = normalizePath(path);
-        return repository.findByPath(normalizedPath)
-                .map(file -> {
-                    if (file.isDirectory()) return "<p>Cannot render a directory.</p>";
-                    Node document = parser.parse(file.getContent());
-                    return renderer.render(document);
-                })
-                .orElse("<p style=\"color: red;\">Error: File not found in database.</p>");
+        Optional<FileMetadata> metadata = findMetadata(normalizedPath);
+        if (metadata.isEmpty()) {
+            return "<p style=\"color: red;\">Error: File not found in database.</p>";
+        }
+        if (metadata.get().isDirectory()) {
+            return "<p>Cannot render a directory.</p>";
+        }
+
+        String contentHash = metadata.get().contentHash();
+        if (contentHash != null) {
+            String cached = renderCache.getIfPresent(normalizedPath, contentHash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String content = readContent(metadata.get().id(), normalizedPath);
+        String hash = contentHash != null ? contentHash : ContentHash.of(content);
+        return renderCache.get(normalizedPath, hash, () -> render(hash, content));
+    }
+
+    /**
+     * Reads what {@code /view} sends for a document: the cached preview HTML for its hash if there is
+     * one, otherwise its content, rendered here when the result can be cached. Documents the render
+     * cache does not admit and other profiles are left for {@link #writeView} to render.
+     */
+    public DocumentSnapshot viewSnapshot(FileMetadata metadata, RenderProfile profile) {
+        if (profile == RenderProfile.PREVIEW && metadata.contentHash() != null) {
+            String cached = renderCache.getIfPresent(metadata.path(), metadata.contentHash());
+            if (cached != null) {
+                return new DocumentSnapshot(metadata, null, cached);
+            }
+        }
+        DocumentSnapshot snapshot = rawSnapshot(metadata);
+        String content = snapshot.content();
+        String hash = snapshot.metadata().contentHash();
+        if (profile == RenderProfile.PREVIEW && renderCache.admits(content.length())) {
+            return new DocumentSnapshot(snapshot.metadata(), content,
+                    renderCache.get(metadata.path(), hash, () -> render(hash, content)));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads the content of a document once, with metadata whose version and hash describe that content.
+     */
+    public DocumentSnapshot rawSnapshot(FileMetadata metadata) {
+        FileMetadata current = metadata;
+        for (int attempt = 1; ; attempt++) {
+            String content = readContent(current.id(), current.path());
+            String hash = ContentHash.of(content);
+            FileMetadata described = describing(current, hash, attempt);
+            if (hash.equals(described.contentHash())) {
+                return new DocumentSnapshot(described, content, null);
+            }
+            current = described;
+        }
+    }
+
+    /**
+     * Opens the body of a document for {@code /raw}, streamed from the content store where it allows,
+     * with metadata whose version and hash describe that body.
+     */
+    public RawDocument openRaw(FileMetadata metadata) throws IOException {
+        FileMetadata current = metadata;
+        for (int attempt = 1; ; attempt++) {
+            String path = current.path();
+            Optional<String> buffered = writeBehind.content(path);
+            StoredBody body = buffered.isPresent() ? StoredBody.of(buffered.get()) : contentStore.open(current.id(), path);
+            FileMetadata described;
+            try {
+                described = describing(current, body.contentHash(), attempt);
+            } catch (RuntimeException e) {
+                body.close();
+                throw e;
+            }
+            if (body.contentHash().equals(described.contentHash())) {
+                return new RawDocument(described, body);
+            }
+            body.close();
+            current = described;
+        }
+    }
+
+    /**
+     * The metadata that describes a body with {@code hash} read for {@code metadata}: {@code metadata} itself,
+     * or the document's current metadata when the body was saved after {@code metadata} was looked up. When
+     * neither matches, returns the current metadata to read again with.
+     */
+    private FileMetadata describing(FileMetadata metadata, String hash, int attempt) {
+        if (hash.equals(metadata.contentHash())) {
+            return metadata;
+        }
+        if (metadata.contentHash() == null) {
+            return new FileMetadata(metadata.id(), metadata.path(), false, hash, metadata.lastModified(), metadata.version());
+        }
+        FileMetadata current = findMetadata(metadata.path())
+                .filter(found -> !found.isDirectory() && found.id().equals(metadata.id()))
+                .orElseThrow(() -> new FileNotFoundException(metadata.path()));
+        if (!hash.equals(current.contentHash()) && attempt >= READ_ATTEMPTS) {
+            throw new IllegalStateException("Document kept changing while it was read: " + metadata.path());
+        }
+        return current;
+    }
+
+    /**
+     * Writes the HTML of a {@link #viewSnapshot} to {@code out}, rendering it straight into {@code out}
+     * rather than into an intermediate string when it was not rendered yet.
+     */
+    public void writeView(DocumentSnapshot snapshot, RenderProfile profile, Appendable out) throws IOException {
+        if (snapshot.html() != null) {
+            out.append(snapshot.html());
+            return;
+        }
+        long started = System.nanoTime();
+        ParsedDocument document = pipeline.parse(snapshot.metadata().contentHash(), snapshot.content());
+        long parsed = System.nanoTime();
+        pipeline.render(document, profile, out);
+        if (profile == RenderProfile.PREVIEW) {
+            metrics.recordRender(snapshot.content().length(), parsed - started, System.nanoTime() - parsed);
+        }
+    }
+
+    /**
+     * Parse time includes the parse cache lookup, so a document already parsed by an indexer or the
+     * pre-renderer records close to zero.
+     */
+    private String render(String contentHash, String content) {
+        long started = System.nanoTime();
+        ParsedDocument document = pipeline.parse(contentHash, content);
+        long parsed = System.nanoTime();
+        String html = pipeline.render(document, RenderProfile.PREVIEW);
+        metrics.recordRender(content.length(), parsed - started, System.nanoTime() - parsed);
+        return html;
+    }
+
+    /**
+     * Headings, word count and link targets of a document, from the shared parse.
+     *
+     * @throws FileNotFoundException if there is no such document
+     */
+    public OutlineDto outline(String path) {
+        String normalizedPath = normalizePath(path);
+        FileMetadata metadata = findMetadata(normalizedPath)
+                .filter(candidate -> !candidate.isDirectory())
+                .orElseThrow(() -> new FileNotFoundException(normalizedPath));
+        String content = readContent(metadata.id(), normalizedPath);
+        return pipeline.parse(metadata.contentHash(), content).outline();
+    }
+
+    public RenderCacheStatsDto renderCacheStats() {
+        return renderCache.stats();
     }
 
     public String rawMarkdown(String path) {
         String normalizedPath = normalizePath(path);
-        return repository.findByPath(normalizedPath)
-                .map(MarkdownFile::getContent)
+        return findMetadata(normalizedPath)
+                .map(metadata -> metadata.isDirectory() ? "" : readContent(metadata.id(), metadata.path()))
                 .orElse("Error: File not found in database.");
     }
 
@@ -87,45 +343,121 @@ public class MarkdownService {
         if (file.isDirectory()) {
             return "Error: Cannot save content to a directory.";
         }
+        checkExpectedVersion(file, request.expectedVersion());
 
-        file.setContent(request.content());
-        repository.save(file);
+        String contentHash = ContentHash.of(request.content());
+        file.setContentHash(contentHash);
+        file.setLastModified(Instant.now());
+        file.setPendingOperations(0);
+        // Flushing runs the versioned UPDATE now, so a concurrent writer fails before the content is touched.
+        repository.saveAndFlush(file);
+        index.update(FileMetadata.of(file));
+        contentStore.write(file.getId(), normalizedPath, file.getVersion(), request.content());
+        metrics.recordSave(request.content().length());
+        renderCache.invalidate(normalizedPath);
+        eventPublisher.publishEvent(FileChangedEvent.updated(file.getId(), normalizedPath, request.content(), contentHash));
         return "File saved successfully!";
     }
 
+    /**
+     * Applies text operations to the document at {@code baseVersion}. The operations are appended to
+     * the content log; once enough have accumulated the result is compacted into the content row.
+     *
+     * @throws VersionConflictException if the document is no longer at {@code baseVersion}
+     */
+    @Transactional
+    public SaveResultDto patchMarkdown(PatchFileContentRequestDto request) {
+        String normalizedPath = normalizePath(request.path());
+        MarkdownFile file = repository.findByPath(normalizedPath)
+                .orElseThrow(() -> new FileNotFoundException(normalizedPath));
+        if (file.isDirectory()) {
+            throw new IllegalArgumentException("Cannot save content to a directory.");
+        }
+        if (file.getVersion() != request.baseVersion()) {
+            throw new VersionConflictException(normalizedPath, request.baseVersion(), file.getVersion());
+        }
+
+        List<TextOperationDto> operations = request.operations() == null ? List.of() : request.operations();
+        String content = TextOperations.apply(contentStore.read(file.getId(), normalizedPath).orElse(""), operations);
+        String contentHash = ContentHash.of(content);
+        int pendingOperations = file.getPendingOperations() + operations.size();
+        boolean compact = contentStore.shouldCompact(pendingOperations);
+
+        file.setContentHash(contentHash);
+        file.setLastModified(Instant.now());
+        file.setPendingOperations(compact ? 0 : pendingOperations);
+        repository.saveAndFlush(file);
+        index.update(FileMetadata.of(file));
+        long newVersion = file.getVersion();
+        metrics.recordSave(content.length());
+        if (compact) {
+            contentStore.write(file.getId(), normalizedPath, newVersion, content);
+        } else {
+            contentStore.append(file.getId(), normalizedPath, newVersion, operations);
+        }
+
+        renderCache.invalidate(normalizedPath);
+        eventPublisher.publishEvent(FileChangedEvent.updated(file.getId(), normalizedPath, content, contentHash));
+        return new SaveResultDto(newVersion, contentHash);
+    }
+
     @Transactional
     public String createFile(String path) {
         String normalizedPath = normalizePath(path);
-        if (repository.existsByPath(normalizedPath)) {
+        if (index.exists(normalizedPath)) {
             return "Error: File or directory with this name already exists.";
         }
+        Optional<FileMetadata> parent = findParentDirectory(normalizedPath);
+        if (parent.isEmpty()) {
+            return "Error: Parent directory not found.";
+        }
         String name = normalizedPath.substring(normalizedPath.lastIndexOf('/') + 1);
+        String content = "# New File\n";
+        String contentHash = ContentHash.of(content);
         MarkdownFile newFile = MarkdownFile.builder()
                 .path(normalizedPath)
+                .parentId(parent.get().id())
+                .parentPath(parent.get().path())
                 .name(name)
                 .isDirectory(false)
-                .content("# New File\n")
+                .contentHash(contentHash)
+                .lastModified(Instant.now())
                 .build();
-        repository.save(newFile);
+        newFile = repository.save(newFile);
+        index.add(FileMetadata.of(newFile));
+        contentStore.create(newFile.getId(), normalizedPath, content);
+        eventPublisher.publishEvent(FileChangedEvent.created(newFile.getId(), normalizedPath, false, content, contentHash));
         return "File created successfully!";
     }
 
     @Transactional
     public String createDirectory(String path) {
         String normalizedPath = normalizePath(path);
-        if (repository.existsByPath(normalizedPath)) {
+        if (index.exists(normalizedPath)) {
             return "Error: File or directory with this name already exists.";
         }
+        Optional<FileMetadata> parent = findParentDirectory(normalizedPath);
+        if (parent.isEmpty()) {
+            return "Error: Parent directory not found.";
+        }
         String name = normalizedPath.substring(normalizedPath.lastIndexOf('/') + 1);
         MarkdownFile newDir = MarkdownFile.builder()
                 .path(normalizedPath)
+                .parentId(parent.get().id())
+                .parentPath(parent.get().path())
                 .name(name)
                 .isDirectory(true)
+                .lastModified(Instant.now())
                 .build();
-        repository.save(newDir);
+        newDir = repository.save(newDir);
+        index.add(FileMetadata.of(newDir));
+        eventPublisher.publishEvent(FileChangedEvent.created(newDir.getId(), normalizedPath, true, null, null));
         return "Directory created successfully!";
     }
 
+    /**
+     * @throws VersionConflictException if another write has happened since the client read the file
+     */
     @Transactional
     public String move(MoveFileRequestDto request) {
         String normalizedSource = normalizePath(request.source());
@@ -136,31 +468,54 @@ public class MarkdownService {
             return "Error: Source file not found.";
         }
         MarkdownFile sourceFile = sourceFileOpt.get();
+        checkExpectedVersion(sourceFile, request.expectedVersion());
+        if (normalizedSource.equals("/")) {
+            return "Error: Cannot move the root directory.";
+        }
+        if (normalizedDestination.equals(normalizedSource) || normalizedDestination.startsWith(normalizedSource + "/")) {
+            return "Error: Cannot move a directory into itself.";
+        }
+
+        Optional<FileMetadata> destination = index.find(normalizedDestination);
+        if (destination.isEmpty() || !destination.get().isDirectory()) {
+            return "Error: Destination directory not found.";
+        }
 
         String newPath = normalizedDestination.equals("/")
                 ? "/" + sourceFile.getName()
                 : normalizedDestination + "/" + sourceFile.getName();
 
-        if (repository.existsByPath(newPath)) {
+        if (index.exists(newPath)) {
             return "Error: A file or directory with that name already exists in the destination.";
         }
 
         if (sourceFile.isDirectory()) {
-            List<MarkdownFile> children = repository.findByPathStartingWith(normalizedSource + "/");
-            for (MarkdownFile child : children) {
-                String childNewPath = child.getPath().replaceFirst(java.util.regex.Pattern.quote(normalizedSource), newPath);
-                child.setPath(childNewPath);
-            }
-            repository.saveAll(children);
+            repository.rebaseDescendants(descendantsPattern(normalizedSource), newPath, normalizedSource.length() + 1);
         }
 
         sourceFile.setPath(newPath);
+        sourceFile.setParentId(destination.get().id());
+        sourceFile.setParentPath(normalizedDestination);
         repository.save(sourceFile);
+        // Read back the new paths and versions of the subtree; the query flushes the update above first.
+        index.move(normalizedSource, repository.findSubtreeMetadata(newPath, descendantsPattern(newPath)));
+        contentStore.move(normalizedSource, newPath);
+        renderCache.invalidateSubtree(normalizedSource);
+        eventPublisher.publishEvent(FileChangedEvent.moved(sourceFile.getId(), normalizedSource, newPath, sourceFile.isDirectory()));
         return "Moved successfully!";
     }
 
     @Transactional
     public String delete(String path) {
+        return delete(path, null);
+    }
+
+    /**
+     * @param expectedVersion version the client last saw, or {@code null} to delete unconditionally
+     * @throws VersionConflictException if another write has happened since the client read the file
+     */
+    @Transactional
+    public String delete(String path, Long expectedVersion) {
         String normalizedPath = normalizePath(path);
         if (normalizedPath.equals("/")) {
             return "Error: Cannot delete the root directory.";
@@ -172,11 +527,56 @@ public class MarkdownService {
         }
 
         MarkdownFile file = fileOptional.get();
+        checkExpectedVersion(file, expectedVersion);
         if (file.isDirectory()) {
-            repository.deleteByPathStartingWith(normalizedPath);
+            String descendants = descendantsPattern(normalizedPath);
+            contentStore.deleteSubtree(normalizedPath, descendants);
+            repository.deleteDescendants(descendants);
         } else {
-            repository.deleteByPath(normalizedPath);
+            contentStore.delete(file.getId(), normalizedPath);
         }
+        // Removing the loaded entity issues a versioned DELETE for the row itself.
+        repository.delete(file);
+        index.remove(normalizedPath);
+        renderCache.invalidateSubtree(normalizedPath);
+        eventPublisher.publishEvent(FileChangedEvent.deleted(file.getId(), normalizedPath, file.isDirectory()));
         return "Deleted successfully!";
     }
+
+    /**
+     * Adopts a body the content store found changed outside the application as a new version of the
+     * document. Edits of paths that are not documents in the tree are ignored.
+     */
+    @EventListener
+    @Transactional
+    public void onExternalEdit(ExternalEditEvent edit) {
+        String normalizedPath = normalizePath(edit.path());
+        Optional<MarkdownFile> fileOptional = repository.findByPath(normalizedPath);
+        if (fileOptional.isEmpty() || fileOptional.get().isDirectory()
+                || edit.contentHash().equals(fileOptional.get().getContentHash())) {
+            return;
+        }
+        MarkdownFile file = fileOptional.get();
+        file.setContentHash(edit.contentHash());
+        file.setLastModified(Instant.now());
+        file.setPendingOperations(0);
+        repository.saveAndFlush(file);
+        index.update(FileMetadata.of(file));
+        renderCache.invalidate(normalizedPath);
+        eventPublisher.publishEvent(FileChangedEvent.updated(file.getId(), normalizedPath, edit.content(), edit.contentHash()));
+    }
+
+    private static void checkExpectedVersion(MarkdownFile file, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != file.getVersion()) {
+            throw new VersionConflictException(file.getPath(), expectedVersion, file.getVersion());
+        }
+    }
+
+    private Optional<FileMetadata> findParentDirectory(String path) {
+        String parentPath = parentPathOf(path);
+        if (parentPath == null) {
+            return Optional.empty();
+        }
+        return index.find(parentPath).filter(FileMetadata::isDirectory);
+    }
 }
@@ -0,0 +1,109 @@
+package com.example.dok.service;
+
+import com.example.dok.dto.RenderCacheStatsDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of rendered HTML, keyed by path and validated against the content hash.
+ * Entries are weighed by their approximate heap size so the cache honours a byte budget.
+ */
+@Component
+public class RenderCache {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int DEFAULT_MAX_ENTRY_CHARS = 256 * 1024;
+
+    private final Cache<String, RenderedDocument> cache;
+    private final long maxBytes;
+    private final int maxEntryChars;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public RenderCache(long maxBytes) {
+        this(maxBytes, DEFAULT_MAX_ENTRY_CHARS);
+    }
+
+    @Autowired
+    public RenderCache(@Value("${dok.render-cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${dok.render-cache.max-entry-chars:262144}") int maxEntryChars) {
+        this.maxBytes = maxBytes;
+        this.maxEntryChars = maxEntryChars;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String path, RenderedDocument document) -> document.weight())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Whether documents of {@code sourceChars} are cached at all. Larger ones are rendered straight
+     * to the response, since caching them would mean building the whole HTML as a string first.
+     */
+    public boolean admits(int sourceChars) {
+        return sourceChars <= maxEntryChars;
+    }
+
+    public String getIfPresent(String path, String contentHash) {
+        RenderedDocument cached = cache.getIfPresent(path);
+        if (cached != null && cached.contentHash().equals(contentHash)) {
+            hits.increment();
+            return cached.html();
+        }
+        return null;
+    }
+
+    public String get(String path, String contentHash, Supplier<String> renderer) {
+        RenderedDocument cached = cache.getIfPresent(path);
+        if (cached != null && cached.contentHash().equals(contentHash)) {
+            hits.increment();
+            return cached.html();
+        }
+        misses.increment();
+        String html = renderer.get();
+        cache.put(path, new RenderedDocument(contentHash, html));
+        return html;
+    }
+
+    /**
+     * Stores HTML rendered ahead of any request, without counting it as a hit or a miss.
+     */
+    public void put(String path, String contentHash, String html) {
+        cache.put(path, new RenderedDocument(contentHash, html));
+    }
+
+    public void invalidate(String path) {
+        cache.invalidate(path);
+    }
+
+    public void invalidateSubtree(String path) {
+        String prefix = path.endsWith("/") ? path : path + "/";
+        cache.asMap().keySet().removeIf(key -> key.equals(path) || key.startsWith(prefix));
+    }
+
+    public RenderCacheStatsDto stats() {
+        long weightedSize = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new RenderCacheStatsDto(
+                hits.sum(),
+                misses.sum(),
+                cache.stats().evictionCount(),
+                cache.estimatedSize(),
+                weightedSize,
+                maxBytes);
+    }
+
+    private record RenderedDocument(String contentHash, String html) {
+        int weight() {
+            long bytes = (long) html.length() * 2 + contentHash.length() * 2L + ENTRY_OVERHEAD_BYTES;
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.dok.service;
+
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.markdown.DocumentPipeline;
+import com.example.dok.markdown.RenderProfile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders documents into the {@link RenderCache} in the background after they are created or saved,
+ * so the first {@code /view} after an edit is usually a cache hit. Jobs are coalesced per path: while
+ * a path waits for a worker only its latest content is kept, and a render that finishes after a newer
+ * save is discarded. At most {@code dok.pre-render.max-pending} paths wait at a time; beyond that saves
+ * are not pre-rendered and {@code /view} renders them on demand as before.
+ */
+@Component
+public class RenderPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(RenderPipeline.class);
+
+    private final DocumentPipeline documentPipeline;
+    private final RenderCache renderCache;
+    private final Executor executor;
+    private final int maxPending;
+    /**
+     * Job per path that has not been picked up by a worker yet.
+     */
+    private final Map<String, RenderJob> pending = new ConcurrentHashMap<>();
+    /**
+     * Newest job per path until it completes; only its result may enter the cache.
+     */
+    private final Map<String, RenderJob> latest = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RenderPipeline(DocumentPipeline documentPipeline, RenderCache renderCache,
+                          @Value("${dok.pre-render.threads:2}") int threads,
+                          @Value("${dok.pre-render.max-pending:1000}") int maxPending) {
+        this(documentPipeline, renderCache, newExecutor(threads), maxPending);
+    }
+
+    RenderPipeline(DocumentPipeline documentPipeline, RenderCache renderCache, Executor executor, int maxPending) {
+        this.documentPipeline = documentPipeline;
+        this.renderCache = renderCache;
+        this.executor = executor;
+        this.maxPending = maxPending;
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "pre-render-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChanged(FileChangedEvent event) {
+        boolean saved = event.type() == FileChangedEvent.Type.CREATED || event.type() == FileChangedEvent.Type.UPDATED;
+        if (saved && !event.directory() && event.content() != null && renderCache.admits(event.content().length())) {
+            String contentHash = event.contentHash() != null ? event.contentHash() : ContentHash.of(event.content());
+            schedule(event.path(), contentHash, event.content());
+        }
+    }
+
+    void schedule(String path, String contentHash, String content) {
+        RenderJob job = new RenderJob(contentHash, content);
+        latest.put(path, job);
+        if (pending.put(path, job) != null) {
+            // A worker is already due for this path and will pick up this job instead of the older one.
+            return;
+        }
+        if (pending.size() > maxPending) {
+            pending.remove(path, job);
+            latest.remove(path, job);
+            return;
+        }
+        executor.execute(() -> render(path));
+    }
+
+    private void render(String path) {
+        RenderJob job = pending.remove(path);
+        if (job == null) {
+            return;
+        }
+        try {
+            String html = documentPipeline.render(documentPipeline.parse(job.contentHash(), job.content()),
+                    RenderProfile.PREVIEW);
+            if (latest.remove(path, job)) {
+                renderCache.put(path, job.contentHash(), html);
+            }
+        } catch (RuntimeException e) {
+            latest.remove(path, job);
+            log.warn("Failed to pre-render {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private record RenderJob(String contentHash, String content) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.dok.service;
+
+import com.example.dok.dto.TextOperationDto;
+
+import java.util.List;
+
+/**
+ * Applies patch operations to document text.
+ */
+public final class TextOperations {
+
+    public static final int MAX_DOCUMENT_LENGTH = 1000000;
+
+    private TextOperations() {
+    }
+
+    public static String apply(String content, List<TextOperationDto> operations) {
+        StringBuilder document = new StringBuilder(content == null ? "" : content);
+        for (TextOperationDto operation : operations) {
+            int start = operation.position();
+            int end = start + operation.deleteCount();
+            if (start < 0 || operation.deleteCount() < 0 || end > document.length()) {
+                throw new IllegalArgumentException("Operation [" + start + ", " + end
+                        + ") is outside the document of length " + document.length() + ".");
+            }
+            document.replace(start, end, operation.text() == null ? "" : operation.text());
+        }
+        if (document.length() > MAX_DOCUMENT_LENGTH) {
+            throw new IllegalArgumentException("Document exceeds the maximum length of " + MAX_DOCUMENT_LENGTH + " characters.");
+        }
+        return document.toString();
+    }
+}
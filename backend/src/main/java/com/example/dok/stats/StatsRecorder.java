@@ -0,0 +1,330 @@
+package com.example.dok.stats;
+
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.markdown.DocumentPipeline;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.service.MarkdownService;
+import com.example.dok.storage.ContentStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the {@code tree_stats} rollups read by {@code /stats}. Every {@link FileChangedEvent} is
+ * turned into a delta of document count, bytes and words for the row of the changed path and of each
+ * of its ancestors. Within a transaction the deltas are combined per path and written once, just before
+ * commit: the previous totals of all saved documents are read with one locking query and every row is
+ * updated by one batch. A path's own row is stripe 0, while the ancestors' deltas go to the stripe the
+ * transaction picked at random out of {@code dok.stats.stripes}, so concurrent writers mostly add to
+ * different rows of the root and other shared directories. Rows are updated in path and stripe order,
+ * so transactions that do meet lock them in the same order. Moves and deletes re-key or drop rows, so the
+ * deltas combined so far are written before them.
+ * Outside a transaction every event is written on its own. Remote events from other nodes of a cluster
+ * are skipped, as that node updated the rows.
+ *
+ * <p>A database from before this table existed is measured once on startup, before requests are
+ * served, which reads every document body.
+ */
+@Component
+public class StatsRecorder implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsRecorder.class);
+    private static final String ADD = "MERGE INTO tree_stats t USING (SELECT CAST(? AS VARCHAR(255)) AS path, "
+            + "CAST(? AS BIGINT) AS document_count, CAST(? AS BIGINT) AS total_bytes, CAST(? AS BIGINT) AS word_count, "
+            + "CAST(? AS TIMESTAMP(6) WITH TIME ZONE) AS last_modified, CAST(? AS INT) AS stripe) s "
+            + "ON t.path = s.path AND t.stripe = s.stripe "
+            + "WHEN MATCHED THEN UPDATE SET document_count = t.document_count + s.document_count, "
+            + "total_bytes = t.total_bytes + s.total_bytes, word_count = t.word_count + s.word_count, "
+            + "last_modified = GREATEST(t.last_modified, s.last_modified) "
+            + "WHEN NOT MATCHED THEN INSERT (path, stripe, document_count, total_bytes, word_count, last_modified) "
+            + "VALUES (s.path, s.stripe, s.document_count, s.total_bytes, s.word_count, s.last_modified)";
+    private static final String INSERT = "INSERT INTO tree_stats (path, document_count, total_bytes, word_count, last_modified) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final int BATCH_SIZE = 500;
+    private static final String SELECT_TOTALS = "SELECT path, document_count, total_bytes, word_count FROM tree_stats "
+            + "WHERE stripe = 0 AND path IN (%s) FOR UPDATE";
+    private static final Comparator<Row> ROW_ORDER = Comparator.comparing(Row::path).thenComparingInt(Row::stripe);
+
+    private final JdbcTemplate jdbc;
+    private final MarkdownFileRepository repository;
+    private final ContentStore contentStore;
+    private final DocumentPipeline documentPipeline;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+
+    record Totals(long documents, long bytes, long words) {
+
+        static final Totals ZERO = new Totals(0, 0, 0);
+
+        Totals plus(Totals other) {
+            return new Totals(documents + other.documents, bytes + other.bytes, words + other.words);
+        }
+
+        Totals minus(Totals other) {
+            return new Totals(documents - other.documents, bytes - other.bytes, words - other.words);
+        }
+    }
+
+    private record Row(String path, int stripe) {
+    }
+
+    /**
+     * Changes of one transaction not written yet: the new totals of saved documents by path, deltas for
+     * the rows of the changed paths themselves, and deltas for their ancestors' rows in {@code stripe}.
+     */
+    private static final class Pending {
+        final int stripe;
+        final Map<String, Totals> documents = new HashMap<>();
+        final Map<String, Totals> own = new HashMap<>();
+        final Map<String, Totals> ancestors = new HashMap<>();
+
+        Pending(int stripe) {
+            this.stripe = stripe;
+        }
+    }
+
+    public StatsRecorder(JdbcTemplate jdbc, MarkdownFileRepository repository, ContentStore contentStore,
+                         DocumentPipeline documentPipeline, PlatformTransactionManager transactionManager,
+                         @Value("${dok.stats.stripes:16}") int stripes) {
+        this.jdbc = jdbc;
+        this.repository = repository;
+        this.contentStore = contentStore;
+        this.documentPipeline = documentPipeline;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stripes = Math.max(1, stripes);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (jdbc.queryForObject("SELECT COUNT(*) FROM tree_stats", Long.class) == 0) {
+            List<FileMetadata> all = repository.findAllMetadata();
+            if (all.stream().anyMatch(metadata -> !metadata.isDirectory())) {
+                rebuild(all);
+            }
+        }
+    }
+
+    @EventListener
+    public void onFileChanged(FileChangedEvent event) {
+        if (event.remote()) {
+            return;
+        }
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        Pending pending = inTransaction ? pending() : newPending();
+        switch (event.type()) {
+            case CREATED, UPDATED -> {
+                if (event.directory()) {
+                    pending.own.merge(event.path(), Totals.ZERO, Totals::plus);
+                    addToAncestors(pending.ancestors, event.path(), Totals.ZERO);
+                } else {
+                    pending.documents.put(event.path(), measure(event.contentHash(), event.content()));
+                }
+            }
+            case MOVED -> {
+                write(pending);
+                Totals moved = totals(event.previousPath());
+                jdbc.update("UPDATE tree_stats SET path = CONCAT(?, SUBSTRING(path, ?)) WHERE path = ? OR path LIKE ? ESCAPE '\\'",
+                        event.path(), event.previousPath().length() + 1, event.previousPath(),
+                        MarkdownService.descendantsPattern(event.previousPath()));
+                addToAncestors(pending.ancestors, event.previousPath(), Totals.ZERO.minus(moved));
+                addToAncestors(pending.ancestors, event.path(), moved);
+            }
+            case DELETED -> {
+                write(pending);
+                Totals removed = totals(event.path());
+                jdbc.update("DELETE FROM tree_stats WHERE path = ? OR path LIKE ? ESCAPE '\\'",
+                        event.path(), MarkdownService.descendantsPattern(event.path()));
+                addToAncestors(pending.ancestors, event.path(), Totals.ZERO.minus(removed));
+            }
+        }
+        if (!inTransaction) {
+            write(pending);
+        }
+    }
+
+    /**
+     * Changes of the current transaction, written by a synchronization just before it commits.
+     */
+    private Pending pending() {
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = newPending();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StatsRecorder.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private Pending newPending() {
+        return new Pending(ThreadLocalRandom.current().nextInt(stripes));
+    }
+
+    /**
+     * Adds the pending changes to their rows and clears them.
+     */
+    private void write(Pending pending) {
+        if (!pending.documents.isEmpty()) {
+            Map<String, Totals> stored = totals(pending.documents.keySet());
+            pending.documents.forEach((path, measured) -> {
+                Totals delta = measured.minus(stored.getOrDefault(path, Totals.ZERO));
+                pending.own.merge(path, delta, Totals::plus);
+                addToAncestors(pending.ancestors, path, delta);
+            });
+            pending.documents.clear();
+        }
+        if (pending.own.isEmpty() && pending.ancestors.isEmpty()) {
+            return;
+        }
+        Map<Row, Totals> deltas = new TreeMap<>(ROW_ORDER);
+        pending.own.forEach((path, delta) -> deltas.merge(new Row(path, 0), delta, Totals::plus));
+        pending.ancestors.forEach((path, delta) -> deltas.merge(new Row(path, pending.stripe), delta, Totals::plus));
+        pending.own.clear();
+        pending.ancestors.clear();
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Map.Entry<Row, Totals>> rows = new ArrayList<>(deltas.entrySet());
+        jdbc.batchUpdate(ADD, rows, BATCH_SIZE, (statement, row) -> {
+            statement.setString(1, row.getKey().path());
+            statement.setLong(2, row.getValue().documents());
+            statement.setLong(3, row.getValue().bytes());
+            statement.setLong(4, row.getValue().words());
+            statement.setTimestamp(5, now);
+            statement.setInt(6, row.getKey().stripe());
+        });
+    }
+
+    /**
+     * Current totals of the documents at {@code paths}, locking their rows until the transaction ends.
+     * A document only has a stripe 0 row. Paths are queried in sorted chunks, so the locks are taken in
+     * path order.
+     */
+    private Map<String, Totals> totals(Collection<String> paths) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(paths));
+        Map<String, Totals> totals = new HashMap<>();
+        for (int start = 0; start < sorted.size(); start += BATCH_SIZE) {
+            List<String> chunk = sorted.subList(start, Math.min(sorted.size(), start + BATCH_SIZE));
+            jdbc.query(String.format(SELECT_TOTALS, String.join(", ", Collections.nCopies(chunk.size(), "?"))),
+                    rs -> {
+                        totals.put(rs.getString(1), new Totals(rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+                    }, chunk.toArray());
+        }
+        return totals;
+    }
+
+    /**
+     * Current totals of a path over all its stripes, locking its rows until the transaction ends.
+     */
+    private Totals totals(String path) {
+        return jdbc.query("SELECT document_count, total_bytes, word_count FROM tree_stats WHERE path = ? ORDER BY stripe FOR UPDATE",
+                (rs, rowNum) -> new Totals(rs.getLong(1), rs.getLong(2), rs.getLong(3)), path)
+                .stream().reduce(Totals.ZERO, Totals::plus);
+    }
+
+    private static void addToAncestors(Map<String, Totals> deltas, String path, Totals delta) {
+        for (String ancestor = MarkdownService.parentPathOf(path); ancestor != null; ancestor = MarkdownService.parentPathOf(ancestor)) {
+            deltas.merge(ancestor, delta, Totals::plus);
+        }
+    }
+
+    /**
+     * Totals of a single document. Words are counted on the shared parse, as in {@code /outline}.
+     */
+    Totals measure(String contentHash, String content) {
+        if (content == null) {
+            return new Totals(1, 0, 0);
+        }
+        return new Totals(1, utf8Length(content), documentPipeline.parse(contentHash, content).outline().wordCount());
+    }
+
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    void rebuild(List<FileMetadata> all) {
+        long started = System.nanoTime();
+        Map<FileMetadata, Totals> documents = all.parallelStream()
+                .filter(metadata -> !metadata.isDirectory())
+                .collect(Collectors.toConcurrentMap(Function.identity(), metadata ->
+                        measure(metadata.contentHash(), contentStore.read(metadata.id(), metadata.path()).orElse(null))));
+
+        Map<String, Totals> totals = new HashMap<>();
+        Map<String, Instant> lastModified = new HashMap<>();
+        for (FileMetadata metadata : all) {
+            totals.putIfAbsent(metadata.path(), Totals.ZERO);
+            if (metadata.lastModified() != null) {
+                lastModified.merge(metadata.path(), metadata.lastModified(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+        documents.forEach((metadata, document) -> {
+            totals.merge(metadata.path(), document, Totals::plus);
+            addToAncestors(totals, metadata.path(), document);
+            if (metadata.lastModified() != null) {
+                for (String ancestor = MarkdownService.parentPathOf(metadata.path()); ancestor != null;
+                     ancestor = MarkdownService.parentPathOf(ancestor)) {
+                    lastModified.merge(ancestor, metadata.lastModified(), (a, b) -> a.isAfter(b) ? a : b);
+                }
+            }
+        });
+
+        List<Map.Entry<String, Totals>> rows = new ArrayList<>(totals.entrySet());
+        transactionTemplate.executeWithoutResult(status -> jdbc.batchUpdate(INSERT, rows, BATCH_SIZE, (statement, row) -> {
+            Instant modified = lastModified.get(row.getKey());
+            statement.setString(1, row.getKey());
+            statement.setLong(2, row.getValue().documents());
+            statement.setLong(3, row.getValue().bytes());
+            statement.setLong(4, row.getValue().words());
+            statement.setTimestamp(5, modified == null ? null : Timestamp.from(modified));
+        }));
+        log.info("Tree statistics built for {} documents in {} ms", documents.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+}
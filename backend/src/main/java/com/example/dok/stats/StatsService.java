@@ -0,0 +1,49 @@
+package com.example.dok.stats;
+
+import com.example.dok.dto.TreeStatsDto;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.service.MarkdownService;
+import com.example.dok.tree.TreeIndex;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+
+@Service
+public class StatsService {
+
+    private final JdbcTemplate jdbc;
+    private final TreeIndex index;
+
+    public StatsService(JdbcTemplate jdbc, TreeIndex index) {
+        this.jdbc = jdbc;
+        this.index = index;
+    }
+
+    /**
+     * Totals of a document or directory subtree, summed over the stripe rows of its path. A directory
+     * nothing has been added to yet has no rows and reports zeros.
+     *
+     * @throws FileNotFoundException if there is nothing at {@code path}
+     */
+    public TreeStatsDto stats(String path) {
+        String normalizedPath = MarkdownService.normalizePath(path);
+        TreeStatsDto stats = jdbc.queryForObject(
+                "SELECT COUNT(*), SUM(document_count), SUM(total_bytes), SUM(word_count), MAX(last_modified) "
+                        + "FROM tree_stats WHERE path = ?",
+                (rs, rowNum) -> {
+                    if (rs.getLong(1) == 0) {
+                        return null;
+                    }
+                    Timestamp lastModified = rs.getTimestamp(5);
+                    return new TreeStatsDto(normalizedPath, rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                            lastModified == null ? null : lastModified.toInstant());
+                }, normalizedPath);
+        if (stats != null) {
+            return stats;
+        }
+        FileMetadata metadata = index.find(normalizedPath).orElseThrow(() -> new FileNotFoundException(normalizedPath));
+        return new TreeStatsDto(normalizedPath, metadata.isDirectory() ? 0 : 1, 0, 0, metadata.lastModified());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.dok.storage;
+
+import com.example.dok.dto.TextOperationDto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of document bodies beneath {@code MarkdownService}. The tree itself (paths, ids, versions and
+ * content hashes) always lives in the database; implementations only decide where the bodies go.
+ * Documents are identified by both their id and their current path, so a store can be keyed by either.
+ * Writes are made inside the caller's transaction and become visible when it commits.
+ *
+ * <p>The implementation is chosen with {@code dok.storage.type}: {@code jpa} (the default) keeps bodies in
+ * the database, {@code filesystem} keeps them as {@code .md} files in a directory tree.
+ */
+public interface ContentStore {
+
+    /**
+     * Whether a log of {@code pendingOperations} entries should be folded back into the stored body.
+     * Stores without an operation log always return {@code true}, so every save is written whole.
+     */
+    boolean shouldCompact(int pendingOperations);
+
+    Optional<String> read(Long fileId, String path);
+
+    /**
+     * Opens the current body of a document for streaming, without materializing it where the store allows.
+     * A document without a stored body opens as empty. The caller closes the returned body.
+     */
+    StoredBody open(Long fileId, String path) throws IOException;
+
+    void create(Long fileId, String path, String content);
+
+    /**
+     * Stores {@code content} as the whole body at {@code version}, replacing any logged operations.
+     */
+    void write(Long fileId, String path, long version, String content);
+
+    /**
+     * Stores several whole bodies at once, as {@link #write} would one by one. Stores that can batch
+     * the statements override this.
+     */
+    default void writeAll(List<ContentWrite> writes) {
+        for (ContentWrite write : writes) {
+            write(write.fileId(), write.path(), write.version(), write.content());
+        }
+    }
+
+    /**
+     * Records {@code operations} as the change from the previous version to {@code version}.
+     */
+    void append(Long fileId, String path, long version, List<TextOperationDto> operations);
+
+    /**
+     * Follows a move of the document or directory at {@code oldPath} to {@code newPath}.
+     */
+    void move(String oldPath, String newPath);
+
+    void delete(Long fileId, String path);
+
+    /**
+     * Deletes the bodies of the directory at {@code path} and everything below it.
+     *
+     * @param descendantsPattern LIKE pattern matching the descendants, see {@code MarkdownService}
+     */
+    void deleteSubtree(String path, String descendantsPattern);
+}
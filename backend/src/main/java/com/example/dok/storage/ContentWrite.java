@@ -0,0 +1,7 @@
+package com.example.dok.storage;
+
+/**
+ * One whole-body write in a {@link ContentStore#writeAll} batch.
+ */
+public record ContentWrite(Long fileId, String path, long version, String content) {
+}
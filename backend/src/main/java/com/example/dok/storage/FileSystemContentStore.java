@@ -0,0 +1,517 @@
+package com.example.dok.storage;
+
+import com.example.dok.dto.TextOperationDto;
+import com.example.dok.event.ExternalEditEvent;
+import com.example.dok.service.ContentHash;
+import com.example.dok.service.TextOperations;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps every document as a plain file under {@code dok.storage.filesystem.root}, mirroring the tree
+ * paths, so the bodies can be read, edited and backed up with ordinary tools. Writes are staged in a
+ * temporary file next to the target and renamed into place with an atomic {@link Files#move} when the
+ * surrounding transaction commits; moves and deletes are applied at the same point. Replaced and deleted
+ * files are kept aside until the commit has succeeded, so a failed commit can restore them. {@code /raw} is
+ * copied from an open {@link FileChannel} without decoding. A {@link WatchService} picks up edits made
+ * outside the application and publishes them as {@link ExternalEditEvent}s.
+ */
+@Component
+@ConditionalOnProperty(name = "dok.storage.type", havingValue = "filesystem")
+public class FileSystemContentStore implements ContentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemContentStore.class);
+    private static final String TEMP_SUFFIX = ".dok-tmp";
+
+    private final Path root;
+    private final boolean watch;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    /**
+     * Hash of the last body this store renamed into place per file, so the watcher can tell its own
+     * writes from external ones before the transaction that made them has committed.
+     */
+    private final Map<Path, String> ownWrites = new ConcurrentHashMap<>();
+    private final ExecutorService watcherExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "content-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile WatchService watchService;
+
+    public FileSystemContentStore(@Value("${dok.storage.filesystem.root:./dok-files}") String root,
+                                  @Value("${dok.storage.filesystem.watch:true}") boolean watch,
+                                  ApplicationEventPublisher eventPublisher, EntityManager entityManager) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.watch = watch;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public boolean shouldCompact(int pendingOperations) {
+        return true;
+    }
+
+    @Override
+    public Optional<String> read(Long fileId, String path) {
+        try {
+            return Optional.of(new String(Files.readAllBytes(resolve(path)), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens the file and hashes it through the open channel. Writes replace the file by renaming, so
+     * the channel keeps reading the body that was hashed.
+     */
+    @Override
+    public StoredBody open(Long fileId, String path) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(resolve(path), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return StoredBody.of("");
+        }
+        try {
+            return new FileBody(channel, ContentHash.of(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void create(Long fileId, String path, String content) {
+        write(fileId, path, 0, content);
+    }
+
+    @Override
+    public void write(Long fileId, String path, long version, String content) {
+        Path target = resolve(path);
+        String contentHash = ContentHash.of(content);
+        Path staged;
+        try {
+            Files.createDirectories(target.getParent());
+            staged = Files.createTempFile(target.getParent(), "." + target.getFileName(), TEMP_SUFFIX);
+            Files.writeString(staged, content, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        onCommit(new FileChange() {
+            @Override
+            public Applied apply() throws IOException {
+                Path previous = Files.exists(target, LinkOption.NOFOLLOW_LINKS) ? keep(target) : null;
+                String previousHash = ownWrites.put(target, contentHash);
+                try {
+                    Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    restoreOwnWrite(target, previousHash);
+                    if (previous != null) {
+                        Files.deleteIfExists(previous);
+                    }
+                    throw e;
+                }
+                return new Applied(() -> {
+                    restoreOwnWrite(target, previousHash);
+                    if (previous != null) {
+                        Files.move(previous, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } else {
+                        Files.deleteIfExists(target);
+                    }
+                }, () -> {
+                    if (previous != null) {
+                        Files.deleteIfExists(previous);
+                    }
+                });
+            }
+
+            @Override
+            public void discard() throws IOException {
+                Files.deleteIfExists(staged);
+            }
+        });
+    }
+
+    /**
+     * Never called in practice since {@link #shouldCompact} always asks for whole writes.
+     */
+    @Override
+    public void append(Long fileId, String path, long version, List<TextOperationDto> operations) {
+        write(fileId, path, version, TextOperations.apply(read(fileId, path).orElse(""), operations));
+    }
+
+    @Override
+    public void move(String oldPath, String newPath) {
+        Path source = resolve(oldPath);
+        Path target = resolve(newPath);
+        onCommit(() -> {
+            if (!Files.exists(source, LinkOption.NOFOLLOW_LINKS)) {
+                return Applied.NOTHING;
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return new Applied(() -> Files.move(target, source, StandardCopyOption.ATOMIC_MOVE), () -> {
+            });
+        });
+    }
+
+    /**
+     * Moves the file aside rather than deleting it, so a rollback can put it back.
+     */
+    @Override
+    public void delete(Long fileId, String path) {
+        Path file = resolve(path);
+        onCommit(() -> {
+            if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+                return Applied.NOTHING;
+            }
+            Path removed = Files.move(file, aside(file), StandardCopyOption.ATOMIC_MOVE);
+            return new Applied(() -> Files.move(removed, file, StandardCopyOption.ATOMIC_MOVE), () -> {
+                ownWrites.remove(file);
+                Files.deleteIfExists(removed);
+            });
+        });
+    }
+
+    /**
+     * Moves the directory aside in one rename and deletes it once the transaction has committed.
+     */
+    @Override
+    public void deleteSubtree(String path, String descendantsPattern) {
+        Path directory = resolve(path);
+        onCommit(() -> {
+            if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+                return Applied.NOTHING;
+            }
+            Path removed = Files.move(directory, aside(directory), StandardCopyOption.ATOMIC_MOVE);
+            return new Applied(() -> Files.move(removed, directory, StandardCopyOption.ATOMIC_MOVE), () -> {
+                ownWrites.keySet().removeIf(file -> file.startsWith(directory));
+                deleteTree(removed);
+            });
+        });
+    }
+
+    private static void deleteTree(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Starts watching the storage root. The initial walk also reports every file, which reconciles
+     * edits made while the application was not running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWatching() throws IOException {
+        if (!watch) {
+            return;
+        }
+        watchService = root.getFileSystem().newWatchService();
+        watcherExecutor.execute(this::watchLoop);
+    }
+
+    private void watchLoop() {
+        try {
+            register(root);
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                Set<Path> changed = new LinkedHashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        register(root);
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (isStaged(path)) {
+                        continue;
+                    }
+                    if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        if (event.kind() == ENTRY_CREATE) {
+                            register(path);
+                        }
+                    } else {
+                        changed.add(path);
+                    }
+                }
+                changed.forEach(this::report);
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Stopped watching {} for external edits", root, e);
+        }
+    }
+
+    /**
+     * Watches {@code start} and every directory below it, and reports the files found there.
+     */
+    private void register(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                if (isStaged(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                report(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void report(Path file) {
+        if (isStaged(file) || !Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            String contentHash = ContentHash.of(content);
+            if (!contentHash.equals(ownWrites.get(file))) {
+                eventPublisher.publishEvent(new ExternalEditEvent(documentPath(file), content, contentHash));
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted again before it could be read.
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to apply external edit of {}", file, e);
+        }
+    }
+
+    /**
+     * Whether {@code path} is one of this store's temporary names, or lies below one.
+     */
+    private boolean isStaged(Path path) {
+        for (Path name : root.relativize(path)) {
+            if (name.toString().endsWith(TEMP_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Path resolve(String path) {
+        Path resolved = root.resolve(path.startsWith("/") ? path.substring(1) : path).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IllegalArgumentException("Path is outside the storage root: " + path);
+        }
+        return resolved;
+    }
+
+    private String documentPath(Path file) {
+        return "/" + root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * A sibling name for {@code path} that the watcher ignores.
+     */
+    private static Path aside(Path path) {
+        return path.resolveSibling("." + path.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Keeps the current body of {@code target} under another name, as a hard link where the file
+     * system has them.
+     */
+    private static Path keep(Path target) throws IOException {
+        Path previous = aside(target);
+        try {
+            return Files.createLink(previous, target);
+        } catch (UnsupportedOperationException e) {
+            return Files.copy(target, previous, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private void restoreOwnWrite(Path target, String previousHash) {
+        if (previousHash != null) {
+            ownWrites.put(target, previousHash);
+        } else {
+            ownWrites.remove(target);
+        }
+    }
+
+    /**
+     * Applies {@code change} when the current transaction commits, or right away outside a transaction.
+     */
+    private void onCommit(FileChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                change.apply().release().run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    /**
+     * File changes of one transaction. They are applied just before it commits, after the persistence
+     * context has been flushed so that version conflicts surface first. If the commit fails anyway, the
+     * applied changes are undone in reverse order and the ones never applied are discarded.
+     */
+    private final class Pending implements TransactionSynchronization {
+
+        private final List<FileChange> changes = new ArrayList<>();
+        private final List<Applied> applied = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                entityManager.flush();
+            }
+            try {
+                for (FileChange change : changes.subList(applied.size(), changes.size())) {
+                    applied.add(change.apply());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(FileSystemContentStore.this);
+            try {
+                if (status == STATUS_COMMITTED) {
+                    for (Applied change : applied) {
+                        change.release().run();
+                    }
+                    return;
+                }
+                for (int i = applied.size() - 1; i >= 0; i--) {
+                    applied.get(i).undo().run();
+                }
+                for (FileChange change : changes.subList(applied.size(), changes.size())) {
+                    change.discard();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to clean up the files of a {} transaction",
+                        status == STATUS_COMMITTED ? "committed" : "rolled back", e);
+            }
+        }
+    }
+
+    /**
+     * A change to the files, applied when the transaction commits.
+     */
+    @FunctionalInterface
+    private interface FileChange {
+
+        Applied apply() throws IOException;
+
+        /**
+         * Cleans up after a change that is not going to be applied.
+         */
+        default void discard() throws IOException {
+        }
+    }
+
+    /**
+     * An applied change: {@code undo} puts the files back as they were, {@code release} drops what undo
+     * would have needed once the transaction has committed.
+     */
+    private record Applied(IoAction undo, IoAction release) {
+
+        static final Applied NOTHING = new Applied(() -> {
+        }, () -> {
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        watcherExecutor.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private record FileBody(FileChannel channel, String contentHash) implements StoredBody {
+
+        @Override
+        public void transferTo(OutputStream out) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.dok.storage;
+
+import com.example.dok.dto.TextOperationDto;
+import com.example.dok.model.ContentOperation;
+import com.example.dok.model.MarkdownContent;
+import com.example.dok.repository.ContentOperationRepository;
+import com.example.dok.repository.MarkdownContentRepository;
+import com.example.dok.service.TextOperations;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps document bodies in the database: a compacted content row per file plus an append-only log
+ * of the patch operations applied since. Reads replay the log; writes either append to it or replace
+ * the row. Rows are keyed by file id, so moves need no work here.
+ */
+@Component
+@ConditionalOnProperty(name = "dok.storage.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaContentStore implements ContentStore {
+
+    private final MarkdownContentRepository contentRepository;
+    private final ContentOperationRepository operationRepository;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbc;
+    private final int compactionThreshold;
+
+    public JpaContentStore(MarkdownContentRepository contentRepository, ContentOperationRepository operationRepository,
+                           EntityManager entityManager, JdbcTemplate jdbc,
+                           @Value("${dok.content.compaction-threshold:50}") int compactionThreshold) {
+        this.contentRepository = contentRepository;
+        this.operationRepository = operationRepository;
+        this.entityManager = entityManager;
+        this.jdbc = jdbc;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public boolean shouldCompact(int pendingOperations) {
+        return pendingOperations >= compactionThreshold;
+    }
+
+    @Override
+    public Optional<String> read(Long fileId, String path) {
+        return contentRepository.findById(fileId).map(stored -> {
+            List<ContentOperation> pending = operationRepository
+                    .findByFileIdAndVersionGreaterThanOrderByVersionAscOpIndexAsc(fileId, stored.getVersion());
+            if (pending.isEmpty()) {
+                return stored.getContent();
+            }
+            List<TextOperationDto> operations = pending.stream()
+                    .map(op -> new TextOperationDto(op.getStartIndex(), op.getDeleteLength(), op.getInsertText()))
+                    .toList();
+            return TextOperations.apply(stored.getContent(), operations);
+        });
+    }
+
+    /**
+     * Reads the body whole: a LOB can only be streamed while its connection is held, and the body has to
+     * be fixed before the response headers describing it are sent.
+     */
+    @Override
+    public StoredBody open(Long fileId, String path) {
+        return StoredBody.of(read(fileId, path).orElse(""));
+    }
+
+    /**
+     * Persists the row directly: its id is assigned, so {@code save} would query for it first and
+     * break insert batching during imports.
+     */
+    @Override
+    public void create(Long fileId, String path, String content) {
+        entityManager.persist(MarkdownContent.builder().fileId(fileId).version(0).content(content).build());
+    }
+
+    @Override
+    public void write(Long fileId, String path, long version, String content) {
+        if (contentRepository.updateContent(fileId, content, version) == 0) {
+            contentRepository.save(MarkdownContent.builder().fileId(fileId).version(version).content(content).build());
+        }
+        operationRepository.deleteByFileId(fileId);
+    }
+
+    /**
+     * Updates the content rows and clears the operation logs in two JDBC batches; files that have no
+     * content row yet get one inserted.
+     */
+    @Override
+    public void writeAll(List<ContentWrite> writes) {
+        int[][] updated = jdbc.batchUpdate("UPDATE markdown_content SET content = ?, version = ? WHERE file_id = ?",
+                writes, writes.size(), (statement, write) -> {
+                    statement.setString(1, write.content());
+                    statement.setLong(2, write.version());
+                    statement.setLong(3, write.fileId());
+                });
+        for (int i = 0; i < writes.size(); i++) {
+            if (updated.length > 0 && updated[0][i] == 0) {
+                ContentWrite write = writes.get(i);
+                contentRepository.save(MarkdownContent.builder()
+                        .fileId(write.fileId()).version(write.version()).content(write.content()).build());
+            }
+        }
+        jdbc.batchUpdate("DELETE FROM content_operation WHERE file_id = ?",
+                writes, writes.size(), (statement, write) -> statement.setLong(1, write.fileId()));
+    }
+
+    @Override
+    public void append(Long fileId, String path, long version, List<TextOperationDto> operations) {
+        List<ContentOperation> entries = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            TextOperationDto operation = operations.get(i);
+            entries.add(ContentOperation.builder()
+                    .fileId(fileId)
+                    .version(version)
+                    .opIndex(i)
+                    .startIndex(operation.position())
+                    .deleteLength(operation.deleteCount())
+                    .insertText(operation.text())
+                    .build());
+        }
+        operationRepository.saveAll(entries);
+    }
+
+    @Override
+    public void move(String oldPath, String newPath) {
+    }
+
+    @Override
+    public void delete(Long fileId, String path) {
+        operationRepository.deleteByFileId(fileId);
+        contentRepository.deleteById(fileId);
+    }
+
+    @Override
+    public void deleteSubtree(String path, String descendantsPattern) {
+        operationRepository.deleteSubtree(path, descendantsPattern);
+        contentRepository.deleteSubtree(path, descendantsPattern);
+    }
+}
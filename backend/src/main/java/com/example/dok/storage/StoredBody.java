@@ -0,0 +1,47 @@
+package com.example.dok.storage;
+
+import com.example.dok.service.ContentHash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A document body opened by {@link ContentStore#open}. It is fixed when it is opened: writes made
+ * afterwards do not change what {@link #transferTo} copies, so its hash describes the bytes sent.
+ */
+public interface StoredBody extends Closeable {
+
+    /**
+     * SHA-256 of the body, as {@link ContentHash#of} computes it for the text.
+     */
+    String contentHash();
+
+    /**
+     * Copies the body to {@code out} as UTF-8.
+     */
+    void transferTo(OutputStream out) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * A body already held in memory.
+     */
+    static StoredBody of(String content) {
+        String contentHash = ContentHash.of(content);
+        return new StoredBody() {
+            @Override
+            public String contentHash() {
+                return contentHash;
+            }
+
+            @Override
+            public void transferTo(OutputStream out) throws IOException {
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.dok.tree;
+
+import com.example.dok.dto.DirectoryEntryDto;
+import com.example.dok.dto.FileEntryDto;
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.service.MarkdownService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the metadata of every document and directory, loaded at startup and kept in step
+ * with each mutation as its transaction commits. Path lookups, existence checks and listings read it
+ * instead of querying the database. The children of each directory are kept in listing order
+ * (directories first, then by name) under the same position strings listing cursors encode, so a page
+ * is a slice of one sorted map.
+ *
+ * <p>Mutations are applied after commit, so a rolled-back write never shows, and carry the metadata
+ * as stored rather than a change to it, so commits applied out of order still converge: an update of a
+ * path that has moved or gone in the meantime is dropped, as is one older than the indexed version.
+ * Changes made by other nodes of a cluster are refreshed from the database as they are replayed.
+ */
+@Component
+// The cluster change log fixes its starting position first, so no change is lost between that and the load.
+@DependsOn("clusterChangeLog")
+public class TreeIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TreeIndex.class);
+
+    private final MarkdownFileRepository repository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, FileMetadata> byPath = new HashMap<>();
+    private final Map<String, NavigableMap<String, FileMetadata>> children = new HashMap<>();
+
+    public TreeIndex(MarkdownFileRepository repository) {
+        this.repository = repository;
+        reload();
+    }
+
+    /**
+     * Rebuilds the index from the database, for rows written without going through the application.
+     */
+    public void reload() {
+        long started = System.nanoTime();
+        List<FileMetadata> all = repository.findAllMetadata();
+        apply(() -> {
+            byPath.clear();
+            children.clear();
+            all.forEach(this::insert);
+        });
+        log.info("Indexed {} documents and directories in {} ms", all.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Listing position of an entry: its kind, {@code d} or {@code f}, followed by its name. Positions
+     * sort directories before documents and each kind by name.
+     */
+    public static String position(boolean isDirectory, String name) {
+        return (isDirectory ? "d" : "f") + name;
+    }
+
+    private static String nameOf(String path) {
+        return path.equals("/") ? "/" : path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String positionOf(FileMetadata metadata) {
+        return position(metadata.isDirectory(), nameOf(metadata.path()));
+    }
+
+    /**
+     * @param path a normalized path
+     */
+    public Optional<FileMetadata> find(String path) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(byPath.get(path));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean exists(String path) {
+        return find(path).isPresent();
+    }
+
+    /**
+     * Direct children of a directory in listing order; empty if there is no such directory.
+     */
+    public List<FileEntryDto> children(String path) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, FileMetadata> entries = children.get(path);
+            if (entries == null) {
+                return List.of();
+            }
+            List<FileEntryDto> result = new ArrayList<>(entries.size());
+            for (FileMetadata child : entries.values()) {
+                result.add(new FileEntryDto(nameOf(child.path()), child.path(), child.isDirectory()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} children of a directory with their own child counts, starting after
+     * {@code afterPosition}, or from the first child when it is null.
+     */
+    public List<DirectoryEntryDto> children(String path, String afterPosition, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, FileMetadata> entries = children.get(path);
+            if (entries == null) {
+                return List.of();
+            }
+            Collection<FileMetadata> remaining = afterPosition == null
+                    ? entries.values()
+                    : entries.tailMap(afterPosition, false).values();
+            List<DirectoryEntryDto> result = new ArrayList<>(Math.min(limit, remaining.size()));
+            for (FileMetadata child : remaining) {
+                if (result.size() == limit) {
+                    break;
+                }
+                NavigableMap<String, FileMetadata> grandchildren = children.get(child.path());
+                result.add(new DirectoryEntryDto(nameOf(child.path()), child.path(), child.isDirectory(),
+                        grandchildren == null ? 0 : grandchildren.size()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a new document or directory once the current transaction commits.
+     */
+    public void add(FileMetadata metadata) {
+        afterCommit(() -> insert(metadata));
+    }
+
+    /**
+     * Records a save of a document once the current transaction commits, unless the path has been
+     * taken over by another file or the index already holds a later version.
+     */
+    public void update(FileMetadata metadata) {
+        afterCommit(() -> {
+            FileMetadata current = byPath.get(metadata.path());
+            if (current != null && current.id().equals(metadata.id()) && current.version() <= metadata.version()) {
+                insert(metadata);
+            }
+        });
+    }
+
+    /**
+     * Replaces the subtree at {@code fromPath} with {@code subtree}, the moved entry and all its
+     * descendants as stored at their new paths, once the current transaction commits.
+     */
+    public void move(String fromPath, List<FileMetadata> subtree) {
+        afterCommit(() -> replaceSubtree(fromPath, subtree));
+    }
+
+    /**
+     * Drops an entry and, for a directory, everything below it once the current transaction commits.
+     */
+    public void remove(String path) {
+        afterCommit(() -> removeSubtree(path));
+    }
+
+    /**
+     * Re-reads the paths a change made on another node touched.
+     */
+    @EventListener
+    public void onFileChanged(FileChangedEvent event) {
+        if (!event.remote()) {
+            return;
+        }
+        if (event.previousPath() != null) {
+            apply(() -> removeSubtree(event.previousPath()));
+        }
+        List<FileMetadata> subtree = repository.findSubtreeMetadata(event.path(),
+                MarkdownService.descendantsPattern(event.path()));
+        apply(() -> replaceSubtree(event.path(), subtree));
+    }
+
+    private void afterCommit(Runnable mutation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(mutation);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(mutation);
+            }
+        });
+    }
+
+    private void apply(Runnable mutation) {
+        lock.writeLock().lock();
+        try {
+            mutation.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(FileMetadata metadata) {
+        byPath.put(metadata.path(), metadata);
+        String parentPath = MarkdownService.parentPathOf(metadata.path());
+        if (parentPath != null) {
+            children.computeIfAbsent(parentPath, key -> new TreeMap<>()).put(positionOf(metadata), metadata);
+        }
+    }
+
+    private void replaceSubtree(String path, List<FileMetadata> subtree) {
+        removeSubtree(path);
+        subtree.forEach(this::insert);
+    }
+
+    private void removeSubtree(String path) {
+        FileMetadata removed = byPath.remove(path);
+        if (removed == null) {
+            return;
+        }
+        String parentPath = MarkdownService.parentPathOf(path);
+        NavigableMap<String, FileMetadata> siblings = parentPath == null ? null : children.get(parentPath);
+        if (siblings != null) {
+            siblings.remove(positionOf(removed));
+            if (siblings.isEmpty()) {
+                children.remove(parentPath);
+            }
+        }
+        NavigableMap<String, FileMetadata> own = children.remove(path);
+        if (own != null) {
+            own.values().forEach(child -> removeSubtree(child.path()));
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package com.example.dok.writebehind;
+
+import com.example.dok.dto.PatchFileContentRequestDto;
+import com.example.dok.dto.SaveResultDto;
+import com.example.dok.dto.TextOperationDto;
+import com.example.dok.dto.UpdateFileContentRequestDto;
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.exception.VersionConflictException;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.revisions.RevisionRecorder;
+import com.example.dok.service.ContentHash;
+import com.example.dok.service.DokMetrics;
+import com.example.dok.service.MarkdownService;
+import com.example.dok.service.RenderCache;
+import com.example.dok.service.TextOperations;
+import com.example.dok.storage.ContentStore;
+import com.example.dok.storage.ContentWrite;
+import com.example.dok.tree.TreeIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Optional write-behind mode for saves ({@code dok.write-behind.enabled}). A save lands in an
+ * in-memory entry per path and is acknowledged with its new version right away; reads through
+ * {@code MarkdownService} see the buffered content. Every {@code dok.write-behind.flush-millis} the
+ * flusher writes the latest content of each buffered path, however many saves it coalesces, in
+ * transactions of up to {@code dok.write-behind.batch-size} documents using JDBC batches. The database
+ * version is set to the acknowledged version, so clients keep using the versions they were given.
+ * {@code FileChangedEvent}s are published per flushed document, after commit.
+ *
+ * <p>Saves are appended to a {@link WriteBehindJournal} first when {@code dok.write-behind.journal-dir}
+ * is set, and replayed on startup. Without a journal a crash loses at most one flush interval of saves;
+ * with one it loses nothing acknowledged ({@code sync=always}), at most one interval that the operating
+ * system had not yet written ({@code interval}), or whatever the operating system had not written
+ * ({@code never}). Moves, deletes and exports flush the buffer first.
+ *
+ * <p>A flush only writes a document still at the version its entry was loaded at. When the document
+ * was changed, moved or deleted elsewhere in the meantime, which the next save notices as well, the
+ * buffered content is kept as a revision instead and the next save of the path fails with a
+ * {@link VersionConflictException} saying so.
+ */
+@Component
+public class WriteBehindBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindBuffer.class);
+    private static final String UPDATE_FILE = "UPDATE markdown_file SET content_hash = ?, last_modified = ?, " +
+            "pending_operations = 0, version = ? WHERE id = ? AND version = ?";
+
+    private final boolean enabled;
+    private final TreeIndex index;
+    private final ContentStore contentStore;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RenderCache renderCache;
+    private final RevisionRecorder revisionRecorder;
+    private final DokMetrics metrics;
+    private final long flushMillis;
+    private final int batchSize;
+    private final WriteBehindJournal journal;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * Latest version acknowledged for buffered saves that were kept as a revision, per path, until a
+     * save of the path is told about them.
+     */
+    private final Map<String, Long> conflicts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "write-behind-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WriteBehindBuffer(TreeIndex index, ContentStore contentStore, JdbcTemplate jdbc,
+                             PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                             RenderCache renderCache, RevisionRecorder revisionRecorder, DokMetrics metrics,
+                             @Value("${dok.write-behind.enabled:false}") boolean enabled,
+                             @Value("${dok.write-behind.flush-millis:1000}") long flushMillis,
+                             @Value("${dok.write-behind.batch-size:200}") int batchSize,
+                             @Value("${dok.write-behind.journal-dir:./dok-journal}") String journalDir,
+                             @Value("${dok.write-behind.sync:interval}") String sync) {
+        this.enabled = enabled;
+        this.index = index;
+        this.contentStore = contentStore;
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.renderCache = renderCache;
+        this.revisionRecorder = revisionRecorder;
+        this.metrics = metrics;
+        this.flushMillis = Math.max(1, flushMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.journal = enabled && !journalDir.isBlank() ? openJournal(journalDir, sync) : null;
+    }
+
+    private WriteBehindJournal openJournal(String directory, String sync) {
+        try {
+            WriteBehindJournal opened = new WriteBehindJournal(Path.of(directory),
+                    WriteBehindJournal.Sync.valueOf(sync.toUpperCase(Locale.ROOT)));
+            List<WriteBehindJournal.Entry> replayed = opened.replay();
+            Map<String, Map<Long, String>> journaled = new HashMap<>();
+            for (WriteBehindJournal.Entry saved : replayed) {
+                journaled.computeIfAbsent(saved.path(), path -> new HashMap<>())
+                        .put(saved.version(), ContentHash.of(saved.content()));
+                Entry entry = entries.computeIfAbsent(saved.path(), Entry::new);
+                if (entry.fileId == null || saved.version() > entry.version) {
+                    entry.fileId = saved.fileId();
+                    entry.dbVersion = saved.baseVersion();
+                    entry.version = saved.version();
+                    entry.content = saved.content();
+                    entry.contentHash = ContentHash.of(saved.content());
+                    entry.lastModified = saved.lastModified();
+                    entry.dirty = true;
+                }
+            }
+            for (Entry entry : List.copyOf(entries.values())) {
+                // A flush may have committed some of the saves before the journal segment was deleted.
+                index.find(entry.path)
+                        .filter(current -> current.id().equals(entry.fileId)
+                                && current.contentHash() != null
+                                && current.contentHash().equals(journaled.get(entry.path).get(current.version())))
+                        .ifPresent(current -> {
+                            entry.dbVersion = current.version();
+                            if (current.version() == entry.version) {
+                                entry.dirty = false;
+                                retire(entry);
+                            }
+                        });
+            }
+            if (!replayed.isEmpty()) {
+                log.info("Replayed {} journaled saves of {} documents", replayed.size(), entries.size());
+            }
+            return opened;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the write-behind journal in " + directory, e);
+        }
+    }
+
+    private static final class Entry {
+        final String path;
+        Long fileId;
+        /**
+         * Version of the document in the database, as of the last flush.
+         */
+        long dbVersion;
+        /**
+         * Version acknowledged for the latest save.
+         */
+        long version;
+        /**
+         * Latest content, or null while the entry holds no save and the content was not needed yet.
+         */
+        String content;
+        String contentHash;
+        Instant lastModified;
+        boolean dirty;
+        /**
+         * Set once the entry has left the map; a save that finds it retired starts over with a new one.
+         */
+        boolean retired;
+
+        Entry(String path) {
+            this.path = path;
+        }
+    }
+
+    private record Snapshot(Entry entry, long fileId, String path, long baseVersion, long version,
+                            String content, String contentHash, Instant lastModified) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Buffered counterpart of {@code MarkdownService.saveMarkdown}, with the same results.
+     */
+    public String save(UpdateFileContentRequestDto request) {
+        String path = MarkdownService.normalizePath(request.path());
+        try {
+            return update(path, false, entry -> {
+                reportConflict(entry);
+                if (request.expectedVersion() != null && request.expectedVersion() != entry.version) {
+                    throw new VersionConflictException(path, request.expectedVersion(), entry.version);
+                }
+                buffer(entry, request.content());
+                return "File saved successfully!";
+            });
+        } catch (FileNotFoundException e) {
+            return "Error: File not found.";
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Buffered counterpart of {@code MarkdownService.patchMarkdown}. The patched content is buffered
+     * whole, so the flush compacts it.
+     *
+     * @throws VersionConflictException if the document is no longer at {@code baseVersion}
+     */
+    public SaveResultDto patch(PatchFileContentRequestDto request) {
+        String path = MarkdownService.normalizePath(request.path());
+        return update(path, true, entry -> {
+            reportConflict(entry);
+            if (entry.version != request.baseVersion()) {
+                throw new VersionConflictException(path, request.baseVersion(), entry.version);
+            }
+            List<TextOperationDto> operations = request.operations() == null ? List.of() : request.operations();
+            long version = buffer(entry, TextOperations.apply(entry.content, operations));
+            return new SaveResultDto(version, entry.contentHash);
+        });
+    }
+
+    /**
+     * Metadata of a document with saves not flushed yet, reflecting the latest of them.
+     */
+    public Optional<FileMetadata> metadata(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return entry.dirty
+                    ? Optional.of(new FileMetadata(entry.fileId, path, false, entry.contentHash, entry.lastModified, entry.version))
+                    : Optional.empty();
+        }
+    }
+
+    /**
+     * Content of a document with saves not flushed yet.
+     */
+    public Optional<String> content(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return entry.dirty ? Optional.of(entry.content) : Optional.empty();
+        }
+    }
+
+    /**
+     * Runs {@code action} on the entry for {@code path} under its lock, loading the document first if
+     * it is not buffered. Entries left without a save are dropped again.
+     *
+     * @throws FileNotFoundException    if there is no such document
+     * @throws IllegalArgumentException if the path is a directory
+     */
+    private <T> T update(String path, boolean needsContent, Function<Entry, T> action) {
+        while (true) {
+            Entry entry = entries.computeIfAbsent(path, Entry::new);
+            synchronized (entry) {
+                if (entry.retired) {
+                    continue;
+                }
+                try {
+                    if (entry.fileId == null) {
+                        FileMetadata metadata = index.find(path)
+                                .orElseThrow(() -> new FileNotFoundException(path));
+                        if (metadata.isDirectory()) {
+                            throw new IllegalArgumentException("Cannot save content to a directory.");
+                        }
+                        entry.fileId = metadata.id();
+                        entry.dbVersion = metadata.version();
+                        entry.version = metadata.version();
+                        entry.contentHash = metadata.contentHash();
+                        entry.lastModified = metadata.lastModified();
+                    } else if (entry.dirty && changedElsewhere(entry)) {
+                        keep(entry);
+                        continue;
+                    }
+                    if (needsContent && entry.content == null) {
+                        entry.content = contentStore.read(entry.fileId, path).orElse("");
+                    }
+                    return action.apply(entry);
+                } finally {
+                    if (!entry.dirty) {
+                        retire(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean changedElsewhere(Entry entry) {
+        return index.find(entry.path)
+                .map(current -> !current.id().equals(entry.fileId) || current.version() != entry.dbVersion)
+                .orElse(true);
+    }
+
+    /**
+     * Gives up the buffered saves of an entry, keeping their content as a revision of the document.
+     * Called under the entry's lock; the entry is retired as it is no longer dirty.
+     */
+    private void keep(Entry entry) {
+        metrics.recordError("write-behind", "Conflict");
+        log.warn("Buffered saves of {} up to version {} conflict with a change made elsewhere; keeping them as a revision",
+                entry.path, entry.version);
+        revisionRecorder.keep(entry.fileId, entry.content, entry.contentHash);
+        conflicts.put(entry.path, entry.version);
+        entry.dirty = false;
+    }
+
+    /**
+     * Fails the first save of a path after earlier buffered saves of it were kept as a revision instead
+     * of being stored. The versions acknowledged for those saves may have been reused by the change that
+     * won, so the expected version of the save cannot tell whether its client knows.
+     */
+    private void reportConflict(Entry entry) {
+        Long lost = conflicts.remove(entry.path);
+        if (lost != null) {
+            throw new VersionConflictException("Saves of " + entry.path + " up to version " + lost
+                    + " were not stored because the document changed elsewhere; they were kept in its revision history"
+                    + " (current version " + entry.version + ")");
+        }
+    }
+
+    private long buffer(Entry entry, String content) {
+        Instant now = Instant.now();
+        long version = entry.version + 1;
+        if (journal != null) {
+            try {
+                journal.append(new WriteBehindJournal.Entry(entry.fileId, entry.path, entry.dbVersion, version, now, content));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to journal a save of " + entry.path, e);
+            }
+        }
+        entry.content = content;
+        entry.contentHash = ContentHash.of(content);
+        entry.lastModified = now;
+        entry.version = version;
+        entry.dirty = true;
+        metrics.recordSave(content.length());
+        renderCache.invalidate(entry.path);
+        return version;
+    }
+
+    private void retire(Entry entry) {
+        entry.retired = true;
+        entries.remove(entry.path, entry);
+    }
+
+    /**
+     * Writes every buffered save to the database. Runs on the flusher's schedule, and is called
+     * directly before operations that must see the saves in the database.
+     */
+    public synchronized void flush() {
+        if (!enabled) {
+            return;
+        }
+        List<Path> committedSegments = List.of();
+        if (journal != null) {
+            try {
+                committedSegments = journal.rotate();
+            } catch (IOException e) {
+                log.warn("Failed to rotate the write-behind journal", e);
+            }
+        }
+
+        List<Snapshot> dirty = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (entry.dirty && !entry.retired) {
+                    dirty.add(new Snapshot(entry, entry.fileId, entry.path, entry.dbVersion, entry.version,
+                            entry.content, entry.contentHash, entry.lastModified));
+                }
+            }
+        }
+
+        boolean complete = true;
+        for (int start = 0; start < dirty.size(); start += batchSize) {
+            List<Snapshot> batch = dirty.subList(start, Math.min(dirty.size(), start + batchSize));
+            try {
+                Set<Snapshot> applied = transactionTemplate.execute(status -> write(batch));
+                batch.forEach(snapshot -> settle(snapshot, applied.contains(snapshot)));
+            } catch (RuntimeException e) {
+                complete = false;
+                metrics.recordError("write-behind", e);
+                log.warn("Failed to flush {} buffered saves, will retry", batch.size(), e);
+            }
+        }
+        if (complete && journal != null) {
+            journal.delete(committedSegments);
+        }
+    }
+
+    /**
+     * @return the snapshots now in the database
+     */
+    private Set<Snapshot> write(List<Snapshot> batch) {
+        int[][] counts = jdbc.batchUpdate(UPDATE_FILE, batch, batch.size(), (statement, snapshot) -> {
+            statement.setString(1, snapshot.contentHash());
+            statement.setTimestamp(2, Timestamp.from(snapshot.lastModified()));
+            statement.setLong(3, snapshot.version());
+            statement.setLong(4, snapshot.fileId());
+            statement.setLong(5, snapshot.baseVersion());
+        });
+
+        List<Snapshot> updated = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (counts[0][i] > 0) {
+                updated.add(batch.get(i));
+            }
+        }
+        contentStore.writeAll(updated.stream()
+                .map(snapshot -> new ContentWrite(snapshot.fileId(), snapshot.path(), snapshot.version(), snapshot.content()))
+                .toList());
+        for (Snapshot snapshot : updated) {
+            eventPublisher.publishEvent(FileChangedEvent.updated(snapshot.fileId(), snapshot.path(),
+                    snapshot.content(), snapshot.contentHash()));
+        }
+        return new HashSet<>(updated);
+    }
+
+    private void settle(Snapshot snapshot, boolean applied) {
+        Entry entry = snapshot.entry();
+        synchronized (entry) {
+            if (!applied) {
+                if (!entry.retired) {
+                    keep(entry);
+                    retire(entry);
+                }
+                return;
+            }
+            index.update(new FileMetadata(snapshot.fileId(), snapshot.path(), false, snapshot.contentHash(),
+                    snapshot.lastModified(), snapshot.version()));
+            entry.dbVersion = snapshot.version();
+            if (entry.version == snapshot.version()) {
+                entry.dirty = false;
+                retire(entry);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.dok.writebehind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of buffered saves, split into numbered segments. The flusher rotates to a new
+ * segment before it snapshots the buffer, and deletes the older segments once everything they hold
+ * is committed, so the log never holds more than the saves of the last few flush intervals. Each
+ * record carries a CRC, and a torn record at the end of a segment ends its replay.
+ */
+final class WriteBehindJournal implements AutoCloseable {
+
+    enum Sync {
+        /**
+         * Force every record to disk before the save is acknowledged.
+         */
+        ALWAYS,
+        /**
+         * Force the segment when the flusher rotates it, once per flush interval.
+         */
+        INTERVAL,
+        /**
+         * Leave writing back to the operating system.
+         */
+        NEVER
+    }
+
+    record Entry(long fileId, String path, long baseVersion, long version, Instant lastModified, String content) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindJournal.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final Sync sync;
+    private long sequence;
+    private Path segment;
+    private FileChannel channel;
+
+    WriteBehindJournal(Path directory, Sync sync) throws IOException {
+        this.directory = directory;
+        this.sync = sync;
+        Files.createDirectories(directory);
+        this.sequence = segments().stream().mapToLong(WriteBehindJournal::sequenceOf).max().orElse(0);
+        open();
+    }
+
+    /**
+     * Every intact record in the existing segments, oldest first.
+     */
+    List<Entry> replay() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Path existing : segments()) {
+            if (existing.equals(segment)) {
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(existing)))) {
+                while (true) {
+                    Entry entry = read(in);
+                    if (entry == null) {
+                        break;
+                    }
+                    entries.add(entry);
+                }
+            } catch (EOFException e) {
+                log.warn("Ignoring torn record at the end of {}", existing);
+            }
+        }
+        return entries;
+    }
+
+    synchronized void append(Entry entry) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(entry.content().length() + 64);
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            out.writeLong(entry.fileId());
+            out.writeLong(entry.baseVersion());
+            out.writeLong(entry.version());
+            out.writeLong(entry.lastModified().toEpochMilli());
+            writeString(out, entry.path());
+            writeString(out, entry.content());
+        }
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(12 + bytes.length);
+        record.putInt(bytes.length).putLong(crc.getValue()).put(bytes).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        if (sync == Sync.ALWAYS) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Starts a new segment and returns the paths of all older ones, which the caller deletes with
+     * {@link #delete} once their saves are committed.
+     */
+    synchronized List<Path> rotate() throws IOException {
+        if (sync != Sync.NEVER) {
+            channel.force(false);
+        }
+        channel.close();
+        open();
+        return segments().stream().filter(existing -> !existing.equals(segment)).toList();
+    }
+
+    void delete(List<Path> segments) {
+        for (Path old : segments) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                log.warn("Failed to delete journal segment {}", old, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (sync != Sync.NEVER) {
+            channel.force(false);
+        }
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        segment = directory.resolve(SEGMENT_PREFIX + (++sequence) + SEGMENT_SUFFIX);
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(WriteBehindJournal::sequenceOf))
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return the next record, or null at the end of the segment or at a record that fails its CRC
+     */
+    private static Entry read(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        long expectedCrc = in.readLong();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if (crc.getValue() != expectedCrc) {
+            return null;
+        }
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        long fileId = payload.readLong();
+        long baseVersion = payload.readLong();
+        long version = payload.readLong();
+        Instant lastModified = Instant.ofEpochMilli(payload.readLong());
+        String path = readString(payload);
+        String content = readString(payload);
+        return new Entry(fileId, path, baseVersion, version, lastModified, content);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+}
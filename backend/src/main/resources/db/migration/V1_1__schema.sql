@@ -0,0 +1,69 @@
+-- Creates the schema, or completes one created by an earlier version through ddl-auto=update. Every
+-- statement is a no-op for objects that already exist, so databases from any earlier version, back to
+-- a lone markdown_file table, end up with the same tables. The DDL is written for H2.
+
+CREATE SEQUENCE IF NOT EXISTS markdown_file_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS content_operation_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS document_link_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS revision_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS markdown_file (
+    id           BIGINT  NOT NULL PRIMARY KEY,
+    path         VARCHAR(255),
+    name         VARCHAR(255),
+    is_directory BOOLEAN NOT NULL
+);
+ALTER TABLE markdown_file ADD COLUMN IF NOT EXISTS parent_id BIGINT;
+ALTER TABLE markdown_file ADD COLUMN IF NOT EXISTS parent_path VARCHAR(255);
+ALTER TABLE markdown_file ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+ALTER TABLE markdown_file ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE markdown_file ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE markdown_file ADD COLUMN IF NOT EXISTS pending_operations INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE markdown_file ADD CONSTRAINT IF NOT EXISTS uk_markdown_file_parent_name UNIQUE (parent_id, name);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_markdown_file_path ON markdown_file (path);
+CREATE INDEX IF NOT EXISTS idx_markdown_file_parent_listing ON markdown_file (parent_path, is_directory, name);
+
+CREATE TABLE IF NOT EXISTS markdown_content (
+    file_id BIGINT NOT NULL PRIMARY KEY,
+    version BIGINT DEFAULT 0 NOT NULL,
+    content CHARACTER LARGE OBJECT
+);
+
+CREATE TABLE IF NOT EXISTS content_operation (
+    id            BIGINT  NOT NULL PRIMARY KEY,
+    file_id       BIGINT,
+    version       BIGINT  NOT NULL,
+    op_index      INTEGER NOT NULL,
+    start_index   INTEGER NOT NULL,
+    delete_length INTEGER NOT NULL,
+    insert_text   CHARACTER LARGE OBJECT
+);
+CREATE INDEX IF NOT EXISTS idx_content_operation_file_version ON content_operation (file_id, version);
+
+CREATE TABLE IF NOT EXISTS document_link (
+    id          BIGINT NOT NULL PRIMARY KEY,
+    source_id   BIGINT,
+    target      VARCHAR(255),
+    target_path VARCHAR(255)
+);
+CREATE INDEX IF NOT EXISTS idx_document_link_source ON document_link (source_id);
+CREATE INDEX IF NOT EXISTS idx_document_link_target_path ON document_link (target_path);
+
+CREATE TABLE IF NOT EXISTS linked_document (
+    file_id      BIGINT NOT NULL PRIMARY KEY,
+    content_hash VARCHAR(64)
+);
+
+CREATE TABLE IF NOT EXISTS revision (
+    id           BIGINT  NOT NULL PRIMARY KEY,
+    file_id      BIGINT,
+    number       INTEGER NOT NULL,
+    kind         VARCHAR(16),
+    base_number  INTEGER,
+    content_hash VARCHAR(64),
+    length       INTEGER NOT NULL,
+    created_at   TIMESTAMP(6) WITH TIME ZONE,
+    data         BINARY LARGE OBJECT
+);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_revision_file_number ON revision (file_id, number);
+CREATE INDEX IF NOT EXISTS idx_revision_file_hash ON revision (file_id, content_hash);
@@ -0,0 +1,17 @@
+-- Document bodies used to live in markdown_file.content. Copies them into markdown_content, which is
+-- where they are read from now, fills in the content hashes of those documents and drops the old column.
+
+ALTER TABLE markdown_file ADD COLUMN IF NOT EXISTS content CHARACTER LARGE OBJECT;
+
+INSERT INTO markdown_content (file_id, version, content)
+SELECT f.id, f.version, f.content
+FROM markdown_file f
+WHERE f.is_directory = FALSE
+  AND f.content IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM markdown_content c WHERE c.file_id = f.id);
+
+UPDATE markdown_file
+SET content_hash = LOWER(RAWTOHEX(HASH('SHA-256', STRINGTOUTF8(CAST(content AS VARCHAR(1000000))))))
+WHERE is_directory = FALSE AND content IS NOT NULL AND content_hash IS NULL;
+
+ALTER TABLE markdown_file DROP COLUMN content;
@@ -0,0 +1,2 @@
+-- Empty on purpose. Databases created before migrations were introduced are baselined at this
+-- version, and the migrations after it bring any of them up to the current schema.
@@ -0,0 +1,14 @@
+-- Append-only log of tree and content changes, tailed by every node of a cluster to keep its
+-- caches and indexes coherent. Rows are pruned after dok.cluster.retention-minutes.
+
+CREATE TABLE cluster_change (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    node_id       VARCHAR(64)  NOT NULL,
+    type          VARCHAR(16)  NOT NULL,
+    file_id       BIGINT,
+    path          VARCHAR(255) NOT NULL,
+    previous_path VARCHAR(255),
+    directory     BOOLEAN      NOT NULL,
+    created_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+CREATE INDEX idx_cluster_change_created_at ON cluster_change (created_at);
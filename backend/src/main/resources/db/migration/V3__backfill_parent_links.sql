@@ -0,0 +1,10 @@
+-- Links rows written before parent links were stored to their parent, so they show up in listings.
+-- This used to run as a query on every startup.
+
+UPDATE markdown_file
+SET parent_path = COALESCE(NULLIF(REGEXP_REPLACE(path, '/[^/]*$', ''), ''), '/')
+WHERE parent_id IS NULL AND path <> '/';
+
+UPDATE markdown_file f
+SET parent_id = (SELECT p.id FROM markdown_file p WHERE p.path = f.parent_path)
+WHERE f.parent_id IS NULL AND f.path <> '/';
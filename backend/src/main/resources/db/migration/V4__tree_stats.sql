@@ -0,0 +1,10 @@
+-- Rollups per path: for a document its own size, word count and last save; for a directory the sums
+-- over its subtree and the latest change below it. Filled on the first start after this migration.
+
+CREATE TABLE tree_stats (
+    path           VARCHAR(255) NOT NULL PRIMARY KEY,
+    document_count BIGINT       NOT NULL,
+    total_bytes    BIGINT       NOT NULL,
+    word_count     BIGINT       NOT NULL,
+    last_modified  TIMESTAMP(6) WITH TIME ZONE
+);
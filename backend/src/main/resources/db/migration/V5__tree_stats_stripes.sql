@@ -0,0 +1,7 @@
+-- Splits each directory's rollup into stripe rows, so concurrent writers add to different rows of a shared
+-- ancestor instead of all locking its single row. The totals of a path are the sums over its stripes.
+-- Existing rows become stripe 0.
+
+ALTER TABLE tree_stats ADD COLUMN stripe INT DEFAULT 0 NOT NULL;
+ALTER TABLE tree_stats DROP PRIMARY KEY;
+ALTER TABLE tree_stats ADD PRIMARY KEY (path, stripe);
@@ -9,42 +9,93 @@ document.addEventListener('DOMContentLoaded', () => {
     const deleteBtn = document.getElementById('delete-btn');
 
     let selectedFile = null;
+    let selectedVersion = null;
+    let selectedHash = null;
+    let lastSequence = 0;
+    let savedContent = '';
     let saveTimeout = null;
+    let saveQueue = Promise.resolve();
     const converter = new showdown.Converter({ tables: true, strikethrough: true, tasklists: true, openLinksInNewWindow: true });
 
     /**
-     * Fetches the file list for a given directory path from the server.
+     * Fetches one page of a directory listing from the server, with the first page of each
+     * subdirectory prefetched.
      */
-    async function fetchFiles(path) {
+    async function fetchFiles(path, cursor) {
         try {
-            const response = await fetch(`/list?path=${encodeURIComponent(path)}`);
+            let url = `/children?path=${encodeURIComponent(path)}&depth=1`;
+            if (cursor) url += `&cursor=${encodeURIComponent(cursor)}`;
+            const response = await fetch(url);
             if (!response.ok) throw new Error(`HTTP error! status: ${response.status}`);
             return await response.json();
         } catch (error) {
             console.error('Failed to fetch file tree:', error);
-            return [];
+            return { entries: [], nextCursor: null };
         }
     }
 
     /**
-     * Renders the file and directory tree in the specified container element.
+     * Same order as the server: directories first, then by name in code unit order.
      */
-    function renderFileTree(files, container) {
+    function compareEntries(a, b) {
+        if (a.isDirectory !== b.isDirectory) return a.isDirectory ? -1 : 1;
+        return a.name < b.name ? -1 : a.name > b.name ? 1 : 0;
+    }
+
+    /**
+     * Renders the first page of a directory listing in the specified container element.
+     */
+    function renderFileTree(page, container, path) {
         container.innerHTML = '';
-        files.sort((a, b) => {
-            if (a.isDirectory !== b.isDirectory) return a.isDirectory ? -1 : 1;
-            return a.name.localeCompare(b.name);
-        });
+        container.dataset.loaded = 'true';
+        appendPage(page, container, path);
+    }
 
-        files.forEach(file => {
+    /**
+     * Appends a page of entries to a listing, followed by a "load more" row if more pages follow.
+     */
+    function appendPage(page, container, path) {
+        page.entries.forEach(file => {
             if (file.isDirectory) {
                 const dirEntry = createDirElement(file);
                 container.appendChild(dirEntry);
+                if (file.children) {
+                    renderFileTree(file.children, dirEntry.querySelector(':scope > .dir-content'), file.path);
+                }
             } else {
                 const fileEntry = createFileElement(file);
                 container.appendChild(fileEntry);
             }
         });
+
+        if (page.nextCursor) {
+            const loadMore = document.createElement('div');
+            loadMore.className = 'load-more';
+            loadMore.textContent = 'Load more…';
+            loadMore.addEventListener('click', (e) => {
+                e.stopPropagation();
+                loadMore.remove();
+                fetchFiles(path, page.nextCursor).then(next => appendPage(next, container, path));
+            });
+            container.appendChild(loadMore);
+        }
+    }
+
+    /**
+     * The content hash a /raw response was tagged with.
+     */
+    function hashOf(response) {
+        const eTag = response.headers.get('ETag');
+        return eTag ? eTag.replace(/^(W\/)?"raw-/, '').replace(/(-gzip)?"$/, '') : null;
+    }
+
+    /**
+     * Takes the version and hash of the open document from a /raw response.
+     */
+    function readValidators(response) {
+        const version = response.headers.get('X-Document-Version');
+        selectedVersion = version === null ? null : Number(version);
+        selectedHash = hashOf(response);
     }
 
     /**
@@ -54,8 +105,9 @@ document.addEventListener('DOMContentLoaded', () => {
         try {
             const response = await fetch(`/raw?path=${encodeURIComponent(path)}`);
             const content = await response.text();
-            editorPane.value = content;
-            previewPane.innerHTML = converter.makeHtml(content);
+            readValidators(response);
+            savedContent = content;
+            showContent(content);
             selectedFile = path;
 
             welcomeScreen.style.display = 'none';
@@ -66,34 +118,181 @@ document.addEventListener('DOMContentLoaded', () => {
     }
 
     /**
-     * Saves the provided content to the specified file path.
+     * Re-reads the version of the open document after a move, which bumps it without changing the text.
+     * If the text changed as well, the document is reloaded unless it has unsaved edits.
      */
-    async function saveFile(path, content) {
+    async function refreshVersion() {
+        const path = selectedFile;
+        if (!path) return;
         try {
-            await fetch('/save', {
-                method: 'POST',
-                headers: { 'Content-Type': 'application/json' },
-                body: JSON.stringify({ path: path, content: content })
-            });
+            const response = await fetch(`/raw?path=${encodeURIComponent(path)}`, { method: 'HEAD', cache: 'no-store' });
+            if (!response.ok) throw new Error(`HTTP error! status: ${response.status}`);
+            if (path !== selectedFile) return;
+            if (hashOf(response) === selectedHash) {
+                readValidators(response);
+            } else if (editorPane.value === savedContent) {
+                await loadFile(path);
+            }
+        } catch (error) {
+            console.error('Error refreshing document version:', error);
+        }
+    }
+
+    /**
+     * Computes a single replace operation turning oldText into newText by trimming the common prefix and suffix.
+     */
+    function diffText(oldText, newText) {
+        let start = 0;
+        const minLength = Math.min(oldText.length, newText.length);
+        while (start < minLength && oldText[start] === newText[start]) start++;
+        let oldEnd = oldText.length;
+        let newEnd = newText.length;
+        while (oldEnd > start && newEnd > start && oldText[oldEnd - 1] === newText[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+        return { position: start, deleteCount: oldEnd - start, text: newText.substring(start, newEnd) };
+    }
+
+    /**
+     * Merges the local edit of base into another client's edit of it, when both are single ranges that
+     * do not overlap. Returns null when they overlap.
+     */
+    function mergeEdits(base, mine, theirs) {
+        const ours = diffText(base, mine);
+        const other = diffText(base, theirs);
+        let start;
+        if (ours.position + ours.deleteCount <= other.position) {
+            start = ours.position;
+        } else if (other.position + other.deleteCount <= ours.position) {
+            start = ours.position + other.text.length - other.deleteCount;
+        } else {
+            return null;
+        }
+        return theirs.substring(0, start) + ours.text + theirs.substring(start + ours.deleteCount);
+    }
+
+    function showContent(content) {
+        editorPane.value = content;
+        previewPane.innerHTML = converter.makeHtml(content);
+    }
+
+    /**
+     * Saves text as a new document next to path, so it survives when the user discards it from the editor.
+     */
+    async function saveCopy(path, content) {
+        const copyPath = path.replace(/(\.md)?$/, `.conflict-${Date.now()}.md`);
+        const created = await fetch(`/create-file?path=${encodeURIComponent(copyPath)}`, { method: 'POST' });
+        const saved = created.ok && await fetch('/save', {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ path: copyPath, content: content })
+        });
+        if (!saved || !saved.ok || (await saved.text()).startsWith('Error:')) {
+            throw new Error(`Could not save a copy at ${copyPath}`);
+        }
+        return copyPath;
+    }
+
+    /**
+     * Handles a save rejected because the document changed elsewhere without dropping the local edits.
+     * Edits that do not overlap the other change are merged onto it and saved again. Otherwise the user
+     * either overwrites the other change or loads it, and the local text is then kept as a copy.
+     */
+    async function resolveConflict(path) {
+        const response = await fetch(`/raw?path=${encodeURIComponent(path)}`, { cache: 'no-store' });
+        if (!response.ok) throw new Error(`HTTP error! status: ${response.status}`);
+        const theirs = await response.text();
+        if (path !== selectedFile) return;
+        const mine = editorPane.value;
+        const merged = mergeEdits(savedContent, mine, theirs);
+        readValidators(response);
+        savedContent = theirs;
+        if (merged !== null) {
+            showContent(merged);
+            await saveFile();
+            return;
+        }
+        if (confirm(`'${path}' was changed elsewhere, and your edits overlap that change.\n\n`
+                + 'OK: overwrite it with your version.\nCancel: load the other version and keep yours as a copy.')) {
+            await saveFile();
+            return;
+        }
+        const copyPath = await saveCopy(path, mine);
+        showContent(theirs);
+        alert(`Your version was saved as '${copyPath}'.`);
+    }
+
+    /**
+     * Saves the editor's content to the open document. When the document version is known only the
+     * changed range is sent; otherwise the whole document is posted.
+     */
+    async function saveFile() {
+        const path = selectedFile;
+        const content = editorPane.value;
+        if (!path || content === savedContent) return;
+        try {
+            const versionKnown = selectedVersion !== null && !Number.isNaN(selectedVersion);
+            const response = versionKnown
+                ? await fetch('/save-patch', {
+                    method: 'POST',
+                    headers: { 'Content-Type': 'application/json' },
+                    body: JSON.stringify({
+                        path: path,
+                        baseVersion: selectedVersion,
+                        operations: [diffText(savedContent, content)]
+                    })
+                })
+                : await fetch('/save', {
+                    method: 'POST',
+                    headers: { 'Content-Type': 'application/json' },
+                    body: JSON.stringify({ path: path, content: content, expectedVersion: null })
+                });
+            if (response.status === 409) {
+                await resolveConflict(path);
+                return;
+            }
+            if (!response.ok) throw new Error(`HTTP error! status: ${response.status}`);
+            if (versionKnown) {
+                const result = await response.json();
+                selectedVersion = result.version;
+                selectedHash = result.contentHash;
+            } else {
+                const message = await response.text();
+                if (message.startsWith('Error:')) throw new Error(message);
+            }
+            savedContent = content;
         } catch (error) {
             console.error('Error saving file:', error);
         }
     }
 
+    /**
+     * Opens a document, first saving any edit of the current one still waiting for its autosave.
+     */
+    function openFile(path) {
+        if (saveTimeout) {
+            clearTimeout(saveTimeout);
+            saveTimeout = null;
+            saveQueue = saveQueue.then(() => saveFile());
+        }
+        saveQueue = saveQueue.then(() => loadFile(path));
+    }
+
     /**
      * Refreshes the entire file browser, preserving the state of open directories.
      */
     function refreshFileBrowser() {
         const openDirs = [...document.querySelectorAll('.dir-entry.open')].map(el => el.dataset.path);
-        fetchFiles('/').then(files => {
-            renderFileTree(files, fileBrowser);
+        fetchFiles('/').then(page => {
+            renderFileTree(page, fileBrowser, '/');
             openDirs.forEach(path => {
                 const dirEntry = document.querySelector(`.dir-entry[data-path="${path}"]`);
                 if (dirEntry) {
                     dirEntry.classList.add('open');
                     const dirContent = dirEntry.querySelector('.dir-content');
-                    if (dirContent && !dirContent.hasChildNodes()) {
-                        fetchFiles(path).then(subFiles => renderFileTree(subFiles, dirContent));
+                    if (dirContent && dirContent.dataset.loaded !== 'true') {
+                        fetchFiles(path).then(subPage => renderFileTree(subPage, dirContent, path));
                     }
                 }
             });
@@ -105,12 +304,13 @@ document.addEventListener('DOMContentLoaded', () => {
         fileEntry.className = 'file-entry';
         fileEntry.textContent = file.name;
         fileEntry.dataset.path = file.path;
+        fileEntry.dataset.name = file.name;
         fileEntry.draggable = true;
         fileEntry.addEventListener('click', (e) => {
             e.stopPropagation();
             document.querySelectorAll('.file-entry.selected, .dir-header.selected').forEach(el => el.classList.remove('selected'));
             fileEntry.classList.add('selected');
-            loadFile(file.path);
+            openFile(file.path);
         });
         return fileEntry;
     }
@@ -119,6 +319,7 @@ document.addEventListener('DOMContentLoaded', () => {
         const dirEntry = document.createElement('div');
         dirEntry.className = 'dir-entry';
         dirEntry.dataset.path = file.path;
+        dirEntry.dataset.name = file.name;
 
         const dirHeader = document.createElement('div');
         dirHeader.className = 'dir-header';
@@ -127,14 +328,15 @@ document.addEventListener('DOMContentLoaded', () => {
 
         const dirContent = document.createElement('div');
         dirContent.className = 'dir-content';
+        if (file.childCount === 0) dirContent.dataset.loaded = 'true';
 
         dirHeader.addEventListener('click', (e) => {
             e.stopPropagation();
             document.querySelectorAll('.file-entry.selected, .dir-header.selected').forEach(el => el.classList.remove('selected'));
             dirHeader.classList.add('selected');
             const isOpen = dirEntry.classList.toggle('open');
-            if (isOpen && !dirContent.hasChildNodes()) {
-                fetchFiles(file.path).then(subFiles => renderFileTree(subFiles, dirContent));
+            if (isOpen && dirContent.dataset.loaded !== 'true') {
+                fetchFiles(file.path).then(subPage => renderFileTree(subPage, dirContent, file.path));
             }
         });
 
@@ -143,13 +345,110 @@ document.addEventListener('DOMContentLoaded', () => {
         return dirEntry;
     }
 
+    function parentOf(path) {
+        const lastSlash = path.lastIndexOf('/');
+        return lastSlash <= 0 ? '/' : path.substring(0, lastSlash);
+    }
+
+    function findEntry(path) {
+        return [...fileBrowser.querySelectorAll('.file-entry, .dir-entry')].find(el => el.dataset.path === path);
+    }
+
+    /**
+     * The element listing the children of a directory, or null if that listing has not been loaded.
+     */
+    function childContainer(dirPath) {
+        if (dirPath === '/') return fileBrowser;
+        const dirEntry = findEntry(dirPath);
+        const dirContent = dirEntry?.querySelector(':scope > .dir-content');
+        return dirContent && dirContent.dataset.loaded === 'true' ? dirContent : null;
+    }
+
+    function insertEntry(file) {
+        findEntry(file.path)?.remove();
+        const container = childContainer(parentOf(file.path));
+        if (!container) return;
+        const element = file.isDirectory ? createDirElement(file) : createFileElement(file);
+        const next = [...container.children].find(child => !child.classList.contains('load-more') && compareEntries(
+            { isDirectory: child.classList.contains('dir-entry'), name: child.dataset.name || '' }, file) > 0);
+        const loadMore = container.querySelector(':scope > .load-more');
+        // Past the last loaded page: the entry will arrive with a later page.
+        if (!next && loadMore) return;
+        container.insertBefore(element, next || null);
+    }
+
+    function closeEditor() {
+        editorPane.value = '';
+        previewPane.innerHTML = '';
+        selectedFile = null;
+        editorContainer.style.display = 'none';
+        welcomeScreen.style.display = 'block';
+    }
+
+    /**
+     * Applies one change from the /changes feed to the file browser and the open document.
+     */
+    function applyChange(change) {
+        const name = change.path.substring(change.path.lastIndexOf('/') + 1);
+        switch (change.type) {
+            case 'CREATED':
+                insertEntry({ name: name, path: change.path, isDirectory: change.directory, childCount: 0 });
+                break;
+            case 'MOVED':
+                findEntry(change.previousPath)?.remove();
+                insertEntry({ name: name, path: change.path, isDirectory: change.directory });
+                if (selectedFile === change.previousPath || selectedFile?.startsWith(change.previousPath + '/')) {
+                    selectedFile = change.path + selectedFile.substring(change.previousPath.length);
+                    saveQueue = saveQueue.then(() => refreshVersion());
+                }
+                break;
+            case 'DELETED':
+                findEntry(change.path)?.remove();
+                if (selectedFile === change.path || selectedFile?.startsWith(change.path + '/')) {
+                    closeEditor();
+                }
+                break;
+            case 'UPDATED':
+                if (change.path === selectedFile && change.contentHash !== selectedHash
+                        && editorPane.value === savedContent) {
+                    saveQueue = saveQueue.then(() => loadFile(change.path));
+                }
+                break;
+        }
+    }
+
+    /**
+     * Subscribes to the server's change feed. The browser reconnects on its own and resumes after the
+     * last batch it received; a reset means changes were missed and the tree is reloaded instead.
+     */
+    function subscribeToChanges() {
+        if (!window.EventSource) return;
+        const changes = new EventSource('/changes');
+        changes.addEventListener('changes', (e) => {
+            JSON.parse(e.data)
+                .filter(change => change.sequence > lastSequence)
+                .forEach(change => {
+                    lastSequence = change.sequence;
+                    applyChange(change);
+                });
+        });
+        changes.addEventListener('reset', (e) => {
+            lastSequence = Number(e.lastEventId.substring(e.lastEventId.lastIndexOf('-') + 1)) || 0;
+            refreshFileBrowser();
+        });
+    }
+
     editorPane.addEventListener('input', () => {
         const newContent = editorPane.value;
         previewPane.innerHTML = converter.makeHtml(newContent);
         
         clearTimeout(saveTimeout);
+        saveTimeout = null;
         if (selectedFile) {
-            saveTimeout = setTimeout(() => saveFile(selectedFile, newContent), 500);
+            saveTimeout = setTimeout(() => {
+                saveTimeout = null;
+                saveQueue = saveQueue.then(() => saveFile());
+            }, 500);
         }
     });
 
@@ -158,7 +457,7 @@ document.addEventListener('DOMContentLoaded', () => {
         if (fileName && fileName.trim()) {
             const currentDir = document.querySelector('.dir-header.selected')?.parentElement.dataset.path || '/';
             const newPath = (currentDir === '/' ? '' : currentDir) + '/' + fileName.trim();
-            fetch(`/create-file?path=${encodeURIComponent(newPath)}`, { method: 'POST' }).then(refreshFileBrowser);
+            fetch(`/create-file?path=${encodeURIComponent(newPath)}`, { method: 'POST' });
         }
     });
 
@@ -167,7 +466,7 @@ document.addEventListener('DOMContentLoaded', () => {
         if (dirName && dirName.trim()) {
             const currentDir = document.querySelector('.dir-header.selected')?.parentElement.dataset.path || '/';
             const newPath = (currentDir === '/' ? '' : currentDir) + '/' + dirName.trim();
-            fetch(`/create-directory?path=${encodeURIComponent(newPath)}`, { method: 'POST' }).then(refreshFileBrowser);
+            fetch(`/create-directory?path=${encodeURIComponent(newPath)}`, { method: 'POST' });
         }
     });
 
@@ -187,15 +486,8 @@ document.addEventListener('DOMContentLoaded', () => {
                 .then(response => {
                     if (!response.ok) {
                         alert('Delete failed!');
-                    } else {
-                        if (pathToDelete === selectedFile) {
-                            editorPane.value = '';
-                            previewPane.innerHTML = '';
-                            selectedFile = null;
-                            editorContainer.style.display = 'none';
-                            welcomeScreen.style.display = 'block';
-                        }
-                        refreshFileBrowser();
+                    } else if (pathToDelete === selectedFile) {
+                        closeEditor();
                     }
                 });
         }
@@ -230,12 +522,6 @@ document.addEventListener('DOMContentLoaded', () => {
             .then(response => {
                 if (!response.ok) {
                     alert('Move failed!');
-                } else {
-                    if (draggedItemPath === selectedFile) {
-                        const fileName = draggedItemPath.substring(draggedItemPath.lastIndexOf('/') + 1);
-                        selectedFile = destinationPath === '/' ? '/' + fileName : destinationPath + '/' + fileName;
-                    }
-                    refreshFileBrowser();
                 }
             });
         }
@@ -243,4 +529,5 @@ document.addEventListener('DOMContentLoaded', () => {
     });
 
     refreshFileBrowser();
+    subscribeToChanges();
 });
@@ -0,0 +1,79 @@
+package com.example.dok;
+
+import com.example.dok.service.ContentHash;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the migrations the way the application does, against fresh databases and databases left
+ * behind by earlier versions that created their schema through {@code ddl-auto=update}.
+ */
+class MigrationsTest {
+
+    private static final List<String> TABLES = List.of("MARKDOWN_FILE", "MARKDOWN_CONTENT", "CONTENT_OPERATION",
+            "DOCUMENT_LINK", "LINKED_DOCUMENT", "REVISION", "CLUSTER_CHANGE", "TREE_STATS");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    private void migrate() {
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+    }
+
+    private List<String> tables() {
+        return jdbc.queryForList("SELECT table_name FROM information_schema.tables WHERE table_schema = 'PUBLIC'", String.class);
+    }
+
+    @Test
+    void migrate_shouldCreateTheSchema_onAnEmptyDatabase() {
+        migrate();
+
+        assertTrue(tables().containsAll(TABLES), tables().toString());
+    }
+
+    @Test
+    void migrate_shouldCompleteTheSchema_ofTheOriginalVersion() {
+        jdbc.execute("CREATE SEQUENCE markdown_file_seq START WITH 1 INCREMENT BY 50");
+        jdbc.execute("CREATE TABLE markdown_file (id BIGINT NOT NULL PRIMARY KEY, path VARCHAR(255), name VARCHAR(255), "
+                + "is_directory BOOLEAN NOT NULL, content CHARACTER LARGE OBJECT)");
+        jdbc.update("INSERT INTO markdown_file (id, path, name, is_directory) VALUES (1, '/', '/', TRUE)");
+        jdbc.update("INSERT INTO markdown_file (id, path, name, is_directory) VALUES (2, '/docs', 'docs', TRUE)");
+
+        migrate();
+
+        assertTrue(tables().containsAll(TABLES), tables().toString());
+        assertEquals(0L, jdbc.queryForObject("SELECT version FROM markdown_file WHERE id = 2", Long.class));
+        assertEquals(1L, jdbc.queryForObject("SELECT parent_id FROM markdown_file WHERE id = 2", Long.class));
+        assertEquals("/", jdbc.queryForObject("SELECT parent_path FROM markdown_file WHERE id = 2", String.class));
+    }
+
+    @Test
+    void migrate_shouldMoveBodiesOutOfTheFileTable() {
+        jdbc.execute("CREATE TABLE markdown_file (id BIGINT NOT NULL PRIMARY KEY, path VARCHAR(255), name VARCHAR(255), "
+                + "is_directory BOOLEAN NOT NULL, content CHARACTER LARGE OBJECT)");
+        jdbc.update("INSERT INTO markdown_file (id, path, name, is_directory) VALUES (1, '/', '/', TRUE)");
+        jdbc.update("INSERT INTO markdown_file (id, path, name, is_directory, content) VALUES (2, '/a.md', 'a.md', FALSE, '# Ä')");
+
+        migrate();
+
+        assertEquals("# Ä", jdbc.queryForObject("SELECT content FROM markdown_content WHERE file_id = 2", String.class));
+        assertEquals(ContentHash.of("# Ä"), jdbc.queryForObject("SELECT content_hash FROM markdown_file WHERE id = 2", String.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_name = 'MARKDOWN_FILE' AND column_name = 'CONTENT'", Integer.class));
+    }
+}
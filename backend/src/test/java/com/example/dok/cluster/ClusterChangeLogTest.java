@@ -0,0 +1,133 @@
+package com.example.dok.cluster;
+
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.service.ContentHash;
+import com.example.dok.service.RenderCache;
+import com.example.dok.storage.ContentStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Two nodes sharing an in-memory H2 database stand in for a cluster.
+ */
+class ClusterChangeLogTest {
+
+    private final ContentStore contentStore = mock(ContentStore.class);
+    private final RenderCache renderCache = mock(RenderCache.class);
+    private final ApplicationEventPublisher publisherA = mock(ApplicationEventPublisher.class);
+    private final ApplicationEventPublisher publisherB = mock(ApplicationEventPublisher.class);
+    private JdbcTemplate jdbc;
+    private ClusterChangeLog nodeA;
+    private ClusterChangeLog nodeB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        try (InputStream migration = getClass().getResourceAsStream("/db/migration/V2__cluster_change.sql")) {
+            for (String statement : new String(migration.readAllBytes(), StandardCharsets.UTF_8).split(";")) {
+                if (!statement.isBlank()) {
+                    jdbc.execute(statement);
+                }
+            }
+        }
+        nodeA = node("a", publisherA);
+        nodeB = node("b", publisherB);
+    }
+
+    private ClusterChangeLog node(String nodeId, ApplicationEventPublisher publisher) {
+        return new ClusterChangeLog(jdbc, contentStore, renderCache, publisher, true, nodeId, 500, 60, "jpa");
+    }
+
+    @Test
+    void poll_shouldReplayChangesOfOtherNodes_withCurrentContent() {
+        when(contentStore.read(1L, "/a.md")).thenReturn(Optional.of("stored"));
+
+        nodeA.onFileChanged(FileChangedEvent.updated(1L, "/a.md", "saved", ContentHash.of("saved")));
+        nodeA.onFileChanged(FileChangedEvent.moved(2L, "/old", "/new", true));
+        nodeB.poll();
+        nodeA.poll();
+
+        verify(publisherB).publishEvent(new FileChangedEvent(FileChangedEvent.Type.UPDATED, 1L, "/a.md", null, false,
+                "stored", ContentHash.of("stored"), true));
+        verify(publisherB).publishEvent(new FileChangedEvent(FileChangedEvent.Type.MOVED, 2L, "/new", "/old", true,
+                null, null, true));
+        verify(renderCache).invalidate("/a.md");
+        verify(renderCache).invalidateSubtree("/old");
+        verify(publisherA, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void onFileChanged_shouldNotLogRemoteEvents() {
+        nodeB.onFileChanged(new FileChangedEvent(FileChangedEvent.Type.DELETED, 1L, "/a.md", null, false, null, null, true));
+
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM cluster_change", Integer.class));
+    }
+
+    @Test
+    void poll_shouldPickUpRowsCommittedAfterHigherIds() {
+        insert(1, "/one.md");
+        insert(3, "/three.md");
+        nodeB.poll();
+        assertEquals(List.of("/one.md", "/three.md"), publishedPaths());
+
+        insert(2, "/two.md");
+        insert(4, "/four.md");
+        nodeB.poll();
+        assertEquals(List.of("/two.md", "/four.md"), publishedPaths());
+        nodeB.poll();
+        assertEquals(List.of(), publishedPaths());
+    }
+
+    @Test
+    void poll_shouldRetryAChangeThatFailedToReplay_withoutLosingTheRest() {
+        insert(1, "/one.md");
+        insert(2, "/two.md");
+        doThrow(new IllegalStateException("listener failed")).doNothing()
+                .when(publisherB).publishEvent(argThat((FileChangedEvent event) -> event.path().equals("/one.md")));
+
+        nodeB.poll();
+        assertEquals(List.of("/one.md", "/two.md"), publishedPaths());
+        nodeB.poll();
+        assertEquals(List.of("/one.md"), publishedPaths());
+        nodeB.poll();
+        assertEquals(List.of(), publishedPaths());
+    }
+
+    /**
+     * Paths of the events node B published since the last call.
+     */
+    private List<String> publishedPaths() {
+        ArgumentCaptor<FileChangedEvent> events = ArgumentCaptor.forClass(FileChangedEvent.class);
+        verify(publisherB, atLeast(0)).publishEvent(events.capture());
+        clearInvocations(publisherB);
+        return events.getAllValues().stream().map(FileChangedEvent::path).toList();
+    }
+
+    @Test
+    void constructor_shouldRejectContentStoresOtherNodesCannotRead() {
+        assertThrows(IllegalStateException.class, () -> new ClusterChangeLog(jdbc, contentStore, renderCache,
+                publisherA, true, "a", 500, 60, "filesystem"));
+    }
+
+    private void insert(long id, String path) {
+        jdbc.update("INSERT INTO cluster_change (id, node_id, type, file_id, path, previous_path, directory, created_at) " +
+                "VALUES (?, 'a', 'DELETED', ?, ?, NULL, FALSE, ?)", id, id, path, Timestamp.from(Instant.now()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.dok.config;
+
+import com.example.dok.service.DokMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BoundedDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final BoundedDataSource dataSource = new BoundedDataSource(target, 1, Duration.ofMillis(10));
+
+    @Test
+    void getConnection_shouldTimeOut_whenAllPermitsAreHeld() throws Exception {
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(1, dataSource.inUse());
+        assertEquals(1, dataSource.timeouts());
+    }
+
+    @Test
+    void close_shouldReleasePermitOnce() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+
+        Connection borrowed = dataSource.getConnection();
+        borrowed.close();
+        borrowed.close();
+
+        assertEquals(0, dataSource.inUse());
+        verify(connection, times(2)).close();
+        dataSource.getConnection();
+        assertEquals(1, dataSource.inUse());
+    }
+
+    @Test
+    void getConnection_shouldReleasePermit_whenPoolFails() throws Exception {
+        when(target.getConnection()).thenThrow(new SQLTransientConnectionException("pool exhausted"));
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(0, dataSource.inUse());
+    }
+
+    @Test
+    void statements_shouldBeCountedForTheCurrentRequest() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT 1")).thenReturn(mock(PreparedStatement.class));
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        DokMetrics metrics = mock(DokMetrics.class);
+
+        new QueryCountFilter(metrics).doFilter(new MockHttpServletRequest("GET", "/raw"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    try (Connection borrowed = dataSource.getConnection()) {
+                        PreparedStatement select = borrowed.prepareStatement("SELECT 1");
+                        select.executeQuery();
+                        select.executeQuery();
+                        Statement batch = borrowed.createStatement();
+                        batch.addBatch("DELETE FROM a");
+                        batch.addBatch("DELETE FROM b");
+                        batch.executeBatch();
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+
+        verify(metrics).recordQueries("GET", "UNKNOWN", 3);
+    }
+}
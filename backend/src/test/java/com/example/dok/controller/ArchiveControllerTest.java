@@ -0,0 +1,60 @@
+package com.example.dok.controller;
+
+import com.example.dok.dto.ImportResultDto;
+import com.example.dok.exception.ArchiveImportException;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.service.ArchiveService;
+import com.example.dok.writebehind.WriteBehindBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ArchiveControllerTest {
+
+    private final ArchiveService archiveService = mock(ArchiveService.class);
+    private final ArchiveController controller = new ArchiveController(archiveService, mock(WriteBehindBuffer.class));
+    private final InputStream archive = new ByteArrayInputStream(new byte[0]);
+
+    @Test
+    void importArchive_shouldReturnTheCounts() {
+        ImportResultDto result = new ImportResultDto(1, 2, 0, 0, 3, null);
+        when(archiveService.importArchive("/docs", archive)).thenReturn(result);
+
+        ResponseEntity<?> response = controller.importArchive("/docs", archive);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    @Test
+    void importArchive_shouldReturnTheCommittedChunks_whenTheImportFailsPartWay() {
+        ImportResultDto committed = new ImportResultDto(0, 500, 0, 0, 500, "disk full");
+        when(archiveService.importArchive("/", archive))
+                .thenThrow(new ArchiveImportException(committed, new IllegalStateException("disk full")));
+
+        ResponseEntity<?> response = controller.importArchive("/", archive);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(committed, response.getBody());
+    }
+
+    @Test
+    void importArchive_shouldReturnNotFound_forAMissingDirectory() {
+        when(archiveService.importArchive("/missing", archive)).thenThrow(new FileNotFoundException("/missing"));
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.importArchive("/missing", archive).getStatusCode());
+    }
+
+    @Test
+    void exportArchive_shouldReturnNotFound_forAMissingDirectory() {
+        when(archiveService.findDirectory("/missing")).thenThrow(new FileNotFoundException("/missing"));
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.exportArchive("/missing").getStatusCode());
+    }
+}
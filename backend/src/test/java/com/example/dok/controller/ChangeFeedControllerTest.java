@@ -0,0 +1,26 @@
+package com.example.dok.controller;
+
+import com.example.dok.feed.ChangeFeed;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.Mockito.*;
+
+class ChangeFeedControllerTest {
+
+    private final ChangeFeed changeFeed = mock(ChangeFeed.class);
+    private final ChangeFeedController controller = new ChangeFeedController(changeFeed);
+
+    @Test
+    void changes_shouldResumeFromSince_whenNoLastEventIdIsSent() {
+        controller.changes(null, "e-3");
+
+        verify(changeFeed).subscribe("e-3");
+    }
+
+    @Test
+    void changes_shouldPreferTheLastEventIdOfAReconnect() {
+        controller.changes("e-5", "e-3");
+
+        verify(changeFeed).subscribe("e-5");
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.dok.controller;
+
+import com.example.dok.markdown.RenderProfile;
+import com.example.dok.model.DocumentSnapshot;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.model.RawDocument;
+import com.example.dok.service.DokMetrics;
+import com.example.dok.service.MarkdownService;
+import com.example.dok.storage.StoredBody;
+import com.example.dok.writebehind.WriteBehindBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MarkdownControllerTest {
+
+    private final MarkdownService markdownService = mock(MarkdownService.class);
+    private final DokMetrics metrics = mock(DokMetrics.class);
+    private final MarkdownController controller = new MarkdownController(markdownService, metrics, mock(WriteBehindBuffer.class));
+    private final FileMetadata metadata = new FileMetadata(1L, "/a.md", false, "old", Instant.EPOCH, 3L);
+    private final ServletWebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+    @Test
+    void rawMarkdown_shouldTagAndStreamTheSameRead() throws Exception {
+        StoredBody body = spy(StoredBody.of("new body"));
+        FileMetadata read = new FileMetadata(1L, "/a.md", false, "new", Instant.EPOCH, 4L);
+        when(markdownService.findMetadata("/a.md")).thenReturn(Optional.of(metadata));
+        when(markdownService.openRaw(metadata)).thenReturn(new RawDocument(read, body));
+
+        ResponseEntity<?> response = controller.rawMarkdown("/a.md", webRequest);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        assertEquals("\"raw-new\"", response.getHeaders().getETag());
+        assertEquals("4", response.getHeaders().getFirst(MarkdownController.VERSION_HEADER));
+        assertEquals("new body", out.toString(StandardCharsets.UTF_8));
+        verify(markdownService, times(1)).openRaw(metadata);
+        verify(body).close();
+    }
+
+    @Test
+    void viewMarkdown_shouldCountFailuresWhileStreaming() throws Exception {
+        DocumentSnapshot snapshot = new DocumentSnapshot(metadata, "# big", null);
+        IllegalStateException failure = new IllegalStateException("render failed");
+        when(markdownService.findMetadata("/a.md")).thenReturn(Optional.of(metadata));
+        when(markdownService.viewSnapshot(metadata, RenderProfile.PREVIEW)).thenReturn(snapshot);
+        doThrow(failure).when(markdownService).writeView(eq(snapshot), eq(RenderProfile.PREVIEW), any());
+
+        ResponseEntity<?> response = controller.viewMarkdown("/a.md", "preview", webRequest);
+
+        assertThrows(IllegalStateException.class,
+                () -> ((StreamingResponseBody) response.getBody()).writeTo(new ByteArrayOutputStream()));
+        verify(metrics).recordError("view", failure);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.dok.feed;
+
+import com.example.dok.dto.ChangeEventDto;
+import com.example.dok.event.FileChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    private final ChangeFeed changeFeed = new ChangeFeed(3_600_000, 3, 60_000, 3_600_000);
+
+    @AfterEach
+    void tearDown() {
+        changeFeed.shutdown();
+    }
+
+    @Test
+    void flush_shouldCoalesceChangesPerPath() {
+        changeFeed.onFileChanged(FileChangedEvent.created(1L, "/a.md", false, "a", "h1"));
+        changeFeed.onFileChanged(FileChangedEvent.updated(1L, "/a.md", "b", "h2"));
+        changeFeed.onFileChanged(FileChangedEvent.updated(1L, "/a.md", "c", "h3"));
+
+        List<ChangeEventDto> batch = changeFeed.flush();
+
+        assertEquals(List.of(new ChangeEventDto(1, FileChangedEvent.Type.CREATED, "/a.md", null, false, "h3")), batch);
+    }
+
+    @Test
+    void flush_shouldKeepOrderAcrossMovesAndDropChangesInsideDeletedDirectories() {
+        changeFeed.onFileChanged(FileChangedEvent.updated(1L, "/docs/a.md", "a", "h1"));
+        changeFeed.onFileChanged(FileChangedEvent.moved(2L, "/x.md", "/y.md", false));
+        changeFeed.onFileChanged(FileChangedEvent.created(3L, "/x.md", false, "x", "h2"));
+        changeFeed.onFileChanged(FileChangedEvent.deleted(4L, "/docs", true));
+
+        List<ChangeEventDto> batch = changeFeed.flush();
+
+        assertEquals(List.of(FileChangedEvent.Type.MOVED, FileChangedEvent.Type.CREATED, FileChangedEvent.Type.DELETED),
+                batch.stream().map(ChangeEventDto::type).toList());
+        assertEquals(List.of(1L, 2L, 3L), batch.stream().map(ChangeEventDto::sequence).toList());
+    }
+
+    @Test
+    void changesSince_shouldResumeFromHistory_untilItIsTrimmed() {
+        changeFeed.onFileChanged(FileChangedEvent.created(1L, "/a.md", false, "a", "h1"));
+        changeFeed.onFileChanged(FileChangedEvent.created(2L, "/b.md", false, "b", "h2"));
+        changeFeed.flush();
+
+        assertEquals(List.of("/b.md"), changeFeed.changesSince(1).stream().map(ChangeEventDto::path).toList());
+        assertTrue(changeFeed.changesSince(2).isEmpty());
+
+        changeFeed.onFileChanged(FileChangedEvent.created(3L, "/c.md", false, "c", "h3"));
+        changeFeed.onFileChanged(FileChangedEvent.created(4L, "/d.md", false, "d", "h4"));
+        changeFeed.flush();
+
+        assertNull(changeFeed.changesSince(0));
+        assertEquals(3, changeFeed.changesSince(1).size());
+    }
+
+    @Test
+    void subscribe_shouldReplayChangesAfterTheLastEventId() {
+        changeFeed.onFileChanged(FileChangedEvent.created(1L, "/a.md", false, "a", "h1"));
+        changeFeed.onFileChanged(FileChangedEvent.created(2L, "/b.md", false, "b", "h2"));
+        changeFeed.flush();
+
+        RecordingEmitter behind = new RecordingEmitter();
+        RecordingEmitter current = new RecordingEmitter();
+        changeFeed.subscribe(changeFeed.eventId(1), behind);
+        changeFeed.subscribe(changeFeed.eventId(2), current);
+
+        assertEquals(1, behind.events.size());
+        assertTrue(behind.events.get(0).contains("event:changes"));
+        assertTrue(behind.events.get(0).contains("id:" + changeFeed.eventId(2)));
+        assertTrue(behind.events.get(0).contains("/b.md"));
+        assertFalse(behind.events.get(0).contains("/a.md"));
+        assertTrue(current.events.isEmpty());
+    }
+
+    @Test
+    void subscribe_shouldReset_withoutIdOrForIdsItCannotResumeFrom() {
+        for (int i = 1; i <= 4; i++) {
+            changeFeed.onFileChanged(FileChangedEvent.created((long) i, "/" + i + ".md", false, "x", "h" + i));
+            changeFeed.flush();
+        }
+
+        for (String lastEventId : new String[]{null, "otherepoch-4", changeFeed.eventId(0), changeFeed.eventId(9), "garbage"}) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            changeFeed.subscribe(lastEventId, emitter);
+
+            assertEquals(1, emitter.events.size(), "for " + lastEventId);
+            assertTrue(emitter.events.get(0).contains("event:reset"), "for " + lastEventId);
+            assertTrue(emitter.events.get(0).contains("id:" + changeFeed.eventId(4)), "for " + lastEventId);
+        }
+    }
+
+    @Test
+    void publish_shouldSkipClientsWhoseReplayIncludedTheBatch() {
+        RecordingEmitter early = new RecordingEmitter();
+        changeFeed.subscribe(changeFeed.eventId(0), early);
+        changeFeed.onFileChanged(FileChangedEvent.created(1L, "/a.md", false, "a", "h1"));
+        List<ChangeEventDto> batch = changeFeed.flush();
+
+        RecordingEmitter late = new RecordingEmitter();
+        changeFeed.subscribe(changeFeed.eventId(0), late);
+        changeFeed.publish(batch);
+
+        assertEquals(1, early.events.size());
+        assertTrue(early.events.get(0).contains("/a.md"));
+        assertEquals(1, late.events.size());
+        assertTrue(late.events.get(0).contains("/a.md"));
+    }
+
+    /**
+     * Keeps every event as the text it would be written as, with data objects in their {@code toString} form.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            events.add(builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(String::valueOf)
+                    .collect(Collectors.joining()));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.dok.links;
+
+import com.example.dok.dto.LinkDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkGraphTest {
+
+    private final LinkGraph linkGraph = new LinkGraph();
+
+    @Test
+    void resolve_shouldHandleRelativeAbsoluteAndAnchoredTargets() {
+        assertEquals("/docs/Page.md", LinkTargets.resolve("/docs/a.md", "Page"));
+        assertEquals("/notes/b.md", LinkTargets.resolve("/docs/a.md", "../notes/b#section"));
+        assertEquals("/img/logo.png", LinkTargets.resolve("/docs/a.md", "/img/logo.png"));
+        assertNull(LinkTargets.resolve("/a.md", "../outside"));
+        assertNull(LinkTargets.resolve("/a.md", "https://example.com"));
+    }
+
+    @Test
+    void backlinks_shouldListSourcesLinkingToPath() {
+        linkGraph.put(1L, "/docs/a.md", links("/docs/a.md", "b"));
+        linkGraph.put(2L, "/docs/b.md", List.of());
+        linkGraph.put(3L, "/c.md", links("/c.md", "/docs/b"));
+
+        List<LinkDto> backlinks = linkGraph.backlinks("/docs/b.md");
+
+        assertEquals(List.of(new LinkDto("/c.md", "/docs/b", "/docs/b.md"), new LinkDto("/docs/a.md", "b", "/docs/b.md")), backlinks);
+    }
+
+    @Test
+    void brokenLinks_shouldFollowDeletesAndMoves() {
+        linkGraph.put(1L, "/a.md", links("/a.md", "docs/b"));
+        linkGraph.put(2L, "/docs/b.md", List.of());
+        assertTrue(linkGraph.brokenLinks().isEmpty());
+
+        linkGraph.move("/docs", "/archive");
+        assertEquals(List.of(new LinkDto("/a.md", "docs/b", "/docs/b.md")), linkGraph.brokenLinks());
+
+        linkGraph.move("/archive", "/docs");
+        linkGraph.removeSubtree("/a.md");
+        assertTrue(linkGraph.brokenLinks().isEmpty());
+        assertTrue(linkGraph.backlinks("/docs/b.md").isEmpty());
+    }
+
+    private static List<LinkGraph.Link> links(String sourcePath, String... targets) {
+        return Arrays.stream(targets)
+                .map(target -> new LinkGraph.Link(target, LinkTargets.resolve(sourcePath, target)))
+                .toList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.dok.markdown;
+
+import com.example.dok.config.MarkdownConfig;
+import com.example.dok.dto.OutlineDto;
+import com.vladsch.flexmark.ast.Heading;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentPipelineTest {
+
+    private final DocumentPipeline pipeline = new DocumentPipeline(new MarkdownConfig().parser(), 1024 * 1024);
+
+    @Test
+    void parse_shouldShareTheTree_forTheSameContentHash() {
+        ParsedDocument first = pipeline.parse("h1", "# Title");
+        ParsedDocument second = pipeline.parse("h1", "# Title");
+
+        assertSame(first, second);
+        assertNotSame(first, pipeline.parse("h2", "# Other"));
+    }
+
+    @Test
+    void parse_shouldCollectOutlineWithAnchorsMatchingRenderedIds() {
+        ParsedDocument document = pipeline.parse(null, """
+                # Getting Started
+
+                ## Next Steps
+
+                See [[other-page]] and [[other-page]].
+                """);
+
+        OutlineDto outline = document.outline();
+        assertEquals(List.of(
+                new OutlineDto.Heading(1, "Getting Started", "getting-started"),
+                new OutlineDto.Heading(2, "Next Steps", "next-steps")), outline.headings());
+        assertEquals(List.of("other-page"), outline.links());
+
+        String html = pipeline.render(document, RenderProfile.PREVIEW);
+        assertTrue(html.contains("<h1 id=\"getting-started\">"));
+        assertTrue(html.contains("<h2 id=\"next-steps\">"));
+    }
+
+    @Test
+    void render_shouldEmitTheIdsAssignedAtParse_withoutWritingToTheTree() {
+        ParsedDocument document = pipeline.parse(null, "# Title\n");
+        Heading heading = (Heading) document.root().getFirstChild();
+        heading.setAnchorRefId("assigned");
+
+        String preview = pipeline.render(document, RenderProfile.PREVIEW);
+        String safe = pipeline.render(document, RenderProfile.SAFE);
+
+        assertTrue(preview.contains("<h1 id=\"assigned\">"));
+        assertTrue(safe.contains("<h1 id=\"assigned\">"));
+        assertEquals("assigned", heading.getAnchorRefId());
+    }
+
+    @Test
+    void render_shouldApplyProfilesToTheSameParse() {
+        ParsedDocument document = pipeline.parse(null, "# Title\n\n<div onclick=\"x()\">raw</div>\n\nline one\nline two\n");
+
+        String preview = pipeline.render(document, RenderProfile.PREVIEW);
+        String safe = pipeline.render(document, RenderProfile.SAFE);
+        String print = pipeline.render(document, RenderProfile.PRINT);
+
+        assertTrue(preview.contains("<div onclick"));
+        assertFalse(safe.contains("<div onclick"));
+        assertTrue(safe.contains("&lt;div"));
+        assertTrue(print.contains("<h1>Title</h1>"));
+        assertTrue(print.contains("line one line two"));
+    }
+
+    @Test
+    void parse_shouldCountWordsOutsideCodeBlocks() {
+        ParsedDocument document = pipeline.parse(null, """
+                # Two words
+
+                Some *intro* text here.
+
+                ```
+                code is not counted
+                ```
+                """);
+
+        assertEquals(6, document.outline().wordCount());
+    }
+
+    @Test
+    void countWords_shouldSplitOnWhitespace() {
+        assertEquals(0, DocumentPipeline.countWords("  \n "));
+        assertEquals(3, DocumentPipeline.countWords(" one two\tthree "));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.dok.revisions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineDiffTest {
+
+    @Test
+    void unified_shouldEmitHunkWithContext() {
+        String from = "a\nb\nc\nd\ne\nf\ng\n";
+        String to = "a\nb\nc\nD\ne\nf\ng\nh\n";
+
+        String diff = LineDiff.unified("x@1", "x@2", from, to, 1);
+
+        assertEquals("""
+                --- x@1
+                +++ x@2
+                @@ -3,3 +3,3 @@
+                 c
+                -d
+                +D
+                 e
+                @@ -7 +7,2 @@
+                 g
+                +h
+                """, diff);
+    }
+
+    @Test
+    void unified_shouldBeEmpty_whenTextsAreEqual() {
+        assertEquals("--- x@1\n+++ x@2\n", LineDiff.unified("x@1", "x@2", "same\n", "same\n", 3));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.dok.revisions;
+
+import com.example.dok.dto.TextOperationDto;
+import com.example.dok.service.TextOperations;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevisionCodecTest {
+
+    @Test
+    void delta_shouldCoverOnlyTheChangedRegion() {
+        TextOperationDto delta = RevisionCodec.delta("# Title\nHello world\n", "# Title\nHello big world\n");
+
+        assertEquals(new TextOperationDto(14, 0, "big "), delta);
+    }
+
+    @Test
+    void delta_shouldRoundTripThroughEncoding_withoutSplittingSurrogatePairs() {
+        String from = "emoji 😀 end";
+        String to = "emoji 😁 end";
+
+        TextOperationDto decoded = RevisionCodec.decodeDelta(RevisionCodec.encodeDelta(RevisionCodec.delta(from, to)));
+
+        assertEquals(to, TextOperations.apply(from, List.of(decoded)));
+    }
+
+    @Test
+    void keyframe_shouldRoundTrip() {
+        String content = "# Grüße\n".repeat(100);
+
+        byte[] encoded = RevisionCodec.encodeKeyframe(content);
+
+        assertTrue(encoded.length < content.length());
+        assertEquals(content, RevisionCodec.decodeKeyframe(encoded));
+    }
+}
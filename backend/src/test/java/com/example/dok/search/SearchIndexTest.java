@@ -0,0 +1,70 @@
+package com.example.dok.search;
+
+import com.vladsch.flexmark.parser.Parser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private final Parser parser = Parser.builder().build();
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new SearchIndex();
+        index(1, "/docs/cache.md", "# Caching\n\nThe render cache keeps HTML around.");
+        index(2, "/docs/notes.md", "Some notes that mention caching once.");
+        index(3, "/other/tables.md", "Tables render nicely in the preview.");
+    }
+
+    private void index(long id, String path, String content) {
+        searchIndex.put(DocumentTextExtractor.extract(id, path, "hash-" + id, parser.parse(content)));
+    }
+
+    private List<String> paths(String query) {
+        return searchIndex.search(SearchQuery.parse(query), 10).stream().map(SearchIndex.SearchHit::path).toList();
+    }
+
+    @Test
+    void search_shouldRankHeadingMatchesFirst() {
+        assertEquals(List.of("/docs/cache.md", "/docs/notes.md"), paths("caching"));
+    }
+
+    @Test
+    void search_shouldRequireEveryClause() {
+        assertEquals(List.of("/docs/cache.md"), paths("render cache"));
+    }
+
+    @Test
+    void search_shouldMatchPrefixesAndPhrases() {
+        assertEquals(List.of("/other/tables.md"), paths("tab*"));
+        assertEquals(List.of("/docs/cache.md"), paths("\"render cache\""));
+        assertTrue(paths("\"cache render\"").isEmpty());
+    }
+
+    @Test
+    void move_shouldRewritePathsOfSubtree() {
+        searchIndex.move("/docs", "/archive/docs");
+
+        assertEquals(List.of("/archive/docs/cache.md"), paths("render cache"));
+    }
+
+    @Test
+    void removeSubtree_shouldDropAllDocumentsBelowPath() {
+        searchIndex.removeSubtree("/docs");
+
+        assertTrue(paths("caching").isEmpty());
+        assertEquals(1, searchIndex.size());
+    }
+
+    @Test
+    void highlight_shouldMarkMatchesAndEscapeHtml() {
+        String snippet = Snippets.highlight("<b>Render</b> the cache", SearchQuery.parse("cache"), 80);
+
+        assertEquals("&lt;b&gt;Render&lt;/b&gt; the <mark>cache</mark>", snippet);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.dok.service;
+
+import com.example.dok.dto.ImportResultDto;
+import com.example.dok.exception.ArchiveImportException;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.model.MarkdownFile;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.storage.ContentStore;
+import com.example.dok.tree.TreeIndex;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ArchiveServiceTest {
+
+    private final ContentStore contentStore = mock(ContentStore.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final TreeIndex index = new TreeIndex(mock(MarkdownFileRepository.class));
+    private ArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        AtomicLong ids = new AtomicLong(100);
+        doAnswer(invocation -> {
+            invocation.<MarkdownFile>getArgument(0).setId(ids.incrementAndGet());
+            return null;
+        }).when(entityManager).persist(any(MarkdownFile.class));
+        index.add(new FileMetadata(1L, "/", true, null, null, 0L));
+        archiveService = new ArchiveService(mock(MarkdownFileRepository.class), index, contentStore, entityManager,
+                mock(PlatformTransactionManager.class), mock(ApplicationEventPublisher.class), 2, 10);
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] text(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void importArchive_shouldRejectEscapingNamesInvalidTextAndOversizedEntries() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("../evil.md", text("x"));
+        entries.put("docs/../../evil.md", text("x"));
+        entries.put("latin1.md", new byte[]{(byte) 0xC3, (byte) 0x28});
+        entries.put("big.md", text("12345678901"));
+        entries.put("ok.md", text("# ok"));
+
+        ImportResultDto result = archiveService.importArchive("/", new ByteArrayInputStream(zip(entries)));
+
+        assertEquals(new ImportResultDto(0, 1, 0, 4, 5, null), result);
+        verify(contentStore).create(anyLong(), eq("/ok.md"), eq("# ok"));
+        verifyNoMoreInteractions(contentStore);
+    }
+
+    @Test
+    void importArchive_shouldSkipExistingPaths() throws IOException {
+        index.add(new FileMetadata(2L, "/docs", true, null, null, 0L));
+        index.add(new FileMetadata(3L, "/docs/a.md", false, "h", null, 0L));
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("docs/a.md", text("replaced"));
+        entries.put("docs/b.md", text("new"));
+
+        ImportResultDto result = archiveService.importArchive("/", new ByteArrayInputStream(zip(entries)));
+
+        assertEquals(new ImportResultDto(0, 1, 1, 0, 2, null), result);
+        verify(contentStore, never()).create(anyLong(), eq("/docs/a.md"), anyString());
+        verify(contentStore).create(anyLong(), eq("/docs/b.md"), eq("new"));
+    }
+
+    @Test
+    void importArchive_shouldReportTheCommittedChunks_whenALaterChunkFails() throws IOException {
+        doThrow(new IllegalStateException("disk full")).when(contentStore).create(anyLong(), eq("/c.md"), anyString());
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (String name : new String[]{"a.md", "b.md", "c.md", "d.md", "e.md"}) {
+            entries.put(name, text(name));
+        }
+
+        ArchiveImportException e = assertThrows(ArchiveImportException.class,
+                () -> archiveService.importArchive("/", new ByteArrayInputStream(zip(entries))));
+
+        assertEquals(new ImportResultDto(0, 2, 0, 0, 2, "disk full"), e.getResult());
+        verify(contentStore, never()).create(anyLong(), eq("/e.md"), anyString());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.dok.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DokMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DokMetrics metrics = new DokMetrics(registry);
+
+    @Test
+    void recordRender_shouldSeparateParseAndRenderTime() {
+        metrics.recordRender(1200, TimeUnit.MILLISECONDS.toNanos(3), TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(3, registry.get("dok.markdown.parse").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(5, registry.get("dok.markdown.render").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1200, registry.get("dok.document.size").tag("operation", "render").summary().totalAmount());
+    }
+
+    @Test
+    void recordError_shouldCountByOperationAndCause() {
+        metrics.recordError("save", new IllegalArgumentException());
+        metrics.recordError("save", new IllegalArgumentException());
+        metrics.recordError("move", "Rejected");
+
+        assertEquals(2, registry.get("dok.errors").tags("operation", "save", "cause", "IllegalArgumentException").counter().count());
+        assertEquals(1, registry.get("dok.errors").tags("operation", "move", "cause", "Rejected").counter().count());
+    }
+
+    @Test
+    void recordQueries_shouldKeepOneSeriesPerEndpoint() {
+        metrics.recordQueries("POST", "/move", 3);
+        metrics.recordQueries("POST", "/move", 5);
+
+        assertEquals(2, registry.get("dok.db.statements").tags("method", "POST", "uri", "/move").summary().count());
+        assertEquals(8, registry.get("dok.db.statements").tags("method", "POST", "uri", "/move").summary().totalAmount());
+    }
+
+    @Test
+    void recordStartupPhase_shouldKeepOneSeriesPerPhase() {
+        metrics.recordStartupPhase("tree-index", TimeUnit.MILLISECONDS.toNanos(40));
+        metrics.recordStartupPhase("search-index", TimeUnit.MILLISECONDS.toNanos(900));
+
+        assertEquals(40, registry.get("dok.startup.phase").tag("phase", "tree-index").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(2, registry.get("dok.startup.phase").timers().size());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.dok.service;
+
+import com.example.dok.config.BoundedDataSource;
+import com.example.dok.dto.ExecutionStatsDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExecutionMonitorTest {
+
+    @Test
+    void stats_shouldReportRequestsInFlightAndDatabasePermits() throws Exception {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+        BoundedDataSource dataSource = new BoundedDataSource(target, 2, Duration.ofMillis(10));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExecutionMonitor monitor = new ExecutionMonitor(dataSource, registry, true);
+
+        monitor.requestStarted();
+        monitor.requestStarted();
+        monitor.requestFinished();
+        dataSource.getConnection();
+        ExecutionStatsDto stats = monitor.stats();
+
+        assertEquals(1, stats.requestsInFlight());
+        assertEquals(2, stats.peakRequestsInFlight());
+        assertEquals(1, stats.dbInUse());
+        assertEquals(1.0, registry.get("dok.requests.in-flight").gauge().value());
+        assertEquals(1.0, registry.get("dok.db.permits").tag("state", "in-use").gauge().value());
+        assertEquals(0.0, registry.get("dok.db.permits").tag("state", "waiting").gauge().value());
+    }
+}
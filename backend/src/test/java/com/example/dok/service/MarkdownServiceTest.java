@@ -1,21 +1,37 @@
 package com.example.dok.service;
 
-import com.example.dok.dto.FileEntryDto;
-import com.example.dok.dto.MoveFileRequestDto;
-import com.example.dok.dto.UpdateFileContentRequestDto;
+import com.example.dok.dto.*;
+import com.example.dok.event.ExternalEditEvent;
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.exception.FileNotFoundException;
+import com.example.dok.exception.VersionConflictException;
+import com.example.dok.markdown.RenderProfile;
+import com.example.dok.model.DocumentSnapshot;
+import com.example.dok.model.FileMetadata;
 import com.example.dok.model.MarkdownFile;
+import com.example.dok.model.RawDocument;
 import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.storage.ContentStore;
+import com.example.dok.storage.StoredBody;
+import com.example.dok.tree.TreeIndex;
+import com.example.dok.writebehind.WriteBehindBuffer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,24 +40,51 @@ class MarkdownServiceTest {
     @Mock
     private MarkdownFileRepository repository;
 
+    @Spy
+    private TreeIndex index = new TreeIndex(mock(MarkdownFileRepository.class));
+
+    @Mock
+    private ContentStore contentStore;
+
+    @Mock
+    private RenderCache renderCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private DokMetrics metrics;
+
+    @Mock
+    private WriteBehindBuffer writeBehind;
+
     @InjectMocks
     private MarkdownService markdownService;
 
     @Test
     void createFile_shouldCreateFile_whenPathIsNew() {
         String path = "/docs/new-file.md";
-        when(repository.existsByPath(path)).thenReturn(false);
+        index.add(new FileMetadata(7L, "/docs", true, null, null, 0L));
+        when(repository.save(any(MarkdownFile.class))).thenAnswer(invocation -> {
+            MarkdownFile saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
 
         String result = markdownService.createFile(path);
 
         assertEquals("File created successfully!", result);
-        verify(repository).save(any(MarkdownFile.class));
+        verify(repository).save(argThat((MarkdownFile file) ->
+                "/docs".equals(file.getParentPath()) && Long.valueOf(7L).equals(file.getParentId())));
+        verify(contentStore).create(1L, path, "# New File\n");
+        assertEquals(1L, index.find(path).orElseThrow().id());
     }
 
     @Test
     void createFile_shouldReturnError_whenPathExists() {
         String path = "/docs/existing-file.md";
-        when(repository.existsByPath(path)).thenReturn(true);
+        index.add(new FileMetadata(7L, "/docs", true, null, null, 0L));
+        index.add(new FileMetadata(8L, path, false, "hash", null, 0L));
 
         String result = markdownService.createFile(path);
 
@@ -49,37 +92,164 @@ class MarkdownServiceTest {
         verify(repository, never()).save(any());
     }
 
+    @Test
+    void createFile_shouldReturnError_whenParentDirectoryIsMissing() {
+        String path = "/missing/new-file.md";
+
+        String result = markdownService.createFile(path);
+
+        assertEquals("Error: Parent directory not found.", result);
+        verify(repository, never()).save(any());
+    }
+
     @Test
     void saveMarkdown_shouldUpdateFile() {
         String path = "/docs/file.md";
         String content = "New content";
-        UpdateFileContentRequestDto request = new UpdateFileContentRequestDto(path, content);
+        UpdateFileContentRequestDto request = new UpdateFileContentRequestDto(path, content, null);
         MarkdownFile file = MarkdownFile.builder()
+                .id(1L)
                 .path(path)
                 .name("file.md")
                 .isDirectory(false)
-                .content("Old content")
                 .build();
 
         when(repository.findByPath(path)).thenReturn(Optional.of(file));
+        when(repository.saveAndFlush(file)).thenAnswer(invocation -> incrementVersion(file));
+        index.add(new FileMetadata(1L, path, false, null, null, 0L));
 
         String result = markdownService.saveMarkdown(request);
 
         assertEquals("File saved successfully!", result);
-        verify(repository).save(file);
-        assertEquals(content, file.getContent());
+        verify(repository).saveAndFlush(file);
+        verify(contentStore).write(1L, path, 1L, content);
+        assertEquals(1L, file.getVersion());
+        verify(renderCache).invalidate(path);
+        verify(eventPublisher).publishEvent(FileChangedEvent.updated(1L, path, content, ContentHash.of(content)));
+        assertEquals(ContentHash.of(content), file.getContentHash());
+        assertNotNull(file.getLastModified());
+        assertEquals(1L, index.find(path).orElseThrow().version());
+    }
+
+    @Test
+    void saveMarkdown_shouldThrowConflict_whenExpectedVersionIsStale() {
+        String path = "/docs/file.md";
+        MarkdownFile file = MarkdownFile.builder().id(1L).path(path).name("file.md").isDirectory(false).version(3).build();
+        when(repository.findByPath(path)).thenReturn(Optional.of(file));
+
+        UpdateFileContentRequestDto request = new UpdateFileContentRequestDto(path, "New content", 2L);
+
+        assertThrows(VersionConflictException.class, () -> markdownService.saveMarkdown(request));
+        verify(repository, never()).saveAndFlush(any());
+        verify(contentStore, never()).write(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void viewMarkdown_shouldServeCachedHtml_withoutLoadingContent() {
+        String path = "/docs/file.md";
+        index.add(new FileMetadata(1L, path, false, "hash", Instant.now(), 0L));
+        when(renderCache.getIfPresent(path, "hash")).thenReturn("<p>cached</p>");
+
+        String result = markdownService.viewMarkdown(path);
+
+        assertEquals("<p>cached</p>", result);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void viewSnapshot_shouldUseCachedHtml_withoutLoadingContent() throws Exception {
+        FileMetadata metadata = new FileMetadata(1L, "/docs/file.md", false, "hash", Instant.now(), 0L);
+        when(renderCache.getIfPresent("/docs/file.md", "hash")).thenReturn("<p>cached</p>");
+        StringBuilder out = new StringBuilder();
+
+        DocumentSnapshot snapshot = markdownService.viewSnapshot(metadata, RenderProfile.PREVIEW);
+        markdownService.writeView(snapshot, RenderProfile.PREVIEW, out);
+
+        assertEquals(metadata, snapshot.metadata());
+        assertEquals("<p>cached</p>", out.toString());
+        verify(contentStore, never()).read(any(), any());
+    }
+
+    @Test
+    void rawSnapshot_shouldTakeVersionFromTheSaveItRead() {
+        FileMetadata metadata = new FileMetadata(1L, "/docs/file.md", false, "stale", Instant.now(), 3L);
+        index.add(new FileMetadata(1L, "/docs/file.md", false, ContentHash.of("newer"), Instant.now(), 4L));
+        when(writeBehind.content("/docs/file.md")).thenReturn(Optional.empty());
+        when(contentStore.read(1L, "/docs/file.md")).thenReturn(Optional.of("newer"));
+
+        DocumentSnapshot snapshot = markdownService.rawSnapshot(metadata);
+
+        assertEquals("newer", snapshot.content());
+        assertEquals(ContentHash.of("newer"), snapshot.metadata().contentHash());
+        assertEquals(4L, snapshot.metadata().version());
+        verify(contentStore, times(1)).read(1L, "/docs/file.md");
+    }
+
+    @Test
+    void openRaw_shouldReadAgain_untilMetadataDescribesTheBody() throws Exception {
+        FileMetadata metadata = new FileMetadata(1L, "/docs/file.md", false, ContentHash.of("old"), Instant.now(), 3L);
+        FileMetadata saved = new FileMetadata(1L, "/docs/file.md", false, ContentHash.of("newest"), Instant.now(), 5L);
+        index.add(saved);
+        when(writeBehind.content("/docs/file.md")).thenReturn(Optional.empty());
+        when(contentStore.open(1L, "/docs/file.md")).thenReturn(StoredBody.of("newer"), StoredBody.of("newest"));
+
+        RawDocument raw = markdownService.openRaw(metadata);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        raw.body().transferTo(out);
+
+        assertEquals(saved, raw.metadata());
+        assertEquals("newest", out.toString(StandardCharsets.UTF_8));
+        verify(contentStore, times(2)).open(1L, "/docs/file.md");
+    }
+
+    @Test
+    void patchMarkdown_shouldAppendOperations_whenBaseVersionMatches() {
+        String path = "/docs/file.md";
+        MarkdownFile file = MarkdownFile.builder().id(1L).path(path).name("file.md").isDirectory(false).version(4).build();
+        List<TextOperationDto> operations = List.of(new TextOperationDto(6, 0, "big "));
+        when(repository.findByPath(path)).thenReturn(Optional.of(file));
+        when(contentStore.read(1L, path)).thenReturn(Optional.of("Hello world"));
+        when(repository.saveAndFlush(file)).thenAnswer(invocation -> incrementVersion(file));
+
+        SaveResultDto result = markdownService.patchMarkdown(new PatchFileContentRequestDto(path, 4, operations));
+
+        assertEquals(5L, result.version());
+        assertEquals(ContentHash.of("Hello big world"), file.getContentHash());
+        assertEquals(1, file.getPendingOperations());
+        verify(contentStore).append(1L, path, 5L, operations);
+        verify(contentStore, never()).write(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void patchMarkdown_shouldThrowConflict_whenBaseVersionIsStale() {
+        String path = "/docs/file.md";
+        MarkdownFile file = MarkdownFile.builder().id(1L).path(path).name("file.md").isDirectory(false).version(5).build();
+        when(repository.findByPath(path)).thenReturn(Optional.of(file));
+
+        PatchFileContentRequestDto request = new PatchFileContentRequestDto(path, 4, List.of(new TextOperationDto(0, 0, "x")));
+
+        assertThrows(VersionConflictException.class, () -> markdownService.patchMarkdown(request));
+        verify(contentStore, never()).append(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void applyOperations_shouldRejectOutOfRangeEdits() {
+        assertEquals("abXYe", TextOperations.apply("abcde", List.of(new TextOperationDto(2, 2, "XY"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> TextOperations.apply("abc", List.of(new TextOperationDto(2, 5, ""))));
     }
 
     @Test
     void delete_shouldDeleteFile_whenPathExists() {
         String path = "/docs/file-to-delete.md";
-        MarkdownFile file = MarkdownFile.builder().path(path).name("file-to-delete.md").isDirectory(false).build();
+        MarkdownFile file = MarkdownFile.builder().id(1L).path(path).name("file-to-delete.md").isDirectory(false).build();
         when(repository.findByPath(path)).thenReturn(Optional.of(file));
 
         String result = markdownService.delete(path);
 
         assertEquals("Deleted successfully!", result);
-        verify(repository).deleteByPath(path);
+        verify(contentStore).delete(1L, path);
+        verify(repository).delete(file);
     }
 
     @Test
@@ -87,48 +257,222 @@ class MarkdownServiceTest {
         String path = "/docs/dir-to-delete";
         MarkdownFile dir = MarkdownFile.builder().path(path).name("dir-to-delete").isDirectory(true).build();
         when(repository.findByPath(path)).thenReturn(Optional.of(dir));
+        index.add(new FileMetadata(2L, path, true, null, null, 0L));
+        index.add(new FileMetadata(3L, path + "/child.md", false, "hash", null, 0L));
 
         String result = markdownService.delete(path);
 
         assertEquals("Deleted successfully!", result);
-        verify(repository).deleteByPathStartingWith(path);
+        verify(contentStore).deleteSubtree(path, "/docs/dir-to-delete/%");
+        verify(repository).deleteDescendants("/docs/dir-to-delete/%");
+        verify(repository).delete(dir);
+        assertFalse(index.exists(path));
+        assertFalse(index.exists(path + "/child.md"));
+        assertTrue(index.children("/docs").isEmpty());
     }
 
     @Test
     void move_shouldMoveFile_whenDestinationIsEmpty() {
         String source = "/docs/source.md";
         String destination = "/new-docs";
-        MoveFileRequestDto request = new MoveFileRequestDto(source, destination);
+        MoveFileRequestDto request = new MoveFileRequestDto(source, destination, null);
         MarkdownFile sourceFile = MarkdownFile.builder()
                 .path(source)
                 .name("source.md")
                 .isDirectory(false)
-                .content("content")
                 .build();
 
         when(repository.findByPath(source)).thenReturn(Optional.of(sourceFile));
-        when(repository.existsByPath(destination + "/" + sourceFile.getName())).thenReturn(false);
+        index.add(new FileMetadata(3L, destination, true, null, null, 0L));
+        index.add(new FileMetadata(5L, source, false, "hash", null, 0L));
+        when(repository.findSubtreeMetadata("/new-docs/source.md", "/new-docs/source.md/%"))
+                .thenReturn(List.of(new FileMetadata(5L, "/new-docs/source.md", false, "hash", null, 1L)));
 
         String result = markdownService.move(request);
 
         assertEquals("Moved successfully!", result);
         verify(repository).save(sourceFile);
+        verify(repository, never()).rebaseDescendants(any(), any(), anyInt());
         assertEquals("/new-docs/source.md", sourceFile.getPath());
+        assertEquals("/new-docs", sourceFile.getParentPath());
+        assertEquals(3L, sourceFile.getParentId());
+        assertFalse(index.exists(source));
+        assertEquals(1L, index.find("/new-docs/source.md").orElseThrow().version());
     }
 
     @Test
-    void listFiles_shouldReturnDirectChildren() {
-        String path = "/docs";
-        MarkdownFile childFile = MarkdownFile.builder().path(path + "/file.md").name("file.md").isDirectory(false).build();
-        MarkdownFile childDir = MarkdownFile.builder().path(path + "/subdir").name("subdir").isDirectory(true).build();
-        MarkdownFile grandchild = MarkdownFile.builder().path(path + "/subdir/grandchild.md").name("grandchild.md").isDirectory(false).build();
+    void move_shouldRebaseDescendantsInOneStatement_whenSourceIsDirectory() {
+        String source = "/docs/sub";
+        String destination = "/archive";
+        MarkdownFile sourceDir = MarkdownFile.builder().path(source).name("sub").isDirectory(true).build();
 
-        when(repository.findByPathStartingWith(path + "/")).thenReturn(List.of(childFile, childDir, grandchild));
+        when(repository.findByPath(source)).thenReturn(Optional.of(sourceDir));
+        index.add(new FileMetadata(3L, destination, true, null, null, 0L));
 
-        List<FileEntryDto> result = markdownService.listFiles(path);
+        String result = markdownService.move(new MoveFileRequestDto(source, destination, null));
+
+        assertEquals("Moved successfully!", result);
+        verify(repository).rebaseDescendants("/docs/sub/%", "/archive/sub", source.length() + 1);
+        verify(contentStore).move(source, "/archive/sub");
+        assertEquals("/archive/sub", sourceDir.getPath());
+    }
+
+    @Test
+    void onExternalEdit_shouldAdoptChangedContent_asNewVersion() {
+        String path = "/docs/file.md";
+        MarkdownFile file = MarkdownFile.builder().id(1L).path(path).name("file.md").isDirectory(false)
+                .contentHash(ContentHash.of("old")).version(2).build();
+        when(repository.findByPath(path)).thenReturn(Optional.of(file));
+        when(repository.saveAndFlush(file)).thenAnswer(invocation -> incrementVersion(file));
+
+        markdownService.onExternalEdit(new ExternalEditEvent(path, "new", ContentHash.of("new")));
+
+        assertEquals(3L, file.getVersion());
+        assertEquals(ContentHash.of("new"), file.getContentHash());
+        verify(renderCache).invalidate(path);
+        verify(eventPublisher).publishEvent(FileChangedEvent.updated(1L, path, "new", ContentHash.of("new")));
+        verify(contentStore, never()).write(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void onExternalEdit_shouldIgnoreUnchangedContent() {
+        String path = "/docs/file.md";
+        MarkdownFile file = MarkdownFile.builder().id(1L).path(path).name("file.md").isDirectory(false)
+                .contentHash(ContentHash.of("same")).build();
+        when(repository.findByPath(path)).thenReturn(Optional.of(file));
+
+        markdownService.onExternalEdit(new ExternalEditEvent(path, "same", ContentHash.of("same")));
+
+        verify(repository, never()).saveAndFlush(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void move_shouldReturnError_whenDestinationIsInsideSource() {
+        String source = "/docs";
+        MarkdownFile sourceDir = MarkdownFile.builder().path(source).name("docs").isDirectory(true).build();
+        when(repository.findByPath(source)).thenReturn(Optional.of(sourceDir));
+
+        String result = markdownService.move(new MoveFileRequestDto(source, "/docs/sub", null));
+
+        assertEquals("Error: Cannot move a directory into itself.", result);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void move_shouldReturnError_whenTargetPathIsTaken() {
+        String source = "/docs/source.md";
+        MarkdownFile sourceFile = MarkdownFile.builder().path(source).name("source.md").isDirectory(false).build();
+        when(repository.findByPath(source)).thenReturn(Optional.of(sourceFile));
+        index.add(new FileMetadata(3L, "/archive", true, null, null, 0L));
+        index.add(new FileMetadata(4L, "/archive/source.md", false, "hash", null, 0L));
+
+        String result = markdownService.move(new MoveFileRequestDto(source, "/archive", null));
+
+        assertEquals("Error: A file or directory with that name already exists in the destination.", result);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void descendantsPattern_shouldEscapeLikeWildcards() {
+        assertEquals("/my\\_docs/100\\%/%", MarkdownService.descendantsPattern("/my_docs/100%"));
+        assertEquals("/%", MarkdownService.descendantsPattern("/"));
+    }
+
+    @Test
+    void listFiles_shouldListDirectChildrenFromIndex() {
+        index.add(new FileMetadata(7L, "/docs", true, null, null, 0L));
+        index.add(new FileMetadata(8L, "/docs/file.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(9L, "/docs/subdir", true, null, null, 0L));
+        index.add(new FileMetadata(10L, "/docs/subdir/nested.md", false, "hash", null, 0L));
+
+        List<FileEntryDto> result = markdownService.listFiles("/docs/");
+
+        assertEquals(List.of(
+                new FileEntryDto("subdir", "/docs/subdir", true),
+                new FileEntryDto("file.md", "/docs/file.md", false)), result);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void listPage_shouldTrimToLimitAndReturnCursorOfLastEntry() {
+        index.add(new FileMetadata(1L, "/a", true, null, null, 0L));
+        index.add(new FileMetadata(2L, "/a/x.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(3L, "/b.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(4L, "/c.md", false, "hash", null, 0L));
+
+        DirectoryPageDto page = markdownService.listPage("/", null, 2, 0);
+
+        assertEquals(List.of("a", "b.md"), page.entries().stream().map(DirectoryEntryDto::name).toList());
+        assertEquals(1, page.entries().get(0).childCount());
+        assertNull(page.entries().get(0).children());
+        assertEquals("fb.md", MarkdownService.decodeCursor(page.nextCursor()));
+    }
+
+    @Test
+    void listPage_shouldResumeAfterCursor() {
+        index.add(new FileMetadata(7L, "/docs", true, null, null, 0L));
+        index.add(new FileMetadata(8L, "/docs/sub", true, null, null, 0L));
+        index.add(new FileMetadata(9L, "/docs/a.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(10L, "/docs/b.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(11L, "/docs/c.md", false, "hash", null, 0L));
+        String afterDirectory = MarkdownService.encodeCursor(new DirectoryEntryDto("sub", "/docs/sub", true, 0));
+        String afterFile = MarkdownService.encodeCursor(new DirectoryEntryDto("b.md", "/docs/b.md", false, 0));
+
+        assertEquals("/docs/a.md", markdownService.listPage("/docs", afterDirectory, 10, 0).entries().get(0).path());
+        DirectoryPageDto last = markdownService.listPage("/docs", afterFile, 10, 0);
+        assertEquals(List.of("/docs/c.md"), last.entries().stream().map(DirectoryEntryDto::path).toList());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void listPage_shouldPrefetchSubdirectoriesToRequestedDepth() {
+        index.add(new FileMetadata(1L, "/a", true, null, null, 0L));
+        index.add(new FileMetadata(2L, "/empty", true, null, null, 0L));
+        index.add(new FileMetadata(3L, "/z.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(4L, "/a/b", true, null, null, 0L));
+        index.add(new FileMetadata(5L, "/a/c.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(6L, "/a/d.md", false, "hash", null, 0L));
+        index.add(new FileMetadata(7L, "/a/b/e.md", false, "hash", null, 0L));
+
+        DirectoryPageDto page = markdownService.listPage("/", null, 2, 2);
+
+        DirectoryEntryDto a = page.entries().get(0);
+        assertEquals(List.of("b", "c.md"), a.children().entries().stream().map(DirectoryEntryDto::name).toList());
+        assertEquals("fc.md", MarkdownService.decodeCursor(a.children().nextCursor()));
+        DirectoryEntryDto b = a.children().entries().get(0);
+        assertEquals("/a/b/e.md", b.children().entries().get(0).path());
+        assertNull(b.children().nextCursor());
+        assertNull(page.entries().get(1).children());
+    }
+
+    @Test
+    void listPage_shouldRejectMissingDirectoryAndMalformedCursor() {
+        assertThrows(FileNotFoundException.class, () -> markdownService.listPage("/missing", null, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> markdownService.listPage("/", "x", 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> markdownService.listPage("/", "!!", 10, 0));
+    }
+
+    @Test
+    void normalizePath_shouldCollapseRepeatedSlashesAndDropTrailingSlash() {
+        assertEquals("/", MarkdownService.normalizePath(null));
+        assertEquals("/", MarkdownService.normalizePath("//"));
+        assertEquals("/docs/file.md", MarkdownService.normalizePath("//docs///file.md"));
+        assertEquals("/docs", MarkdownService.normalizePath("/docs/"));
+    }
+
+    @Test
+    void parentPathOf_shouldHandleRootAndNestedPaths() {
+        assertNull(MarkdownService.parentPathOf("/"));
+        assertEquals("/", MarkdownService.parentPathOf("/file.md"));
+        assertEquals("/docs/sub", MarkdownService.parentPathOf("/docs/sub/file.md"));
+    }
 
-        assertEquals(2, result.size());
-        assertTrue(result.stream().anyMatch(f -> f.name().equals("file.md")));
-        assertTrue(result.stream().anyMatch(f -> f.name().equals("subdir")));
+    /**
+     * Stands in for Hibernate bumping the {@code @Version} column on flush.
+     */
+    private static MarkdownFile incrementVersion(MarkdownFile file) {
+        file.setVersion(file.getVersion() + 1);
+        return file;
     }
 }
@@ -0,0 +1,48 @@
+package com.example.dok.service;
+
+import com.example.dok.dto.RenderCacheStatsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RenderCacheTest {
+
+    private final RenderCache renderCache = new RenderCache(1024 * 1024);
+
+    @Test
+    void get_shouldRenderOnce_whenContentHashIsUnchanged() {
+        AtomicInteger renders = new AtomicInteger();
+
+        renderCache.get("/docs/a.md", "hash-1", () -> "<p>" + renders.incrementAndGet() + "</p>");
+        String html = renderCache.get("/docs/a.md", "hash-1", () -> "<p>" + renders.incrementAndGet() + "</p>");
+
+        assertEquals("<p>1</p>", html);
+        RenderCacheStatsDto stats = renderCache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    void get_shouldRerender_whenContentHashChanges() {
+        renderCache.get("/docs/a.md", "hash-1", () -> "<p>old</p>");
+
+        String html = renderCache.get("/docs/a.md", "hash-2", () -> "<p>new</p>");
+
+        assertEquals("<p>new</p>", html);
+        assertEquals(2, renderCache.stats().misses());
+    }
+
+    @Test
+    void invalidateSubtree_shouldDropDescendantsOnly() {
+        renderCache.get("/docs/a.md", "h", () -> "a");
+        renderCache.get("/docs/sub/b.md", "h", () -> "b");
+        renderCache.get("/docsextra/c.md", "h", () -> "c");
+
+        renderCache.invalidateSubtree("/docs");
+
+        assertEquals("c", renderCache.get("/docsextra/c.md", "h", () -> "miss"));
+        assertEquals("miss", renderCache.get("/docs/a.md", "h", () -> "miss"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.dok.service;
+
+import com.example.dok.markdown.DocumentPipeline;
+import com.vladsch.flexmark.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderPipelineTest {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final RenderCache renderCache = new RenderCache(1024 * 1024);
+    private final RenderPipeline pipeline = new RenderPipeline(new DocumentPipeline(Parser.builder().build(), 1024 * 1024),
+            renderCache, tasks::add, 2);
+
+    @Test
+    void schedule_shouldRenderOnlyLatestContent_whenSavesArriveBeforeWorkerRuns() {
+        pipeline.schedule("/a.md", "h1", "# One");
+        pipeline.schedule("/a.md", "h2", "# Two");
+        pipeline.schedule("/a.md", "h3", "# Three");
+
+        assertEquals(1, tasks.size());
+        tasks.poll().run();
+
+        assertEquals("<h1 id=\"three\">Three</h1>\n", renderCache.getIfPresent("/a.md", "h3"));
+        assertNull(renderCache.getIfPresent("/a.md", "h1"));
+    }
+
+    @Test
+    void schedule_shouldDropJobs_whenTooManyPathsArePending() {
+        pipeline.schedule("/a.md", "h", "a");
+        pipeline.schedule("/b.md", "h", "b");
+        pipeline.schedule("/c.md", "h", "c");
+
+        assertEquals(2, tasks.size());
+        tasks.forEach(Runnable::run);
+        assertNull(renderCache.getIfPresent("/c.md", "h"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.dok.stats;
+
+import com.example.dok.config.MarkdownConfig;
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.markdown.DocumentPipeline;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.storage.ContentStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatsRecorderTest {
+
+    private final MarkdownFileRepository repository = mock(MarkdownFileRepository.class);
+    private final ContentStore contentStore = mock(ContentStore.class);
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transactionTemplate;
+    private StatsRecorder recorder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        for (String script : List.of("V4__tree_stats.sql", "V5__tree_stats_stripes.sql")) {
+            try (InputStream migration = getClass().getResourceAsStream("/db/migration/" + script)) {
+                jdbc.execute(new String(migration.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        recorder = new StatsRecorder(jdbc, repository, contentStore,
+                new DocumentPipeline(new MarkdownConfig().parser(), 1024 * 1024), transactionManager, 16);
+    }
+
+    /**
+     * Totals of a path summed over its stripes, or null if it has no rows.
+     */
+    private StatsRecorder.Totals totals(String path) {
+        return jdbc.query("SELECT document_count, total_bytes, word_count FROM tree_stats WHERE path = ?",
+                (rs, rowNum) -> new StatsRecorder.Totals(rs.getLong(1), rs.getLong(2), rs.getLong(3)), path)
+                .stream().reduce(StatsRecorder.Totals::plus).orElse(null);
+    }
+
+    @Test
+    void onFileChanged_shouldAddDeltasToTheWholeAncestorChain() {
+        recorder.onFileChanged(FileChangedEvent.created(2L, "/docs", true, null, null));
+        recorder.onFileChanged(FileChangedEvent.created(3L, "/docs/a.md", false, "one two three", null));
+        recorder.onFileChanged(FileChangedEvent.created(4L, "/top.md", false, "four", null));
+        recorder.onFileChanged(FileChangedEvent.updated(3L, "/docs/a.md", "one", null));
+
+        assertEquals(new StatsRecorder.Totals(1, 3, 1), totals("/docs/a.md"));
+        assertEquals(new StatsRecorder.Totals(1, 3, 1), totals("/docs"));
+        assertEquals(new StatsRecorder.Totals(2, 7, 2), totals("/"));
+    }
+
+    @Test
+    void onFileChanged_shouldMoveAndDropSubtreeTotals() {
+        recorder.onFileChanged(FileChangedEvent.created(2L, "/docs", true, null, null));
+        recorder.onFileChanged(FileChangedEvent.created(3L, "/docs/sub", true, null, null));
+        recorder.onFileChanged(FileChangedEvent.created(4L, "/docs/sub/a.md", false, "one two", null));
+        recorder.onFileChanged(FileChangedEvent.created(5L, "/archive", true, null, null));
+
+        recorder.onFileChanged(FileChangedEvent.moved(3L, "/docs/sub", "/archive/sub", true));
+
+        assertNull(totals("/docs/sub/a.md"));
+        assertEquals(new StatsRecorder.Totals(1, 7, 2), totals("/archive/sub/a.md"));
+        assertEquals(new StatsRecorder.Totals(0, 0, 0), totals("/docs"));
+        assertEquals(new StatsRecorder.Totals(1, 7, 2), totals("/archive"));
+        assertEquals(new StatsRecorder.Totals(1, 7, 2), totals("/"));
+
+        recorder.onFileChanged(FileChangedEvent.deleted(5L, "/archive", true));
+
+        assertNull(totals("/archive/sub"));
+        assertEquals(new StatsRecorder.Totals(0, 0, 0), totals("/"));
+    }
+
+    @Test
+    void onFileChanged_shouldCombineTheChangesOfATransaction_andWriteThemBeforeCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            recorder.onFileChanged(FileChangedEvent.created(2L, "/docs", true, null, null));
+            recorder.onFileChanged(FileChangedEvent.created(3L, "/docs/a.md", false, "one two three", null));
+            recorder.onFileChanged(FileChangedEvent.updated(3L, "/docs/a.md", "one", null));
+            recorder.onFileChanged(FileChangedEvent.created(4L, "/docs/b.md", false, "four", null));
+
+            assertNull(totals("/"));
+        });
+
+        assertEquals(new StatsRecorder.Totals(1, 3, 1), totals("/docs/a.md"));
+        assertEquals(new StatsRecorder.Totals(2, 7, 2), totals("/docs"));
+        assertEquals(new StatsRecorder.Totals(2, 7, 2), totals("/"));
+    }
+
+    @Test
+    void onFileChanged_shouldMoveAndDropSubtreeTotals_withinATransaction() {
+        recorder.onFileChanged(FileChangedEvent.created(2L, "/docs", true, null, null));
+        recorder.onFileChanged(FileChangedEvent.created(3L, "/docs/sub", true, null, null));
+        recorder.onFileChanged(FileChangedEvent.created(4L, "/docs/sub/a.md", false, "one two", null));
+        recorder.onFileChanged(FileChangedEvent.created(5L, "/docs/keep.md", false, "kept", null));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            recorder.onFileChanged(FileChangedEvent.created(6L, "/archive", true, null, null));
+            recorder.onFileChanged(FileChangedEvent.created(7L, "/docs/sub/b.md", false, "three", null));
+            recorder.onFileChanged(FileChangedEvent.moved(3L, "/docs/sub", "/archive/sub", true));
+            recorder.onFileChanged(FileChangedEvent.updated(4L, "/archive/sub/a.md", "one", null));
+        });
+
+        assertNull(totals("/docs/sub"));
+        assertEquals(new StatsRecorder.Totals(2, 8, 2), totals("/archive/sub"));
+        assertEquals(new StatsRecorder.Totals(2, 8, 2), totals("/archive"));
+        assertEquals(new StatsRecorder.Totals(1, 4, 1), totals("/docs"));
+        assertEquals(new StatsRecorder.Totals(3, 12, 3), totals("/"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            recorder.onFileChanged(FileChangedEvent.created(8L, "/archive/c.md", false, "c", null));
+            recorder.onFileChanged(FileChangedEvent.deleted(6L, "/archive", true));
+        });
+
+        assertNull(totals("/archive/sub/b.md"));
+        assertNull(totals("/archive/c.md"));
+        assertEquals(new StatsRecorder.Totals(1, 4, 1), totals("/"));
+    }
+
+    @Test
+    void onFileChanged_shouldSpreadAncestorDeltasOverStripes_andKeepDocumentsInOneRow() {
+        for (long id = 1; id <= 50; id++) {
+            recorder.onFileChanged(FileChangedEvent.created(id, "/doc" + id + ".md", false, "word", null));
+        }
+        recorder.onFileChanged(FileChangedEvent.updated(1L, "/doc1.md", "two words", null));
+
+        assertEquals(new StatsRecorder.Totals(50, 4 * 49 + 9, 51), totals("/"));
+        assertTrue(jdbc.queryForObject("SELECT COUNT(*) FROM tree_stats WHERE path = '/'", Integer.class) > 1);
+        assertEquals(List.of(0), jdbc.queryForList("SELECT stripe FROM tree_stats WHERE path = '/doc1.md'", Integer.class));
+    }
+
+    @Test
+    void onFileChanged_shouldIgnoreRemoteEvents() {
+        recorder.onFileChanged(new FileChangedEvent(FileChangedEvent.Type.CREATED, 3L, "/a.md", null, false,
+                "text", null, true));
+
+        assertNull(totals("/"));
+    }
+
+    @Test
+    void afterSingletonsInstantiated_shouldMeasureExistingDocumentsOnce() {
+        Instant saved = Instant.parse("2024-05-01T10:00:00Z");
+        when(repository.findAllMetadata()).thenReturn(List.of(
+                new FileMetadata(1L, "/", true, null, null, 0),
+                new FileMetadata(2L, "/docs", true, null, null, 0),
+                new FileMetadata(3L, "/docs/a.md", false, null, saved, 0),
+                new FileMetadata(4L, "/empty", true, null, null, 0)));
+        when(contentStore.read(3L, "/docs/a.md")).thenReturn(Optional.of("ä b"));
+
+        recorder.afterSingletonsInstantiated();
+
+        assertEquals(new StatsRecorder.Totals(1, 4, 2), totals("/"));
+        assertEquals(new StatsRecorder.Totals(0, 0, 0), totals("/empty"));
+        assertEquals(saved, jdbc.queryForObject("SELECT last_modified FROM tree_stats WHERE path = '/'",
+                Timestamp.class).toInstant());
+    }
+
+    @Test
+    void utf8Length_shouldCountEncodedBytes() {
+        assertEquals(1 + 2 + 3 + 4, StatsRecorder.utf8Length("aä€😀"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.dok.storage;
+
+import com.example.dok.service.ContentHash;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FileSystemContentStoreTest {
+
+    @TempDir
+    Path root;
+
+    private FileSystemContentStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new FileSystemContentStore(root.toString(), false, mock(ApplicationEventPublisher.class),
+                mock(EntityManager.class));
+    }
+
+    @Test
+    void write_shouldStoreDocumentAsFile_andTransferItsBytes() throws Exception {
+        store.create(1L, "/docs/notes.md", "# Notes\n");
+        store.write(1L, "/docs/notes.md", 1, "# Grüße\n");
+
+        assertEquals("# Grüße\n", Files.readString(root.resolve("docs/notes.md")));
+        assertEquals(Optional.of("# Grüße\n"), store.read(1L, "/docs/notes.md"));
+        try (StoredBody body = store.open(1L, "/docs/notes.md")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.transferTo(out);
+            assertEquals("# Grüße\n", out.toString(StandardCharsets.UTF_8));
+            assertEquals(ContentHash.of("# Grüße\n"), body.contentHash());
+        }
+    }
+
+    @Test
+    void open_shouldKeepStreamingTheBodyItHashed_whenWrittenMeanwhile() throws Exception {
+        store.create(1L, "/doc.md", "old");
+
+        try (StoredBody body = store.open(1L, "/doc.md")) {
+            store.write(1L, "/doc.md", 1, "newer body");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.transferTo(out);
+
+            assertEquals("old", out.toString(StandardCharsets.UTF_8));
+            assertEquals(ContentHash.of("old"), body.contentHash());
+        }
+        assertEquals(Optional.of("newer body"), store.read(1L, "/doc.md"));
+    }
+
+    @Test
+    void move_shouldRenameWholeDirectory() {
+        store.create(1L, "/docs/a.md", "a");
+        store.create(2L, "/docs/sub/b.md", "b");
+
+        store.move("/docs", "/archive/docs");
+
+        assertEquals(Optional.of("b"), store.read(2L, "/archive/docs/sub/b.md"));
+        assertEquals(Optional.empty(), store.read(1L, "/docs/a.md"));
+    }
+
+    @Test
+    void deleteSubtree_shouldRemoveDirectoryAndFiles() {
+        store.create(1L, "/docs/sub/a.md", "a");
+
+        store.deleteSubtree("/docs", "/docs/%");
+
+        assertFalse(Files.exists(root.resolve("docs")));
+    }
+
+    @Test
+    void write_shouldOnlyReplaceFile_whenTransactionCommits() throws Exception {
+        store.create(1L, "/doc.md", "old");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.write(1L, "/doc.md", 1, "new");
+            assertEquals(Optional.of("old"), store.read(1L, "/doc.md"));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Optional.of("old"), store.read(1L, "/doc.md"));
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void beforeCommit_shouldBeUndone_whenCommitFailsAfterwards() throws Exception {
+        store.create(1L, "/doc.md", "old");
+        store.create(2L, "/docs/a.md", "a");
+        store.create(3L, "/gone/b.md", "b");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.write(1L, "/doc.md", 1, "new");
+            store.move("/docs", "/archive/docs");
+            store.deleteSubtree("/gone", "/gone/%");
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Optional.of("old"), store.read(1L, "/doc.md"));
+        assertEquals(Optional.of("a"), store.read(2L, "/docs/a.md"));
+        assertEquals(Optional.of("b"), store.read(3L, "/gone/b.md"));
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    void beforeCommit_shouldDropKeptFiles_whenCommitSucceeds() throws Exception {
+        store.create(1L, "/doc.md", "old");
+        store.create(2L, "/gone.md", "b");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.write(1L, "/doc.md", 1, "new");
+            store.delete(2L, "/gone.md");
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Optional.of("new"), store.read(1L, "/doc.md"));
+        assertEquals(Optional.empty(), store.read(2L, "/gone.md"));
+        assertNoTemporaryFiles();
+    }
+
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(sync -> sync.beforeCommit(false));
+        synchronizations.forEach(sync -> sync.afterCompletion(status));
+    }
+
+    private void assertNoTemporaryFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(root)) {
+            assertEquals(List.of(), files.filter(file -> file.getFileName().toString().endsWith(".dok-tmp")).toList());
+        }
+    }
+
+    @Test
+    void resolve_shouldRejectPathsOutsideRoot() {
+        assertThrows(IllegalArgumentException.class, () -> store.read(1L, "/../outside.md"));
+    }
+}
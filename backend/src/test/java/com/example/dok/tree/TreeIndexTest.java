@@ -0,0 +1,122 @@
+package com.example.dok.tree;
+
+import com.example.dok.dto.DirectoryEntryDto;
+import com.example.dok.dto.FileEntryDto;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.repository.MarkdownFileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TreeIndexTest {
+
+    private TreeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MarkdownFileRepository repository = mock(MarkdownFileRepository.class);
+        when(repository.findAllMetadata()).thenReturn(List.of(
+                directory(1L, "/"),
+                document(4L, "/docs/b.md", 0),
+                directory(2L, "/docs"),
+                document(3L, "/docs/a.md", 0),
+                directory(5L, "/docs/zeta"),
+                document(6L, "/docs/zeta/c.md", 0),
+                directory(7L, "/docs/Alpha")));
+        index = new TreeIndex(repository);
+    }
+
+    private static FileMetadata directory(long id, String path) {
+        return new FileMetadata(id, path, true, null, null, 0L);
+    }
+
+    private static FileMetadata document(long id, String path, long version) {
+        return new FileMetadata(id, path, false, "hash", null, version);
+    }
+
+    @Test
+    void children_shouldListDirectoriesFirstThenByName() {
+        assertEquals(List.of(
+                new FileEntryDto("Alpha", "/docs/Alpha", true),
+                new FileEntryDto("zeta", "/docs/zeta", true),
+                new FileEntryDto("a.md", "/docs/a.md", false),
+                new FileEntryDto("b.md", "/docs/b.md", false)), index.children("/docs"));
+        assertEquals(List.of(new FileEntryDto("docs", "/docs", true)), index.children("/"));
+        assertTrue(index.children("/missing").isEmpty());
+    }
+
+    @Test
+    void children_shouldPageAfterPositionWithChildCounts() {
+        List<DirectoryEntryDto> first = index.children("/docs", null, 2);
+        assertEquals(List.of(
+                new DirectoryEntryDto("Alpha", "/docs/Alpha", true, 0),
+                new DirectoryEntryDto("zeta", "/docs/zeta", true, 1)), first);
+
+        List<DirectoryEntryDto> rest = index.children("/docs", TreeIndex.position(true, "zeta"), 10);
+        assertEquals(List.of("a.md", "b.md"), rest.stream().map(DirectoryEntryDto::name).toList());
+        assertEquals(List.of("b.md"), index.children("/docs", TreeIndex.position(false, "a.md"), 10)
+                .stream().map(DirectoryEntryDto::name).toList());
+    }
+
+    @Test
+    void update_shouldIgnoreOlderVersionsAndOtherFiles() {
+        index.update(document(3L, "/docs/a.md", 2));
+        index.update(document(3L, "/docs/a.md", 1));
+        index.update(document(9L, "/docs/b.md", 5));
+        index.update(document(3L, "/docs/gone.md", 3));
+
+        assertEquals(2L, index.find("/docs/a.md").orElseThrow().version());
+        assertEquals(4L, index.find("/docs/b.md").orElseThrow().id());
+        assertFalse(index.exists("/docs/gone.md"));
+    }
+
+    @Test
+    void move_shouldReplaceTheWholeSubtree() {
+        index.move("/docs/zeta", List.of(
+                new FileMetadata(5L, "/zeta", true, null, null, 1L),
+                document(6L, "/zeta/c.md", 1)));
+
+        assertFalse(index.exists("/docs/zeta"));
+        assertFalse(index.exists("/docs/zeta/c.md"));
+        assertEquals(1L, index.find("/zeta/c.md").orElseThrow().version());
+        assertEquals(List.of("Alpha", "a.md", "b.md"),
+                index.children("/docs").stream().map(FileEntryDto::name).toList());
+        assertEquals(List.of("docs", "zeta"), index.children("/").stream().map(FileEntryDto::name).toList());
+    }
+
+    @Test
+    void remove_shouldDropDescendants() {
+        index.remove("/docs");
+
+        assertFalse(index.exists("/docs/zeta/c.md"));
+        assertTrue(index.children("/docs/zeta").isEmpty());
+        assertTrue(index.children("/").isEmpty());
+        assertTrue(index.exists("/"));
+    }
+
+    @Test
+    void mutations_shouldWaitForTheTransactionToCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.add(document(10L, "/docs/new.md", 0));
+            index.remove("/docs/a.md");
+
+            assertFalse(index.exists("/docs/new.md"));
+            assertTrue(index.exists("/docs/a.md"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(index.exists("/docs/new.md"));
+        assertFalse(index.exists("/docs/a.md"));
+    }
+}
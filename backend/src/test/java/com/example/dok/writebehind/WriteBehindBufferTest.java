@@ -0,0 +1,120 @@
+package com.example.dok.writebehind;
+
+import com.example.dok.dto.PatchFileContentRequestDto;
+import com.example.dok.dto.SaveResultDto;
+import com.example.dok.dto.TextOperationDto;
+import com.example.dok.dto.UpdateFileContentRequestDto;
+import com.example.dok.event.FileChangedEvent;
+import com.example.dok.exception.VersionConflictException;
+import com.example.dok.model.FileMetadata;
+import com.example.dok.repository.MarkdownFileRepository;
+import com.example.dok.revisions.RevisionRecorder;
+import com.example.dok.service.ContentHash;
+import com.example.dok.service.DokMetrics;
+import com.example.dok.service.RenderCache;
+import com.example.dok.storage.ContentStore;
+import com.example.dok.storage.ContentWrite;
+import com.example.dok.tree.TreeIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindBufferTest {
+
+    private final MarkdownFileRepository repository = mock(MarkdownFileRepository.class);
+    private final ContentStore contentStore = mock(ContentStore.class);
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final RevisionRecorder revisionRecorder = mock(RevisionRecorder.class);
+    private TreeIndex index;
+    private WriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findAllMetadata())
+                .thenReturn(List.of(new FileMetadata(1L, "/a.md", false, "h0", Instant.EPOCH, 3L)));
+        index = spy(new TreeIndex(repository));
+        buffer = new WriteBehindBuffer(index, contentStore, jdbc, mock(PlatformTransactionManager.class),
+                eventPublisher, mock(RenderCache.class), revisionRecorder, mock(DokMetrics.class), true, 1000, 200, "", "interval");
+    }
+
+    @Test
+    void flush_shouldWriteOnlyTheLatestOfCoalescedSaves() {
+        when(jdbc.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenReturn(new int[][]{{1}});
+
+        assertEquals("File saved successfully!", buffer.save(new UpdateFileContentRequestDto("/a.md", "one", 3L)));
+        assertEquals("File saved successfully!", buffer.save(new UpdateFileContentRequestDto("/a.md", "two", 4L)));
+
+        assertEquals(5L, buffer.metadata("/a.md").orElseThrow().version());
+        assertEquals(Optional.of("two"), buffer.content("/a.md"));
+        verify(contentStore, never()).read(anyLong(), anyString());
+
+        buffer.flush();
+
+        verify(jdbc, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        verify(contentStore).writeAll(List.of(new ContentWrite(1L, "/a.md", 5L, "two")));
+        verify(eventPublisher).publishEvent(FileChangedEvent.updated(1L, "/a.md", "two", ContentHash.of("two")));
+        assertTrue(buffer.metadata("/a.md").isEmpty());
+        assertTrue(buffer.content("/a.md").isEmpty());
+        assertEquals(5L, index.find("/a.md").orElseThrow().version());
+    }
+
+    @Test
+    void patch_shouldApplyToBufferedContent_andRejectStaleVersions() {
+        when(contentStore.read(1L, "/a.md")).thenReturn(Optional.of("abc"));
+
+        SaveResultDto first = buffer.patch(new PatchFileContentRequestDto("/a.md", 3L,
+                List.of(new TextOperationDto(3, 0, "d"))));
+        SaveResultDto second = buffer.patch(new PatchFileContentRequestDto("/a.md", 4L,
+                List.of(new TextOperationDto(0, 1, ""))));
+
+        assertEquals(4L, first.version());
+        assertEquals(5L, second.version());
+        assertEquals(Optional.of("bcd"), buffer.content("/a.md"));
+        assertThrows(VersionConflictException.class, () -> buffer.patch(new PatchFileContentRequestDto("/a.md", 4L, List.of())));
+        verify(contentStore, times(1)).read(1L, "/a.md");
+    }
+
+    @Test
+    void flush_shouldKeepSavesAsRevision_andReportThem_whenTheDocumentChangedElsewhere() {
+        when(jdbc.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenReturn(new int[][]{{0}});
+
+        buffer.save(new UpdateFileContentRequestDto("/a.md", "lost", null));
+        buffer.flush();
+
+        verify(contentStore).writeAll(List.of());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        verify(revisionRecorder).keep(1L, "lost", ContentHash.of("lost"));
+        assertTrue(buffer.content("/a.md").isEmpty());
+        assertThrows(VersionConflictException.class, () -> buffer.save(new UpdateFileContentRequestDto("/a.md", "next", 3L)));
+        assertEquals("File saved successfully!", buffer.save(new UpdateFileContentRequestDto("/a.md", "next", 3L)));
+    }
+
+    @Test
+    void save_shouldRejectSaves_whenTheDocumentChangedElsewhereSinceBuffered() {
+        buffer.save(new UpdateFileContentRequestDto("/a.md", "mine", 3L));
+        index.update(new FileMetadata(1L, "/a.md", false, "h9", Instant.EPOCH, 4L));
+
+        assertThrows(VersionConflictException.class, () -> buffer.save(new UpdateFileContentRequestDto("/a.md", "more", 4L)));
+
+        verify(revisionRecorder).keep(1L, "mine", ContentHash.of("mine"));
+        assertTrue(buffer.content("/a.md").isEmpty());
+        assertEquals("File saved successfully!", buffer.save(new UpdateFileContentRequestDto("/a.md", "theirs+", 4L)));
+    }
+
+    @Test
+    void save_shouldReportMissingDocumentsLikeTheService() {
+        assertEquals("Error: File not found.", buffer.save(new UpdateFileContentRequestDto("/missing.md", "x", null)));
+        assertTrue(buffer.metadata("/missing.md").isEmpty());
+    }
+}
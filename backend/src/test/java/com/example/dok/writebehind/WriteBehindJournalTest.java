@@ -0,0 +1,52 @@
+package com.example.dok.writebehind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static WriteBehindJournal.Entry entry(long version, String content) {
+        return new WriteBehindJournal.Entry(7L, "/docs/a.md", 3, version, Instant.ofEpochMilli(1000 + version), content);
+    }
+
+    @Test
+    void replay_shouldReturnRecordsOfEarlierSegmentsInOrder() throws Exception {
+        try (WriteBehindJournal journal = new WriteBehindJournal(directory, WriteBehindJournal.Sync.ALWAYS)) {
+            journal.append(entry(4, "one"));
+            journal.rotate();
+            journal.append(entry(5, "zwei ü"));
+        }
+
+        try (WriteBehindJournal reopened = new WriteBehindJournal(directory, WriteBehindJournal.Sync.INTERVAL)) {
+            assertEquals(List.of(entry(4, "one"), entry(5, "zwei ü")), reopened.replay());
+        }
+    }
+
+    @Test
+    void replay_shouldSkipDeletedSegmentsAndTornRecords() throws Exception {
+        try (WriteBehindJournal journal = new WriteBehindJournal(directory, WriteBehindJournal.Sync.NEVER)) {
+            journal.append(entry(4, "flushed"));
+            journal.delete(journal.rotate());
+            journal.append(entry(5, "kept"));
+        }
+        try (var segments = Files.list(directory)) {
+            Path last = segments.max(Path::compareTo).orElseThrow();
+            Files.write(last, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        try (WriteBehindJournal reopened = new WriteBehindJournal(directory, WriteBehindJournal.Sync.NEVER)) {
+            assertEquals(List.of(entry(5, "kept")), reopened.replay());
+        }
+    }
+}
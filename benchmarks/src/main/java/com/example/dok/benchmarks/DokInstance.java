@@ -0,0 +1,120 @@
+package com.example.dok.benchmarks;
+
+import com.example.dok.DokApplication;
+import com.example.dok.service.MarkdownService;
+import com.example.dok.tree.TreeIndex;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A full application context without the web layer, backed by a file-based H2 database in a
+ * fresh temporary directory that is removed again on {@link #close()}.
+ */
+final class DokInstance implements AutoCloseable {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final Path dataDirectory;
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbc;
+
+    private DokInstance(Path dataDirectory, ConfigurableApplicationContext context) {
+        this.dataDirectory = dataDirectory;
+        this.context = context;
+        this.jdbc = context.getBean(JdbcTemplate.class);
+    }
+
+    static DokInstance start() throws IOException {
+        Path dataDirectory = Files.createTempDirectory("dok-benchmark");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DokApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:file:" + dataDirectory.resolve("dokdb").toAbsolutePath(),
+                        "dok.search.snapshot-path=" + dataDirectory.resolve("dok-search.snapshot").toAbsolutePath())
+                .run();
+        return new DokInstance(dataDirectory, context);
+    }
+
+    MarkdownService markdownService() {
+        return context.getBean(MarkdownService.class);
+    }
+
+    /**
+     * Inserts {@code nodes} rows below the existing directory {@code parentPath}, breadth first. Every
+     * directory gets {@code fanOut} children, half of them directories and half documents without content.
+     * Rows go straight to the table in JDBC batches because creating them through the service takes minutes,
+     * and the tree index is reloaded afterwards.
+     *
+     * @return paths of all directories created, in breadth-first order
+     */
+    List<String> seedTree(String parentPath, int nodes, int fanOut) {
+        Long parentId = jdbc.queryForObject("SELECT id FROM markdown_file WHERE path = ?", Long.class, parentPath);
+        long nextId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM markdown_file", Long.class);
+        Timestamp now = Timestamp.from(Instant.now());
+
+        List<String> directories = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        Deque<Object[]> pending = new ArrayDeque<>();
+        pending.add(new Object[]{parentId, parentPath});
+        int created = 0;
+        while (created < nodes && !pending.isEmpty()) {
+            Object[] parent = pending.poll();
+            Long id = (Long) parent[0];
+            String path = (String) parent[1];
+            for (int child = 0; child < fanOut && created < nodes; child++, created++) {
+                boolean directory = child < fanOut / 2;
+                String name = directory ? "dir-" + child : "note-" + child + ".md";
+                String childPath = path.equals("/") ? "/" + name : path + "/" + name;
+                long childId = nextId++;
+                batch.add(new Object[]{childId, childPath, id, path, name, directory, now});
+                if (directory) {
+                    directories.add(childPath);
+                    pending.add(new Object[]{childId, childPath});
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    insert(batch);
+                }
+            }
+        }
+        insert(batch);
+        // Keep Hibernate's pooled id generator clear of the ids assigned above.
+        jdbc.execute("ALTER SEQUENCE markdown_file_seq RESTART WITH " + (nextId + 100));
+        context.getBean(TreeIndex.class).reload();
+        return directories;
+    }
+
+    private void insert(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate("INSERT INTO markdown_file (id, path, parent_id, parent_path, name, is_directory, " +
+                "last_modified, version, pending_operations) VALUES (?, ?, ?, ?, ?, ?, ?, 0, 0)", batch);
+        batch.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.dok.benchmarks;
+
+import com.example.dok.dto.DirectoryPageDto;
+import com.example.dok.dto.FileEntryDto;
+import com.example.dok.service.MarkdownService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MarkdownService#listFiles} and {@link MarkdownService#listPage} on trees of increasing size.
+ * Listing cost should depend on the number of children only, so the scores should stay flat across
+ * {@code nodes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListFilesBenchmark {
+
+    private static final int FAN_OUT = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int nodes;
+
+    private DokInstance dok;
+    private MarkdownService markdownService;
+    private List<String> directories;
+
+    @Setup
+    public void setUp() throws IOException {
+        dok = DokInstance.start();
+        markdownService = dok.markdownService();
+        directories = dok.seedTree("/", nodes, FAN_OUT);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dok.close();
+    }
+
+    @Benchmark
+    public List<FileEntryDto> listRoot() {
+        return markdownService.listFiles("/");
+    }
+
+    @Benchmark
+    public List<FileEntryDto> listRandomDirectory() {
+        return markdownService.listFiles(directories.get(ThreadLocalRandom.current().nextInt(directories.size())));
+    }
+
+    @Benchmark
+    public DirectoryPageDto listRootPageWithPrefetch() {
+        return markdownService.listPage("/", null, 200, 1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.dok.benchmarks;
+
+/**
+ * Deterministic markdown fixtures that exercise every extension enabled in {@code MarkdownConfig}:
+ * headings, wiki-links, tables, task lists, strikethrough, inserts, autolinks and fenced code.
+ */
+final class MarkdownDocuments {
+
+    private MarkdownDocuments() {
+    }
+
+    static String generate(int targetChars) {
+        StringBuilder markdown = new StringBuilder(targetChars + 2048);
+        markdown.append("# Benchmark document\n\n");
+        for (int section = 0; markdown.length() < targetChars; section++) {
+            appendSection(markdown, section);
+        }
+        return markdown.toString();
+    }
+
+    private static void appendSection(StringBuilder markdown, int section) {
+        markdown.append("## Section ").append(section).append("\n\n")
+                .append("This paragraph links to [[Page ").append(section).append("]] and to ")
+                .append("[[notes/page-").append(section + 1).append("|the next page]], with some **bold**, ")
+                .append("*emphasis*, ~~struck~~ and ++inserted++ text. See https://example.com/").append(section)
+                .append(" for details.\n\n");
+
+        markdown.append("| Name | Owner | Status | Estimate |\n")
+                .append("|:-----|:------|:------:|---------:|\n");
+        for (int row = 0; row < 8; row++) {
+            markdown.append("| Item ").append(section).append('.').append(row)
+                    .append(" | [[People/owner-").append(row).append("]] | ")
+                    .append(row % 2 == 0 ? "done" : "open").append(" | ").append(row * 3 + 1).append("h |\n");
+        }
+        markdown.append('\n');
+
+        for (int task = 0; task < 4; task++) {
+            markdown.append("- [").append(task % 2 == 0 ? 'x' : ' ').append("] Task ").append(task)
+                    .append(" of section ").append(section).append('\n');
+        }
+        markdown.append('\n');
+
+        markdown.append("```java\n")
+                .append("int section = ").append(section).append(";\n")
+                .append("System.out.println(section);\n")
+                .append("```\n\n");
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.dok.benchmarks;
+
+import com.example.dok.dto.MoveFileRequestDto;
+import com.example.dok.service.MarkdownService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves a directory with {@code subtreeSize} descendants back and forth between two parents, so
+ * every invocation rewrites the whole subtree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoveBenchmark {
+
+    private static final int FAN_OUT = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int subtreeSize;
+
+    private DokInstance dok;
+    private MarkdownService markdownService;
+    private boolean onLeft;
+
+    @Setup
+    public void setUp() throws IOException {
+        dok = DokInstance.start();
+        markdownService = dok.markdownService();
+        markdownService.createDirectory("/left");
+        markdownService.createDirectory("/right");
+        markdownService.createDirectory("/left/subtree");
+        dok.seedTree("/left/subtree", subtreeSize, FAN_OUT);
+        onLeft = true;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dok.close();
+    }
+
+    @Benchmark
+    public String moveSubtree() {
+        String result = onLeft
+                ? markdownService.move(new MoveFileRequestDto("/left/subtree", "/right", null))
+                : markdownService.move(new MoveFileRequestDto("/right/subtree", "/left", null));
+        onLeft = !onLeft;
+        return result;
+    }
+}
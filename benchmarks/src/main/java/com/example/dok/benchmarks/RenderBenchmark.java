@@ -0,0 +1,69 @@
+package com.example.dok.benchmarks;
+
+import com.example.dok.config.MarkdownConfig;
+import com.example.dok.markdown.DocumentPipeline;
+import com.example.dok.markdown.ParsedDocument;
+import com.example.dok.markdown.RenderProfile;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser and preview renderer exactly as configured by {@link MarkdownConfig} and
+ * {@link DocumentPipeline}, without the render or parse caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    public enum DocumentSize {
+        SMALL(2 * 1024),
+        MEDIUM(64 * 1024),
+        LARGE(1024 * 1024);
+
+        private final int chars;
+
+        DocumentSize(int chars) {
+            this.chars = chars;
+        }
+    }
+
+    @Param
+    public DocumentSize size;
+
+    private Parser parser;
+    private DocumentPipeline pipeline;
+    private String markdown;
+    private ParsedDocument document;
+
+    @Setup
+    public void setUp() {
+        MarkdownConfig config = new MarkdownConfig();
+        parser = config.parser();
+        // A zero-sized parse cache, so parseAndRender parses every time.
+        pipeline = new DocumentPipeline(parser, 0);
+        markdown = MarkdownDocuments.generate(size.chars);
+        document = pipeline.parse(null, markdown);
+    }
+
+    @Benchmark
+    public Node parse() {
+        return parser.parse(markdown);
+    }
+
+    @Benchmark
+    public String render() {
+        return pipeline.render(document, RenderProfile.PREVIEW);
+    }
+
+    @Benchmark
+    public String parseAndRender() {
+        return pipeline.render(pipeline.parse(null, markdown), RenderProfile.PREVIEW);
+    }
+}
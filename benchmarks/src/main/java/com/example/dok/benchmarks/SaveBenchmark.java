@@ -0,0 +1,80 @@
+package com.example.dok.benchmarks;
+
+import com.example.dok.dto.PatchFileContentRequestDto;
+import com.example.dok.dto.SaveResultDto;
+import com.example.dok.dto.TextOperationDto;
+import com.example.dok.dto.UpdateFileContentRequestDto;
+import com.example.dok.service.MarkdownService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Save throughput against file-backed H2, for full saves and single-operation patches. Each JMH
+ * thread writes its own document, so runs with {@code -t} measure contention on the database only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Workspace {
+
+        @Param({"1024", "65536"})
+        public int contentChars;
+
+        private final AtomicInteger documents = new AtomicInteger();
+        private DokInstance dok;
+        private MarkdownService markdownService;
+        private String content;
+
+        @Setup
+        public void setUp() throws IOException {
+            dok = DokInstance.start();
+            markdownService = dok.markdownService();
+            markdownService.createDirectory("/bench");
+            content = MarkdownDocuments.generate(contentChars);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            dok.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Document {
+
+        private String path;
+        private long version;
+
+        @Setup
+        public void setUp(Workspace workspace) {
+            path = "/bench/note-" + workspace.documents.incrementAndGet() + ".md";
+            workspace.markdownService.createFile(path);
+            workspace.markdownService.saveMarkdown(new UpdateFileContentRequestDto(path, workspace.content, null));
+            version = workspace.markdownService.findMetadata(path).orElseThrow().version();
+        }
+    }
+
+    @Benchmark
+    public String save(Workspace workspace, Document document) {
+        return workspace.markdownService.saveMarkdown(
+                new UpdateFileContentRequestDto(document.path, workspace.content, null));
+    }
+
+    @Benchmark
+    public SaveResultDto savePatch(Workspace workspace, Document document) {
+        // Rewrites the leading '#' in place, so the document keeps its size across invocations.
+        SaveResultDto result = workspace.markdownService.patchMarkdown(new PatchFileContentRequestDto(
+                document.path, document.version, List.of(new TextOperationDto(0, 1, "#"))));
+        document.version = result.version();
+        return result;
+    }
+}